@@ -0,0 +1,54 @@
+import hashlib
+import json
+import os
+
+import numpy as np
+import pandas as pd
+
+
+def cache_path(data_dir, file, features, labels_column):
+    """
+    Path of the binary column cache of a dataset written by evaluation.ColumnCache (Java), found through the stamp it
+    keeps for the selected columns. The cache is only used while the size and modification time of the CSV match the
+    stamp, so the CSV is never hashed here.
+
+    :param data_dir: Folder of the datasets
+    :param file: Dataset CSV file, relative to data_dir
+    :param features: Feature columns
+    :param labels_column: Labels column name
+    :return: Path of the cache file, or None if there is no valid cache
+    """
+    columns_hash = hashlib.sha256('\n'.join(features + [labels_column]).encode('utf-8')).hexdigest()
+    stamp = os.path.join(data_dir, '.columns', f'{os.path.basename(file)}.{columns_hash[:16]}.stamp')
+
+    try:
+        with open(stamp) as f:
+            contents = json.load(f)
+        stat = os.stat(os.path.join(data_dir, file))
+    except (OSError, ValueError):
+        return None
+
+    if contents.get('size') != stat.st_size or contents.get('modified') != stat.st_mtime_ns // 1000000:
+        return None
+
+    cache = os.path.join(data_dir, '.columns', contents.get('cache', ''))
+    return cache if os.path.isfile(cache) else None
+
+
+def load(path):
+    """
+    Maps a column cache without copying it.
+
+    :param path: Path of the cache file
+    :return: Tuple (<dataframe with the feature columns>, <series with the labels>)
+    """
+    with open(path, 'rb') as f:
+        header = json.loads(f.readline())
+
+    rows = header['rows']
+    features = header['features']
+    columns = np.memmap(path, dtype='<f8', mode='r', offset=header['columns_offset'], shape=(len(features), rows))
+    labels = np.memmap(path, dtype='<i4', mode='r', offset=header['labels_offset'], shape=(rows,))
+
+    data = pd.DataFrame({feature: columns[i] for i, feature in enumerate(features)}, copy=False)
+    return data, pd.Series(np.asarray(header['labels'], dtype=object)[labels])
@@ -20,6 +20,7 @@ from sklearn.preprocessing import StandardScaler
 from sklearn.svm import SVC
 from sklearn.utils import resample
 
+import columns
 from lmoments import Lmoments
 
 dirname = os.path.dirname(__file__)
@@ -90,6 +91,13 @@ class Data:
         and test sets.
         """
 
+        data_dir = os.path.join(dirname[:-4], 'data')
+        cache = columns.cache_path(data_dir, self.file, self.features, self.labels_column)
+        if cache is not None:
+            log.info('Mapping column cache...')
+            self.data, self.labels = columns.load(cache)
+            return
+
         log.info('Reading CSV...')
         self.data = pd.read_csv(os.path.join(dirname[:-4], 'data/', self.file), usecols=self.features + [self.labels_column], skipinitialspace=True)
         self.data.replace([np.inf, -np.inf], np.nan, inplace=True)
@@ -148,8 +156,13 @@ def main(file):
         print(file)
         exit()
 
+    # Time of each phase (ms), printed as "PROFILE {json}" before the accuracy
+    profile = {}
+
     n = conf_file['n']
+    start = time.time()
     data = Data(conf_file['dataset'], conf_file['features'], conf_file['labels'])
+    profile['load'] = (time.time() - start) * 1000
     features = [f"{feature} (tau3)" for feature in conf_file['features']] + [f"{feature} (tau4)" for feature in conf_file['features']] + [f"{feature} (tau5)" for feature in conf_file['features']]
 
     _file = file.split('/')[-1]
@@ -159,6 +172,7 @@ def main(file):
     start = time.time()
 
     if not Path(lmom_csv).exists():
+        profile['source'] = 'computed'
         cpus = 16
         l_mom = {}
         features_to_compute = conf_file['features']
@@ -179,20 +193,29 @@ def main(file):
                 result = queue.get()
                 l_mom.update(result)
 
+        profile['lmoments'] = (time.time() - start) * 1000
+
         try:
+            start = time.time()
             acquire_lock(lock_file)
+            profile['lock'] = (time.time() - start) * 1000
             df = pd.DataFrame({col: l_mom.get(col, []) for col in features})
             df.to_csv(lmom_csv, index=False, header=True)
         finally:
             release_lock(lock_file)
 
     else:
+        profile['source'] = 'csv'
         try:
             acquire_lock(lock_file)
+            profile['lock'] = (time.time() - start) * 1000
+            start = time.time()
             df = pd.read_csv(lmom_csv)
+            profile['lmoments'] = (time.time() - start) * 1000
         finally:
             release_lock(lock_file)
-    print(time.time() - start)
+
+    start = time.time()
 
     x = df[conf_file['features_tau']]
     y = np.array(data.get_labels_int(get_labels(data.labels, n)))
@@ -208,11 +231,12 @@ def main(file):
 
     x = df_combined[conf_file['features_tau']].values
     y = df_combined['label'].values
+    profile['scaling'] = (time.time() - start) * 1000
 
-    classification(x, y, conf_file)
+    classification(x, y, conf_file, profile)
 
 
-def classification(x, y, conf_file, random_state=42):
+def classification(x, y, conf_file, profile, random_state=42):
 
     models = {
         'SGD Classifier': SGDClassifier(
@@ -240,8 +264,12 @@ def classification(x, y, conf_file, random_state=42):
     else:
         classifier = StackingClassifier(estimators=estimators, n_jobs=16)
 
+    start = time.time()
     scaler = StandardScaler()
     x = scaler.fit_transform(x)
+    profile['scaling'] += (time.time() - start) * 1000
+    profile['fit'] = 0.0
+    profile['predict'] = 0.0
 
     # Cross-validation
     cv = StratifiedShuffleSplit(n_splits=4, test_size=0.2, random_state=random_state)
@@ -253,14 +281,20 @@ def classification(x, y, conf_file, random_state=42):
         y_train, y_test = y[train_idx], y[test_idx]
 
         # Fit clasifier and predict
+        start = time.time()
         classifier.fit(x_train, y_train)
+        profile['fit'] += (time.time() - start) * 1000
+
+        start = time.time()
         y_pred = classifier.predict(x_test)
+        profile['predict'] += (time.time() - start) * 1000
 
         balanced_acc = balanced_accuracy_score(y_test, y_pred)
         balanced_accuracies.append(balanced_acc)
 
     mean_balanced_acc = np.mean(balanced_accuracies)
 
+    print('PROFILE ' + json.dumps(profile))
     print(mean_balanced_acc)
 
 
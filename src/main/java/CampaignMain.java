@@ -0,0 +1,80 @@
+import distributed.CampaignMaster;
+import distributed.WorkerLauncher;
+import distributed.algorithms.AsynchronousDistributedNSGAII;
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
+import org.uma.jmetal.util.fileoutput.SolutionListOutput;
+import org.uma.jmetal.util.fileoutput.impl.DefaultFileOutputContext;
+import problem.LmomEnsembleProblem;
+import util.JMetalLogger;
+import util.WriteSolutionsToCSVObserver;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs several optimizations (scenarios x runs) in one master process that shares its workers among them. Usage:
+ * <p>
+ * CampaignMain <server_port> <pop_size> <max_evals> <runs> <scenario_json>[:<weight>] ... [--affinity-delay=<ms>] [--evaluator=python|java] [--artifacts=<dir>] [--launch=<workers>]
+ * [--local=<workers>] [--stagnation-window=<evals>] [--stagnation-tolerance=<hv>] [--time-budget=<s>]
+ * <p>
+ * The results of every job (named <scenario>.<run>) are saved at FUN.<job>.csv, VAR.<job>.csv and traces/<job>.
+ */
+public class CampaignMain {
+    public static void main(String[] args) {
+        int port = Integer.parseInt(args[0]);
+
+        int populationSize = Integer.parseInt(args[1]);
+        int maxEvaluations = Integer.parseInt(args[2]);
+        int runs = Integer.parseInt(args[3]);
+        long affinityDelay = Long.parseLong(NSGAIIMain.option(args, "affinity-delay", "10000"));
+        int localWorkers = Integer.parseInt(NSGAIIMain.option(args, "local", "0"));
+        if (localWorkers > 0) port = -1;
+
+        CampaignMaster<CompositeSolution> campaign = new CampaignMaster<>(port);
+
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].startsWith("--")) continue;
+
+            String[] scenario = args[i].split(":");
+            String jsonFile = "lmoments/conf_default/" + scenario[0];
+            double weight = scenario.length > 1 ? Double.parseDouble(scenario[1]) : 1.0;
+
+            LmomEnsembleProblem problem = NSGAIIMain.createProblem(jsonFile);
+            problem.setEvaluator(NSGAIIMain.option(args, "evaluator", "python"));
+
+            for (int run = 0; run < runs; run++) {
+                String job = problem.scenario() + "." + run;
+
+                AsynchronousDistributedNSGAII<CompositeSolution> algorithm = new AsynchronousDistributedNSGAII<>(-1, problem, populationSize, NSGAIIMain.createCrossover(), NSGAIIMain.createMutation(problem), NSGAIIMain.createTermination(args, maxEvaluations));
+                algorithm.setDecomposition(NSGAIIMain.decomposition(args));
+                algorithm.setCoalescing(NSGAIIMain.coalescing(args));
+                algorithm.setPreDispatch(NSGAIIMain.preDispatch(args));
+                algorithm.setHypervolumeBounds(problem.objectiveBounds()[0], problem.objectiveBounds()[1]);
+                algorithm.observable().register(new WriteSolutionsToCSVObserver(100, "traces/" + job));
+
+                campaign.addJob(job, algorithm, weight);
+                JMetalLogger.logger.info("Job " + job + " added with weight " + weight);
+            }
+        }
+
+        campaign.setAffinityDelay(affinityDelay);
+        NSGAIIMain.startArtifactServer(campaign, NSGAIIMain.option(args, "artifacts", null));
+        if (localWorkers > 0) campaign.startLocalWorkers(localWorkers);
+        WorkerLauncher launcher = NSGAIIMain.startWorkerLauncher(campaign, args);
+        campaign.run();
+        if (launcher != null) launcher.stop();
+        if (!campaign.getProfileStatistics().isEmpty())
+            JMetalLogger.logger.info("Mean time of the evaluation phases (ms):\n" + campaign.getProfileStatistics().report());
+
+        for (Map.Entry<String, List<CompositeSolution>> result : campaign.getResult().entrySet()) {
+            new SolutionListOutput(result.getValue())
+                    .setVarFileOutputContext(new DefaultFileOutputContext("VAR." + result.getKey() + ".csv", ","))
+                    .setFunFileOutputContext(new DefaultFileOutputContext("FUN." + result.getKey() + ".csv", ","))
+                    .print();
+
+            JMetalLogger.logger.info("Solutions of " + result.getKey() + " saved at FUN." + result.getKey() + ".csv and VAR." + result.getKey() + ".csv");
+        }
+
+        System.exit(0);
+    }
+}
@@ -0,0 +1,129 @@
+import evaluation.EncodingValidation;
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
+import org.uma.jmetal.util.binarySet.BinarySet;
+import org.uma.jmetal.util.pseudorandom.JMetalRandom;
+import problem.LmomEnsembleProblem;
+import util.JMetalLogger;
+import util.TraceReader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Checks that --evaluator=java ranks solutions the way the Python evaluator (lmoments/src) does: the same genotypes are
+ * evaluated by both, through {@link LmomEnsembleProblem#evaluate}, and the balanced accuracies are compared. The
+ * genotypes are those of a run (FUN.csv and VAR.csv) or, without them, random solutions of the problem with each
+ * sample size of --n. The random splits of the two evaluators are drawn differently, so accuracies are not expected to
+ * be identical; what matters is the order of the solutions, reported as Kendall's tau, Spearman's rho and the number
+ * of pairs of solutions ordered the other way.
+ * <p>
+ * Usage: EvaluatorParity scenario.json [FUN.csv VAR.csv] [--n=10,50,200] [--configurations=20] [--seed=1]
+ */
+public class EvaluatorParity {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: EvaluatorParity <scenario_json> [<FUN.csv> <VAR.csv>] [--n=10,50,200] [--configurations=20] [--seed=1]");
+            System.exit(1);
+        }
+
+        String jsonFile = "lmoments/conf_default/" + args[0];
+        int[] sizes = Arrays.stream(NSGAIIMain.option(args, "n", "10,50,200").split(",")).mapToInt(Integer::parseInt).toArray();
+        int configurations = Integer.parseInt(NSGAIIMain.option(args, "configurations", "20"));
+        long seed = Long.parseLong(NSGAIIMain.option(args, "seed", "1"));
+        List<String> files = Arrays.stream(args).skip(1).filter(arg -> !arg.startsWith("--")).toList();
+
+        LmomEnsembleProblem python = NSGAIIMain.createProblem(jsonFile);
+        python.setEvaluator("python");
+        LmomEnsembleProblem java = NSGAIIMain.createProblem(jsonFile);
+        java.setEvaluator("java");
+
+        List<CompositeSolution> solutions = files.size() >= 2 ? traced(python, new File(files.get(0)), new File(files.get(1))) : random(python, sizes, configurations, seed);
+
+        double[] expected = new double[solutions.size()];
+        double[] actual = new double[solutions.size()];
+        int failed = 0;
+        System.out.printf(Locale.ROOT, "%4s %8s %8s  %s%n", "", "python", "java", "genotype");
+        for (int i = 0; i < solutions.size(); i++) {
+            CompositeSolution solution = solutions.get(i);
+            expected[i] = 0.0 - python.evaluate((CompositeSolution) solution.copy()).objectives()[2];
+            actual[i] = 0.0 - java.evaluate((CompositeSolution) solution.copy()).objectives()[2];
+            // Failed evaluations get an accuracy of 0 and are left out of the comparison
+            if (expected[i] == 0.0 || actual[i] == 0.0) failed++;
+            System.out.printf(Locale.ROOT, "%4d %8.4f %8.4f  %s%n", i, expected[i], actual[i], LmomEnsembleProblem.genotype(solution));
+        }
+
+        List<Integer> compared = new ArrayList<>();
+        for (int i = 0; i < solutions.size(); i++)
+            if (expected[i] != 0.0 && actual[i] != 0.0) compared.add(i);
+        double[] a = compared.stream().mapToDouble(i -> expected[i]).toArray();
+        double[] b = compared.stream().mapToDouble(i -> actual[i]).toArray();
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%d solutions, %d failed with some evaluator%n", solutions.size(), failed);
+        if (a.length > 1)
+            System.out.printf(Locale.ROOT, "%s, Spearman's rho %.4f%n", EncodingValidation.compare(a, b), spearman(a, b));
+        System.exit(0);
+    }
+
+    protected static List<CompositeSolution> traced(LmomEnsembleProblem problem, File fun, File var) throws Exception {
+        List<CompositeSolution> solutions = new ArrayList<>();
+        for (TraceReader.TracedSolution solution : TraceReader.read(fun, var))
+            if (solution.features.cardinality() > 0) solutions.add(solution.toSolution(problem));
+        return solutions;
+    }
+
+    /**
+     * @return Random solutions of the problem with at least one feature, count of each sample size
+     */
+    protected static List<CompositeSolution> random(LmomEnsembleProblem problem, int[] sizes, int count, long seed) {
+        JMetalRandom.getInstance().setSeed(seed);
+        List<CompositeSolution> solutions = new ArrayList<>();
+        for (int n : sizes) {
+            for (int i = 0; i < count; ) {
+                CompositeSolution solution = problem.createSolution();
+                if (((BinarySet) solution.variables().get(0).variables().get(0)).cardinality() == 0) continue;
+                ((List<Integer>) solution.variables().get(2).variables()).set(0, n);
+                solutions.add(solution);
+                i++;
+            }
+        }
+        JMetalLogger.logger.info(solutions.size() + " random solutions");
+        return solutions;
+    }
+
+    /**
+     * @return Spearman's rank correlation: Pearson's correlation of the ranks, tied values taking their mean rank
+     */
+    protected static double spearman(double[] expected, double[] actual) {
+        double[] x = ranks(expected);
+        double[] y = ranks(actual);
+        double mean = (x.length + 1) / 2.0;
+        double covariance = 0.0;
+        double varianceX = 0.0;
+        double varianceY = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            covariance += (x[i] - mean) * (y[i] - mean);
+            varianceX += (x[i] - mean) * (x[i] - mean);
+            varianceY += (y[i] - mean) * (y[i] - mean);
+        }
+        return varianceX > 0 && varianceY > 0 ? covariance / Math.sqrt(varianceX * varianceY) : 1.0;
+    }
+
+    protected static double[] ranks(double[] values) {
+        Integer[] order = new Integer[values.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (i, j) -> Double.compare(values[i], values[j]));
+
+        double[] ranks = new double[values.length];
+        for (int start = 0; start < order.length; ) {
+            int end = start;
+            while (end + 1 < order.length && values[order[end + 1]] == values[order[start]]) end++;
+            for (int k = start; k <= end; k++) ranks[order[k]] = (start + end) / 2.0 + 1;
+            start = end + 1;
+        }
+        return ranks;
+    }
+}
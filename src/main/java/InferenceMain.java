@@ -0,0 +1,69 @@
+import evaluation.BalancedAccuracy;
+import evaluation.EnsembleConfiguration;
+import evaluation.InferenceModel;
+import evaluation.JavaEnsembleEvaluator;
+import evaluation.LmomentDataset;
+import evaluation.Scenario;
+import util.JMetalLogger;
+import util.TraceReader;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Trains the classifier of one solution of a run (a row of FUN.csv / VAR.csv) on its scenario, saves it as a model
+ * file, and measures the throughput of the saved model classifying the windows of the scenario.
+ * <p>
+ * Usage: InferenceMain scenario.json FUN.csv VAR.csv solution model_file [--vectors=1000000]
+ */
+public class InferenceMain {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 5) {
+            System.err.println("Usage: InferenceMain <scenario_json> <FUN.csv> <VAR.csv> <solution> <model_file> [--vectors=1000000]");
+            System.exit(1);
+        }
+
+        String jsonFile = "lmoments/conf_default/" + args[0];
+        List<TraceReader.TracedSolution> solutions = TraceReader.read(new File(args[1]), new File(args[2]));
+        TraceReader.TracedSolution solution = solutions.get(Integer.parseInt(args[3]));
+        File modelFile = new File(args[4]);
+        long vectors = Long.parseLong(NSGAIIMain.option(args, "vectors", "1000000"));
+
+        EnsembleConfiguration configuration = new EnsembleConfiguration(solution.features, solution.ensemble, solution.integers);
+        JMetalLogger.logger.info("Training solution " + args[3] + " (" + solution.genotype() + ")");
+
+        long start = System.currentTimeMillis();
+        InferenceModel.train(jsonFile, configuration).save(modelFile);
+        JMetalLogger.logger.info("Model saved at " + modelFile + " (" + modelFile.length() / 1024 + " KiB, trained in " + (System.currentTimeMillis() - start) + " ms)");
+
+        InferenceModel model = InferenceModel.load(modelFile);
+
+        // Windows of the scenario, as the traffic-monitoring side would produce them
+        Scenario scenario = JavaEnsembleEvaluator.scenario(jsonFile);
+        LmomentDataset dataset = JavaEnsembleEvaluator.lmoments(scenario, configuration.n);
+        int[] rows = JavaEnsembleEvaluator.nonZeroRows(dataset.columns, configuration.columns, dataset.rows);
+        double[][] columns = InferenceModel.selectedColumns(dataset, configuration, rows);
+        double[][] windows = new double[rows.length][columns.length];
+        int[] labels = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            for (int d = 0; d < columns.length; d++) windows[i][d] = columns[d][i];
+            labels[i] = dataset.labels[rows[i]];
+        }
+
+        int[] predicted = new int[windows.length];
+        for (int i = 0; i < windows.length; i++) predicted[i] = model.classify(windows[i]);
+        System.out.printf("Balanced accuracy on the training windows: %.4f%n", BalancedAccuracy.score(labels, predicted, dataset.numberOfClasses));
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long checksum = 0;
+        start = System.nanoTime();
+        for (long i = 0; i < vectors; i++) checksum += model.classify(windows[(int) (i % windows.length)]);
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+        System.out.printf("%d windows classified in %.1f ms: %.0f windows/s, %.2f us/window, %.2f bytes allocated/window (checksum %d)%n",
+                vectors, elapsed / 1e6, vectors / (elapsed / 1e9), elapsed / 1e3 / vectors, (double) allocated / vectors, checksum);
+    }
+}
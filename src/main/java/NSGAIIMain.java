@@ -1,6 +1,10 @@
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import distributed.AsynchronousDistributedEvolutionaryAlgorithm;
+import distributed.MasterDistributed;
+import distributed.WorkerLauncher;
 import distributed.algorithms.AsynchronousDistributedNSGAII;
+import distributed.algorithms.AsynchronousDistributedSMSEMOA;
 import operator.BinaryTwoPointCrossover;
 import org.uma.jmetal.component.catalogue.common.termination.Termination;
 import org.uma.jmetal.component.catalogue.common.termination.impl.TerminationByEvaluations;
@@ -9,14 +13,15 @@ import org.uma.jmetal.operator.crossover.impl.IntegerSBXCrossover;
 import org.uma.jmetal.operator.mutation.impl.BitFlipMutation;
 import org.uma.jmetal.operator.mutation.impl.CompositeMutation;
 import org.uma.jmetal.operator.mutation.impl.IntegerPolynomialMutation;
-import org.uma.jmetal.problem.Problem;
 import org.uma.jmetal.solution.compositesolution.CompositeSolution;
 import org.uma.jmetal.util.ConstraintHandling;
 import org.uma.jmetal.util.fileoutput.SolutionListOutput;
 import org.uma.jmetal.util.fileoutput.impl.DefaultFileOutputContext;
 import problem.LmomEnsembleProblem;
+import util.EvaluationHistory;
 import util.JMetalLogger;
 import util.JSONCounter;
+import util.TerminationByHypervolumeStagnation;
 import util.WriteSolutionsToCSVObserver;
 
 import java.io.File;
@@ -33,7 +38,75 @@ public class NSGAIIMain {
         int populationSize = Integer.parseInt(args[1]);
         int maxEvaluations = Integer.parseInt(args[2]);
         String jsonFile = "lmoments/conf_default/" + args[3];
+        long affinityDelay = Long.parseLong(option(args, "affinity-delay", "10000"));
+        int localWorkers = Integer.parseInt(option(args, "local", "0"));
+        if (localWorkers > 0) port = -1;
 
+        LmomEnsembleProblem problem = createProblem(jsonFile);
+        problem.setEvaluator(option(args, "evaluator", "python"));
+
+        int numberOfConstraints = 0;
+
+        CompositeCrossover crossover = createCrossover();
+        CompositeMutation mutation = createMutation(problem);
+
+        Termination termination = createTermination(args, maxEvaluations);
+        WriteSolutionsToCSVObserver evaluationObserver = new WriteSolutionsToCSVObserver(100, "traces");
+
+        AsynchronousDistributedEvolutionaryAlgorithm<CompositeSolution> algorithm;
+        if ("smsemoa".equals(option(args, "algorithm", "nsgaii")))
+            algorithm = new AsynchronousDistributedSMSEMOA(port, problem, populationSize, crossover, mutation, termination, problem.objectiveBounds()[0], problem.objectiveBounds()[1]);
+        else
+            algorithm = new AsynchronousDistributedNSGAII<>(port, problem, populationSize, crossover, mutation, termination);
+        algorithm.setAffinityDelay(affinityDelay);
+        algorithm.setDecomposition(decomposition(args));
+        algorithm.setCoalescing(coalescing(args));
+        algorithm.setPreDispatch(preDispatch(args));
+        algorithm.setWorkerVariation(Integer.parseInt(option(args, "worker-variation", "0")));
+        algorithm.setHypervolumeBounds(problem.objectiveBounds()[0], problem.objectiveBounds()[1]);
+        algorithm.observable().register(evaluationObserver);
+        startArtifactServer(algorithm, option(args, "artifacts", null));
+        if (option(args, "history", null) != null) {
+            try {
+                algorithm.setEvaluationHistory(new EvaluationHistory(new File(option(args, "history", null)), problem));
+            } catch (IOException e) {
+                JMetalLogger.logger.severe("Unable to create the evaluation history: " + e.getMessage());
+            }
+        }
+        if (localWorkers > 0) algorithm.startLocalWorkers(localWorkers);
+        WorkerLauncher launcher = startWorkerLauncher(algorithm, args);
+        algorithm.run();
+        if (launcher != null) launcher.stop();
+        if (algorithm.getDuplicates() > 0)
+            JMetalLogger.logger.info(algorithm.getDuplicates() + " duplicate solutions not dispatched");
+        if (algorithm.getRepaired() > 0 || algorithm.getResolved() > 0)
+            JMetalLogger.logger.info(algorithm.getRepaired() + " solutions repaired and " + algorithm.getResolved() + " resolved without dispatching them");
+        if (!algorithm.getProfileStatistics().isEmpty())
+            JMetalLogger.logger.info("Mean time of the evaluation phases (ms):\n" + algorithm.getProfileStatistics().report());
+
+        List<CompositeSolution> population = algorithm.getResult();
+
+        JMetalLogger.logger.info("Solutions saved at FUN.csv and VAR.csv");
+
+        new SolutionListOutput(population)
+                .setVarFileOutputContext(new DefaultFileOutputContext("VAR.csv", ","))
+                .setFunFileOutputContext(new DefaultFileOutputContext("FUN.csv", ","))
+                .print();
+
+        if (numberOfConstraints > 0) {
+            new SolutionListOutput(population.stream().filter(ConstraintHandling::isFeasible).collect(Collectors.toList()))
+                    .setVarFileOutputContext(new DefaultFileOutputContext("VAR_feasible.csv", ","))
+                    .setFunFileOutputContext(new DefaultFileOutputContext("FUN_feasible.csv", ",")).print();
+        }
+
+        System.exit(0);
+    }
+
+    /**
+     * Builds the problem from the variables found in the scenario JSON file. The process exits if there are no
+     * features to select or no integer variables.
+     */
+    public static LmomEnsembleProblem createProblem(String jsonFile) {
         int numberOfBitsFeatures = 0;
         int numberOfIntegers = 0;
 
@@ -66,50 +139,103 @@ public class NSGAIIMain {
 
         JMetalLogger.logger.info("Problem variables: " + numberOfBitsFeatures + " bits (features), 7 bits (ensemble parameters), " + numberOfBitsEnsemble + " integers"); //, " + numberOfDoubles + " doubles");
 
-        int numberOfConstraints = 0;
+        return new LmomEnsembleProblem(numberOfBitsFeatures, numberOfBitsEnsemble, numberOfIntegers, 0, jsonFile);
+    }
 
+    public static CompositeCrossover createCrossover() {
         double binaryCrossoverProbabilityFeatures = 0.9;
         double binaryCrossoverProbabilityEnsemble = 0.9;
         double integerCrossoverProbability = 0.9;
 
-        double binaryMutationProbabilityFeatures = 1.0 / numberOfBitsFeatures;
-        double binaryMutationProbabilityEnsemble = 1.0 / numberOfBitsEnsemble;
-        double integerMutationProbability = 1.0 / numberOfIntegers;
-
-        Problem<CompositeSolution> problem = new LmomEnsembleProblem(numberOfBitsFeatures, numberOfBitsEnsemble, numberOfIntegers, 0, jsonFile);
-
-        CompositeCrossover crossover = new CompositeCrossover(Arrays.asList(
+        return new CompositeCrossover(Arrays.asList(
                 new BinaryTwoPointCrossover(binaryCrossoverProbabilityFeatures),
                 new BinaryTwoPointCrossover(binaryCrossoverProbabilityEnsemble),
                 new IntegerSBXCrossover(integerCrossoverProbability, 20.0)));
-        CompositeMutation mutation = new CompositeMutation(Arrays.asList(
+    }
+
+    public static CompositeMutation createMutation(LmomEnsembleProblem problem) {
+        double binaryMutationProbabilityFeatures = 1.0 / problem.numberOfBitsFeatures();
+        double binaryMutationProbabilityEnsemble = 1.0 / problem.numberOfBitsEnsemble();
+        double integerMutationProbability = 1.0 / problem.numberOfIntegers();
+
+        return new CompositeMutation(Arrays.asList(
                 new BitFlipMutation<>(binaryMutationProbabilityFeatures),
                 new BitFlipMutation<>(binaryMutationProbabilityEnsemble),
                 new IntegerPolynomialMutation(integerMutationProbability, 20.0)));
+    }
 
-        Termination termination = new TerminationByEvaluations(maxEvaluations);
-        WriteSolutionsToCSVObserver evaluationObserver = new WriteSolutionsToCSVObserver(100, "traces");
+    /**
+     * Stops after the maximum number of evaluations or, if --stagnation-window=<evaluations> or --time-budget=<s> are
+     * given, also when the hypervolume improves less than --stagnation-tolerance (default 1e-4) over the window or the
+     * computing time reaches the budget
+     */
+    public static Termination createTermination(String[] args, int maxEvaluations) {
+        int window = Integer.parseInt(option(args, "stagnation-window", "0"));
+        double tolerance = Double.parseDouble(option(args, "stagnation-tolerance", "1e-4"));
+        long budget = Long.parseLong(option(args, "time-budget", "0")) * 1000;
 
-        AsynchronousDistributedNSGAII<CompositeSolution> algorithm = new AsynchronousDistributedNSGAII<>(port, problem, populationSize, crossover, mutation, termination);
-        algorithm.observable().register(evaluationObserver);
-        algorithm.run();
+        if (window <= 0 && budget <= 0)
+            return new TerminationByEvaluations(maxEvaluations);
+        return new TerminationByHypervolumeStagnation(maxEvaluations, window, tolerance, budget);
+    }
 
-        List<CompositeSolution> population = algorithm.getResult();
+    /**
+     * Splits the Java evaluations into one task per base estimator and shuffle split with --decompose=auto (when there
+     * are more workers than solutions in the population or the run is near its end) or --decompose=always
+     */
+    public static AsynchronousDistributedEvolutionaryAlgorithm.Decomposition decomposition(String[] args) {
+        return AsynchronousDistributedEvolutionaryAlgorithm.Decomposition.valueOf(option(args, "decompose", "none").toUpperCase());
+    }
 
-        JMetalLogger.logger.info("Solutions saved at FUN.csv and VAR.csv");
+    /**
+     * Keeps duplicates of the solutions being evaluated from being dispatched with --coalesce=wait (they get the result
+     * of the evaluation in flight) or --coalesce=regenerate (new offspring are generated in place of duplicate ones)
+     */
+    public static AsynchronousDistributedEvolutionaryAlgorithm.Coalescing coalescing(String[] args) {
+        return AsynchronousDistributedEvolutionaryAlgorithm.Coalescing.valueOf(option(args, "coalesce", "none").toUpperCase());
+    }
 
-        new SolutionListOutput(population)
-                .setVarFileOutputContext(new DefaultFileOutputContext("VAR.csv", ","))
-                .setFunFileOutputContext(new DefaultFileOutputContext("FUN.csv", ","))
-                .print();
+    /**
+     * Checks the solutions before dispatching them with --repair=resolve (those whose objectives are known are not
+     * evaluated) or --repair=repair (also clearing the features whose ratios are known to be all zero)
+     */
+    public static AsynchronousDistributedEvolutionaryAlgorithm.PreDispatch preDispatch(String[] args) {
+        return AsynchronousDistributedEvolutionaryAlgorithm.PreDispatch.valueOf(option(args, "repair", "none").toUpperCase());
+    }
 
-        if (numberOfConstraints > 0) {
-            new SolutionListOutput(population.stream().filter(ConstraintHandling::isFeasible).collect(Collectors.toList()))
-                    .setVarFileOutputContext(new DefaultFileOutputContext("VAR_feasible.csv", ","))
-                    .setFunFileOutputContext(new DefaultFileOutputContext("FUN_feasible.csv", ",")).print();
+    /**
+     * Shares the dataset and the L-moment matrices with the workers (port + 1) when a store directory is given
+     */
+    public static void startArtifactServer(MasterDistributed<?, ?> master, String directory) {
+        if (directory == null) return;
+        try {
+            master.startArtifactServer(new File(directory));
+        } catch (IOException e) {
+            JMetalLogger.logger.severe("Unable to start the artifact store: " + e.getMessage());
         }
+    }
 
-        System.exit(0);
+    /**
+     * Starts and supervises Worker processes on this host with --launch=<max workers> (0 for one per core), each
+     * taking --worker-memory=<MB> (default 2048)
+     */
+    public static WorkerLauncher startWorkerLauncher(MasterDistributed<?, ?> master, String[] args) {
+        String launch = option(args, "launch", null);
+        if (launch == null || master.getPort() < 0) return null;
+
+        WorkerLauncher launcher = new WorkerLauncher(master, Integer.parseInt(launch), Long.parseLong(option(args, "worker-memory", "2048")));
+        launcher.start();
+        return launcher;
+    }
+
+    /**
+     * Returns the value of an optional argument given as --name=value, or the default value if it is missing
+     */
+    public static String option(String[] args, String name, String defaultValue) {
+        for (String arg : args)
+            if (arg.startsWith("--" + name + "="))
+                return arg.substring(name.length() + 3);
+        return defaultValue;
     }
 
     public static JSONCounter countVariables(JsonNode node) {
@@ -0,0 +1,106 @@
+import benchmark.LatencyDistribution;
+import benchmark.SyntheticLatencyProblem;
+import benchmark.TraceReplayProblem;
+import distributed.DispatchStatistics;
+import distributed.WorkerDistributed;
+import distributed.algorithms.AsynchronousDistributedNSGAII;
+import org.uma.jmetal.component.catalogue.common.termination.impl.TerminationByEvaluations;
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
+import problem.LmomEnsembleProblem;
+import util.JMetalLogger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Measures how far the master scales: for each number of workers, a real {@link AsynchronousDistributedNSGAII} is
+ * started on a free port and the same number of {@link WorkerDistributed} connect to it from this JVM. The workers
+ * evaluate a {@link SyntheticLatencyProblem} (or a {@link TraceReplayProblem} when traces are given), so the measured
+ * overhead is that of the master: dispatch, serialization, queues and the evolutionary steps.
+ * <p>
+ * Usage: ScalabilityBenchmark scenario.json [--workers=10,20,50] [--tasks-per-worker=20] [--latency=lognormal:100:0.5]
+ * [--traces=dir] [--population=100] [--log]
+ */
+public class ScalabilityBenchmark {
+    public static void main(String[] args) throws Exception {
+        String jsonFile = "lmoments/conf_default/" + args[0];
+        int[] workerCounts = Arrays.stream(NSGAIIMain.option(args, "workers", "10,20,50,100,200,500,1000").split(",")).mapToInt(Integer::parseInt).toArray();
+        int tasksPerWorker = Integer.parseInt(NSGAIIMain.option(args, "tasks-per-worker", "20"));
+        LatencyDistribution latency = LatencyDistribution.parse(NSGAIIMain.option(args, "latency", "lognormal:100:0.5"));
+        String traces = NSGAIIMain.option(args, "traces", null);
+        int populationSize = Integer.parseInt(NSGAIIMain.option(args, "population", "100"));
+        if (!Arrays.asList(args).contains("--log")) JMetalLogger.logger.setLevel(Level.WARNING);
+
+        LmomEnsembleProblem base = NSGAIIMain.createProblem(jsonFile);
+        LmomEnsembleProblem problem = traces == null ? new SyntheticLatencyProblem(base, latency) : new TraceReplayProblem(base, latency, traces);
+
+        System.out.println(problem.name());
+        System.out.printf("%8s %8s %8s %9s %9s %6s %10s %10s %8s %13s %13s%n", "workers", "evals", "seconds", "evals/s", "ideal", "eff", "dispatch", "max", "cpu", "pending", "completed");
+
+        for (int workers : workerCounts)
+            run(problem, populationSize, workers, workers * tasksPerWorker, latency);
+
+        System.exit(0);
+    }
+
+    protected static void run(LmomEnsembleProblem problem, int populationSize, int workers, int evaluations, LatencyDistribution latency) throws InterruptedException {
+        AsynchronousDistributedNSGAII<CompositeSolution> algorithm = new AsynchronousDistributedNSGAII<>(0, problem, populationSize, NSGAIIMain.createCrossover(), NSGAIIMain.createMutation(problem), new TerminationByEvaluations(evaluations));
+        algorithm.setAffinityDelay(0);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            Thread t = new Thread(() -> new WorkerDistributed<>("127.0.0.1", algorithm.getPort()).run(), "worker-" + i);
+            t.setDaemon(true);
+            threads.add(t);
+            t.start();
+        }
+        while (algorithm.getNumWorkers() < workers) Thread.sleep(10);
+
+        // Queue depths sampled every 10 ms: sum and maximum of pending (position 0) and completed (position 1) tasks
+        long[] samples = new long[5];
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            int pending = algorithm.getPendingTaskQueue().size();
+            int completed = algorithm.getCompletedTaskQueue().size();
+            synchronized (samples) {
+                samples[0] += pending;
+                samples[1] += completed;
+                samples[2] = Math.max(samples[2], pending);
+                samples[3] = Math.max(samples[3], completed);
+                samples[4]++;
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long cpuBefore = mx.getCurrentThreadCpuTime();
+        long start = System.nanoTime();
+        algorithm.run();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // The master works in this thread (evolutionary steps) and in one talker thread per worker (dispatch)
+        long cpu = mx.getCurrentThreadCpuTime() - cpuBefore;
+        for (Thread t : algorithm.getWorkerThreads()) {
+            long time = mx.getThreadCpuTime(t.getId());
+            if (time > 0) cpu += time;
+        }
+
+        sampler.shutdownNow();
+        algorithm.shutdown();
+        for (Thread t : threads) t.join(10000);
+
+        DispatchStatistics dispatch = algorithm.getDispatchStatistics();
+        double ideal = workers * 1000.0 / Math.max(latency.mean(), 1e-3);
+        long count = Math.max(samples[4], 1);
+        System.out.printf("%8d %8d %8.2f %9.1f %9.1f %5.0f%% %8.0fus %8.0fus %7.2fs %6.1f/%-6d %6.1f/%-6d%n",
+                workers, evaluations, seconds, evaluations / seconds, ideal, 100.0 * evaluations / seconds / ideal,
+                dispatch.meanMicros(), dispatch.maximumMicros(), cpu / 1e9,
+                (double) samples[0] / count, samples[2], (double) samples[1] / count, samples[3]);
+    }
+}
@@ -0,0 +1,58 @@
+package benchmark;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Distribution of simulated evaluation times, given as constant:<ms>, exponential:<mean ms> or
+ * lognormal:<mean ms>:<sigma>
+ */
+public class LatencyDistribution implements Serializable {
+    protected final String kind;
+    protected final double mean;
+    protected final double sigma;
+
+    public LatencyDistribution(String kind, double mean, double sigma) {
+        this.kind = kind;
+        this.mean = mean;
+        this.sigma = sigma;
+    }
+
+    public static LatencyDistribution parse(String text) {
+        String[] parts = text.split(":");
+        double mean = Double.parseDouble(parts[1]);
+        switch (parts[0]) {
+            case "constant":
+            case "exponential":
+                return new LatencyDistribution(parts[0], mean, 0.0);
+            case "lognormal":
+                return new LatencyDistribution(parts[0], mean, parts.length > 2 ? Double.parseDouble(parts[2]) : 0.5);
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + text);
+        }
+    }
+
+    /**
+     * @return Sampled latency in ms
+     */
+    public long sample(Random random) {
+        switch (kind) {
+            case "exponential":
+                return Math.round(-mean * Math.log(1.0 - random.nextDouble()));
+            case "lognormal":
+                // mean of exp(N(mu, sigma^2)) = exp(mu + sigma^2 / 2)
+                return Math.round(Math.exp(Math.log(mean) - sigma * sigma / 2.0 + sigma * random.nextGaussian()));
+            default:
+                return Math.round(mean);
+        }
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    @Override
+    public String toString() {
+        return kind + ":" + mean + (kind.equals("lognormal") ? ":" + sigma : "");
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
+import org.uma.jmetal.util.binarySet.BinarySet;
+import problem.LmomEnsembleProblem;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stand-in for {@link LmomEnsembleProblem} that sleeps for a latency drawn from a distribution instead of training the
+ * ensemble. The accuracy is a deterministic function of the genotype that improves with the number of selected
+ * features and degrades with n, so the master works on a realistic, evolving front.
+ */
+public class SyntheticLatencyProblem extends LmomEnsembleProblem {
+    protected final LatencyDistribution latency;
+
+    public SyntheticLatencyProblem(LmomEnsembleProblem problem, LatencyDistribution latency) {
+        super(problem.numberOfBitsFeatures(), problem.numberOfBitsEnsemble(), problem.numberOfIntegers(), 0, problem.jsonFile());
+        this.latency = latency;
+    }
+
+    @Override
+    public CompositeSolution evaluate(CompositeSolution compositeSolution) {
+        try {
+            Thread.sleep(latency.sample(ThreadLocalRandom.current()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        double[] objectives = objectives(compositeSolution);
+        System.arraycopy(objectives, 0, compositeSolution.objectives(), 0, objectives.length);
+        return compositeSolution;
+    }
+
+    protected double[] objectives(CompositeSolution compositeSolution) {
+        BinarySet features = (BinarySet) compositeSolution.variables().get(0).variables().get(0);
+        int n = sampleSize(compositeSolution);
+        if (features.cardinality() == 0) return new double[]{integerBounds.get(0).getUpperBound(), numberOfBitsFeatures, 0.0};
+
+        double noise = new Random(genotype(compositeSolution).hashCode()).nextDouble();
+        double accuracy = 1.0 - 0.4 * Math.exp(-features.cardinality() / 4.0) - 0.1 * n / 200.0 - 0.05 * noise;
+        return new double[]{n, features.cardinality(), -Math.max(0.0, accuracy)};
+    }
+
+    /**
+     * Simulated workers have nothing cached
+     */
+    @Override
+    public Set<String> cachedKeys() {
+        return new HashSet<>();
+    }
+
+    @Override
+    public String name() {
+        return "SyntheticLatencyProblem(" + latency + ")";
+    }
+}
@@ -0,0 +1,88 @@
+package benchmark;
+
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
+import org.uma.jmetal.util.binarySet.BinarySet;
+import problem.LmomEnsembleProblem;
+import util.TraceReader;
+import util.TraceReader.TracedSolution;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for {@link LmomEnsembleProblem} that answers from the FUN/VAR traces of a published run: genotypes found in
+ * the traces get their recorded objectives, and the rest get the accuracy of the traced solution whose feature bits are
+ * closest (Hamming distance). Evaluations still sleep for a sampled latency, since the traces hold no timings. The
+ * traces are loaded once per JVM and are not serialized with the problem.
+ */
+public class TraceReplayProblem extends SyntheticLatencyProblem {
+    protected static final Map<String, Traces> loaded = new ConcurrentHashMap<>();
+
+    protected final String tracesDirectory;
+
+    public TraceReplayProblem(LmomEnsembleProblem problem, LatencyDistribution latency, String tracesDirectory) {
+        super(problem, latency);
+        this.tracesDirectory = tracesDirectory;
+        traces();
+    }
+
+    protected Traces traces() {
+        return loaded.computeIfAbsent(tracesDirectory, directory -> {
+            try {
+                return new Traces(TraceReader.readTraces(new File(directory)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    protected double[] objectives(CompositeSolution compositeSolution) {
+        Traces traces = traces();
+        double[] objectives = traces.byGenotype.get(genotype(compositeSolution));
+        if (objectives != null) return objectives.clone();
+
+        BinarySet features = (BinarySet) compositeSolution.variables().get(0).variables().get(0);
+        if (features.cardinality() == 0) return super.objectives(compositeSolution);
+
+        long[] words = features.toLongArray();
+        int nearest = 0;
+        int best = Integer.MAX_VALUE;
+        for (int i = 0; i < traces.words.length; i++) {
+            long[] other = traces.words[i];
+            int distance = 0;
+            for (int w = 0; w < Math.max(words.length, other.length); w++)
+                distance += Long.bitCount((w < words.length ? words[w] : 0L) ^ (w < other.length ? other[w] : 0L));
+            if (distance < best) {
+                best = distance;
+                nearest = i;
+            }
+        }
+
+        return new double[]{sampleSize(compositeSolution), features.cardinality(), traces.solutions.get(nearest).objectives[2]};
+    }
+
+    @Override
+    public String name() {
+        return "TraceReplayProblem(" + tracesDirectory + ", " + latency + ")";
+    }
+
+    protected static class Traces {
+        protected final List<TracedSolution> solutions;
+        protected final Map<String, double[]> byGenotype = new HashMap<>();
+        protected final long[][] words;
+
+        protected Traces(List<TracedSolution> solutions) {
+            this.solutions = solutions;
+            this.words = new long[solutions.size()][];
+            for (int i = 0; i < words.length; i++) words[i] = solutions.get(i).features.toLongArray();
+            for (TracedSolution solution : solutions)
+                byGenotype.putIfAbsent(solution.genotype(), solution.objectives);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package distributed;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Problems whose evaluations read or create files that can be shared between hosts (e.g., the dataset and the L-moment
+ * matrices). Artifacts are named in a host-independent way, and each host maps the names to its own files with
+ * {@link #artifactFile(String)}. Workers fetch the missing inputs from the {@link ArtifactServer} of the master before
+ * evaluating and upload the outputs they create, so each artifact is built once per cluster.
+ *
+ * @param <S> Solution type
+ */
+public interface ArtifactAwareProblem<S> {
+    /**
+     * @return Names of the artifacts read by the evaluation of the solution
+     */
+    List<String> inputArtifacts(S solution);
+
+    /**
+     * @return Names of the artifacts the evaluation of the solution may create
+     */
+    List<String> outputArtifacts(S solution);
+
+    /**
+     * @return Local file of the artifact in this host, or null if the name is not an artifact of this problem
+     */
+    File artifactFile(String name);
+
+    /**
+     * Keeps the evaluations of this host from writing the local file of the artifact until the returned lock is closed,
+     * so that it is not hashed or uploaded half-written (by default, no lock)
+     */
+    default Closeable lockArtifact(String name) throws IOException {
+        return () -> {
+        };
+    }
+}
@@ -0,0 +1,171 @@
+package distributed;
+
+import util.JMetalLogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Worker side of the {@link ArtifactServer} of the master. Before an evaluation, the inputs missing in this host are
+ * downloaded (checking their hash) and moved into place atomically; after it, the outputs created here are uploaded,
+ * holding the lock of the problem on them ({@link ArtifactAwareProblem#lockArtifact(String)}).
+ * If the master runs no artifact server, the client disables itself after the first failed connection.
+ */
+public class ArtifactClient {
+    protected final String host;
+    protected final int port;
+    protected final Map<String, String> known = new ConcurrentHashMap<>();
+    protected volatile boolean enabled = true;
+
+    public ArtifactClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public <S> void fetchInputs(ArtifactAwareProblem<S> problem, S solution) {
+        for (String name : problem.inputArtifacts(solution)) {
+            File file = problem.artifactFile(name);
+            if (!enabled || file == null || file.exists()) continue;
+
+            try {
+                fetch(name, file);
+            } catch (ConnectException e) {
+                disable(e);
+            } catch (IOException e) {
+                JMetalLogger.logger.info("Unable to fetch artifact " + name + ": " + e);
+            }
+        }
+    }
+
+    public <S> void publishOutputs(ArtifactAwareProblem<S> problem, S solution) {
+        for (String name : problem.outputArtifacts(solution)) {
+            File file = problem.artifactFile(name);
+            if (!enabled || file == null || !file.isFile() || known.containsKey(name)) continue;
+
+            try {
+                Closeable lock = problem.lockArtifact(name);
+                try {
+                    publish(name, file);
+                } finally {
+                    lock.close();
+                }
+            } catch (ConnectException e) {
+                disable(e);
+            } catch (IOException e) {
+                JMetalLogger.logger.info("Unable to upload artifact " + name + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * @return False if no host has the artifact yet
+     */
+    public boolean fetch(String name, File file) throws IOException {
+        HttpURLConnection connection = open("/names/" + name, "GET");
+        if (connection.getResponseCode() == 404) {
+            release(connection);
+            return false;
+        }
+        String hash = new String(read(connection), StandardCharsets.US_ASCII).trim();
+
+        connection = open("/objects/" + hash, "GET");
+        if (connection.getResponseCode() != 200)
+            throw new IOException("object " + hash + " answered " + release(connection));
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(parent.toPath());
+        File temporary = File.createTempFile(file.getName(), ".part", parent);
+        try {
+            try (InputStream in = connection.getInputStream(); OutputStream out = new FileOutputStream(temporary)) {
+                in.transferTo(out);
+            }
+            if (!hash.equals(ArtifactStore.hash(temporary)))
+                throw new IOException("contents of " + name + " do not match " + hash);
+
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+
+        known.put(name, hash);
+        JMetalLogger.logger.info("Artifact " + name + " fetched (" + file.length() + " bytes)");
+        return true;
+    }
+
+    public void publish(String name, File file) throws IOException {
+        String hash = ArtifactStore.hash(file);
+
+        HttpURLConnection connection = open("/objects/" + hash, "PUT");
+        connection.setDoOutput(true);
+        connection.setFixedLengthStreamingMode(file.length());
+        try (OutputStream out = connection.getOutputStream()) {
+            Files.copy(file.toPath(), out);
+        }
+        if (release(connection) != 204)
+            throw new IOException("object " + hash + " answered " + connection.getResponseCode());
+
+        connection = open("/names/" + name, "PUT");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(hash.getBytes(StandardCharsets.US_ASCII));
+        }
+        if (release(connection) != 204)
+            throw new IOException("name " + name + " answered " + connection.getResponseCode());
+
+        known.put(name, hash);
+        JMetalLogger.logger.info("Artifact " + name + " uploaded (" + file.length() + " bytes)");
+    }
+
+    protected HttpURLConnection open(String path, String method) throws IOException {
+        try {
+            URL url = new URI("http", null, host, port, path, null, null).toURL();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(10000);
+            return connection;
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+    }
+
+    protected static byte[] read(HttpURLConnection connection) throws IOException {
+        try (InputStream in = connection.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Reads what is left of the response, so that the connection can be reused
+     *
+     * @return Status code of the response
+     */
+    protected static int release(HttpURLConnection connection) throws IOException {
+        int code = connection.getResponseCode();
+        InputStream in = code < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            try (in) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+        return code;
+    }
+
+    protected void disable(IOException e) {
+        enabled = false;
+        JMetalLogger.logger.info("No artifact store at " + host + ":" + port + ", artifacts disabled (" + e.getMessage() + ")");
+    }
+}
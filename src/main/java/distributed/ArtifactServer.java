@@ -0,0 +1,107 @@
+package distributed;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import util.JMetalLogger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP front end of an {@link ArtifactStore}, run by the master next to the worker socket (port + 1):
+ * <ul>
+ * <li>GET /objects/&lt;sha256&gt;: contents of an object</li>
+ * <li>PUT /objects/&lt;sha256&gt;: uploads an object (rejected with 400 if the contents do not match the hash)</li>
+ * <li>GET /names/&lt;name&gt;: hash of an artifact (404 if no host has it yet)</li>
+ * <li>PUT /names/&lt;name&gt;: names an uploaded object, given its hash as the request body</li>
+ * </ul>
+ */
+public class ArtifactServer {
+    protected final HttpServer server;
+    protected final ExecutorService executor;
+    protected final ArtifactStore store;
+
+    public ArtifactServer(int port, ArtifactStore store) throws IOException {
+        this.store = store;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = Executors.newFixedThreadPool(8);
+
+        server.createContext("/objects/", this::object);
+        server.createContext("/names/", this::name);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        JMetalLogger.logger.info("Artifact store listening on port " + server.getAddress().getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    protected void object(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String hash = exchange.getRequestURI().getPath().substring("/objects/".length());
+
+            if ("GET".equals(exchange.getRequestMethod())) {
+                File file = store.get(hash);
+                if (file == null) {
+                    send(exchange, 404, "unknown object");
+                    return;
+                }
+                exchange.sendResponseHeaders(200, file.length());
+                try (InputStream in = new FileInputStream(file); OutputStream out = exchange.getResponseBody()) {
+                    in.transferTo(out);
+                }
+            } else if ("PUT".equals(exchange.getRequestMethod())) {
+                if (store.put(hash, exchange.getRequestBody())) exchange.sendResponseHeaders(204, -1);
+                else send(exchange, 400, "contents do not match the hash");
+            } else {
+                send(exchange, 405, "method not allowed");
+            }
+        } catch (IOException e) {
+            JMetalLogger.logger.info("ERROR in artifact store:\n\t" + e);
+        }
+    }
+
+    protected void name(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String name = exchange.getRequestURI().getPath().substring("/names/".length());
+
+            if ("GET".equals(exchange.getRequestMethod())) {
+                String hash = store.resolve(name);
+                if (hash == null) send(exchange, 404, "unknown artifact");
+                else send(exchange, 200, hash);
+            } else if ("PUT".equals(exchange.getRequestMethod())) {
+                String hash = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.US_ASCII).trim();
+                boolean bound = store.bind(name, hash);
+                if (bound) JMetalLogger.logger.info("Artifact " + name + " uploaded (" + hash + ")");
+                if (bound) exchange.sendResponseHeaders(204, -1);
+                else send(exchange, 404, "unknown object");
+            } else {
+                send(exchange, 405, "method not allowed");
+            }
+        } catch (IOException e) {
+            JMetalLogger.logger.info("ERROR in artifact store:\n\t" + e);
+        }
+    }
+
+    /**
+     * Sends a response with a text body. Error responses carry a body as well: the JDK server closes the connection
+     * after a bodiless error response, and a client reusing it would fail on the next request.
+     */
+    protected static void send(HttpExchange exchange, int code, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.US_ASCII);
+        exchange.sendResponseHeaders(code, body.length);
+        exchange.getResponseBody().write(body);
+    }
+}
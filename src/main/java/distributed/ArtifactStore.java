@@ -0,0 +1,159 @@
+package distributed;
+
+import util.JMetalLogger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store of artifacts: objects are identified by the SHA-256 of their contents, and an index maps
+ * artifact names to hashes. Uploaded objects are kept in the store directory (one file per hash) and the index is
+ * saved there as index.properties, so both survive restarts. Names not in the index are resolved with the given
+ * problem to files of this host (e.g., the dataset of the master), which are hashed on first use (holding the lock of
+ * the problem on them) and served in place.
+ */
+public class ArtifactStore {
+    public static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    protected final File directory;
+    protected final ArtifactAwareProblem<?> localFiles;
+    protected final Map<String, String> index = new ConcurrentHashMap<>();
+    protected final Map<String, File> objects = new ConcurrentHashMap<>();
+
+    /**
+     * @param localFiles Problem mapping the artifacts to files of this host, or null if it has none
+     */
+    public ArtifactStore(File directory, ArtifactAwareProblem<?> localFiles) throws IOException {
+        this.directory = directory;
+        this.localFiles = localFiles;
+        Files.createDirectories(directory.toPath());
+
+        File indexFile = new File(directory, "index.properties");
+        if (indexFile.exists()) {
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(indexFile)) {
+                properties.load(in);
+            }
+            for (String name : properties.stringPropertyNames())
+                if (new File(directory, properties.getProperty(name)).exists())
+                    index.put(name, properties.getProperty(name));
+        }
+    }
+
+    /**
+     * @return Hash of the artifact, or null if it is unknown
+     */
+    public String resolve(String name) throws IOException {
+        String hash = index.get(name);
+        if (hash != null) return hash;
+
+        File file = localFiles != null ? localFiles.artifactFile(name) : null;
+        if (file == null) return null;
+
+        Closeable lock = localFiles.lockArtifact(name);
+        try {
+            if (!file.isFile()) return null;
+            hash = hash(file);
+        } finally {
+            lock.close();
+        }
+        objects.put(hash, file);
+        index.put(name, hash);
+        JMetalLogger.logger.info("Artifact " + name + " shared from " + file + " (" + hash + ")");
+        return hash;
+    }
+
+    /**
+     * @return File holding the object, or null if it is not in the store
+     */
+    public File get(String hash) {
+        File file = objects.get(hash);
+        if (file != null) return file;
+
+        file = new File(directory, hash);
+        return HASH.matcher(hash).matches() && file.isFile() ? file : null;
+    }
+
+    /**
+     * Stores an object, checking that its contents match the hash
+     *
+     * @return False if the contents do not match the hash
+     */
+    public boolean put(String hash, InputStream contents) throws IOException {
+        if (!HASH.matcher(hash).matches()) return false;
+        if (get(hash) != null) {
+            contents.transferTo(OutputStream.nullOutputStream());
+            return true;
+        }
+
+        File temporary = File.createTempFile(hash, ".part", directory);
+        try {
+            DigestInputStream in = new DigestInputStream(contents, digest());
+            try (OutputStream out = new FileOutputStream(temporary)) {
+                in.transferTo(out);
+            }
+            if (!hash.equals(hex(in.getMessageDigest().digest()))) return false;
+
+            Files.move(temporary.toPath(), new File(directory, hash).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    /**
+     * Names an object of the store
+     *
+     * @return False if the object is not in the store
+     */
+    public synchronized boolean bind(String name, String hash) throws IOException {
+        if (get(hash) == null) return false;
+
+        index.put(name, hash);
+        Properties properties = new Properties();
+        index.forEach((key, value) -> {
+            if (!objects.containsKey(value)) properties.setProperty(key, value);
+        });
+        File temporary = new File(directory, "index.properties.part");
+        try (OutputStream out = new FileOutputStream(temporary)) {
+            properties.store(out, "Artifact name -> SHA-256");
+        }
+        Files.move(temporary.toPath(), new File(directory, "index.properties").toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    public static String hash(File file) throws IOException {
+        try (DigestInputStream in = new DigestInputStream(new FileInputStream(file), digest())) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return hex(in.getMessageDigest().digest());
+        }
+    }
+
+    protected static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return builder.toString();
+    }
+}
@@ -1,6 +1,7 @@
 package distributed;
 
 import org.uma.jmetal.component.catalogue.common.termination.Termination;
+import org.uma.jmetal.component.catalogue.common.termination.impl.TerminationByEvaluations;
 import org.uma.jmetal.operator.crossover.CrossoverOperator;
 import org.uma.jmetal.operator.mutation.MutationOperator;
 import org.uma.jmetal.operator.selection.SelectionOperator;
@@ -8,6 +9,7 @@ import org.uma.jmetal.operator.selection.impl.RankingAndCrowdingSelection;
 import org.uma.jmetal.parallel.asynchronous.task.ParallelTask;
 import org.uma.jmetal.problem.Problem;
 import org.uma.jmetal.solution.Solution;
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
 import org.uma.jmetal.util.SolutionListUtils;
 import org.uma.jmetal.util.archive.Archive;
 import org.uma.jmetal.util.archive.impl.BestSolutionsArchive;
@@ -17,17 +19,49 @@ import org.uma.jmetal.util.observable.Observable;
 import org.uma.jmetal.util.observable.ObservableEntity;
 import org.uma.jmetal.util.observable.impl.DefaultObservable;
 import org.uma.jmetal.util.pseudorandom.JMetalRandom;
-import util.JMetalLogger;
+import util.EvaluationHistory;
+import util.IncrementalHypervolume;
+import util.TerminationByHypervolumeStagnation;
 
-import java.io.IOException;
-import java.net.Socket;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.IntStream;
 
 public class AsynchronousDistributedEvolutionaryAlgorithm<S extends Solution<?>> extends MasterDistributed<ParallelTask<S>, List<S>> implements ObservableEntity<Map<String, Object>> {
+    /**
+     * When evaluations of a {@link DecomposableProblem} are split into parts for different workers: never, when there
+     * are more workers than solutions in the population or the run is near its end, or always
+     */
+    public enum Decomposition {NONE, AUTO, ALWAYS}
+
+    /**
+     * What happens to a solution of a {@link DuplicateAwareProblem} that duplicates one being evaluated: it is
+     * dispatched anyway, it waits for the result of the other one, or (if it is a new offspring) it is discarded and
+     * another offspring is generated in its place. A solution that waited counts as an evaluation towards the budget,
+     * so the number of solutions inserted in the population does not depend on the mode, but it is not added to the
+     * evaluation history, which already has the evaluation it waited for
+     */
+    public enum Coalescing {NONE, WAIT, REGENERATE}
+
+    /**
+     * What the master does with the tasks of a {@link RepairableProblem} before dispatching them: nothing, resolve
+     * those whose objectives are known (by the problem, or by an evaluation of the same variables in the
+     * {@link EvaluationHistory}) without a worker, or also repair their variables first
+     */
+    public enum PreDispatch {NONE, RESOLVE, REPAIR}
+
+    /**
+     * New offspring generated in a row before giving up regenerating and waiting for the duplicate
+     */
+    protected static final int MAX_REGENERATIONS = 10;
+
     protected final Problem<S> problem;
     protected CrossoverOperator<S> crossover;
     protected final MutationOperator<S> mutation;
@@ -46,6 +80,24 @@ public class AsynchronousDistributedEvolutionaryAlgorithm<S extends Solution<?>>
     protected List<ParallelTask<S>> initialTaskListFromFUN;
     boolean firstPopFromFUN;
     protected Archive<S> archive;
+    protected IncrementalHypervolume hypervolume;
+    protected EvaluationHistory history;
+    protected Decomposition decomposition = Decomposition.NONE;
+    protected final Map<Long, Part> parts = new ConcurrentHashMap<>();
+    protected Coalescing coalescing = Coalescing.NONE;
+    // Duplicate key of each task in flight and tasks waiting for its result
+    protected final Map<Long, String> inFlightKeys = new ConcurrentHashMap<>();
+    protected final Map<String, List<ParallelTask<S>>> inFlight = new HashMap<>();
+    protected final Queue<ParallelTask<S>> coalescedTasks = new ArrayDeque<>();
+    protected int duplicates = 0;
+    protected PreDispatch preDispatch = PreDispatch.NONE;
+    protected int repaired = 0;
+    // Resolved tasks whose objectives were taken from the history, and duplicates that waited for an evaluation, whose
+    // evaluations the history already records
+    protected final Set<Long> reused = ConcurrentHashMap.newKeySet();
+    protected int resolved = 0;
+    protected int snapshotPeriod = 0;
+    protected volatile PopulationSnapshot<S> snapshot;
 
 
     public AsynchronousDistributedEvolutionaryAlgorithm(int port, Problem<S> problem, int populationSize, CrossoverOperator<S> crossover, MutationOperator<S> mutation, SelectionOperator<List<S>, S> selection, DominanceComparator<S> dominanceComparator, Termination termination) {
@@ -60,6 +112,7 @@ public class AsynchronousDistributedEvolutionaryAlgorithm<S extends Solution<?>>
         this.population = new ArrayList<>();
 
         attributes = new HashMap<>();
+        attributes.put("EVALUATIONS", evaluations);
         observable = new DefaultObservable<>("Observable");
 
         idCounter = 0;
@@ -67,27 +120,36 @@ public class AsynchronousDistributedEvolutionaryAlgorithm<S extends Solution<?>>
         archive = new BestSolutionsArchive<>(new NonDominatedSolutionListArchive<>(), Integer.MAX_VALUE);
     }
 
-    protected void waitForWorkers() {
-        new Thread(() -> {
-            JMetalLogger.logger.info("Waiting for workers");
-            while (true) {
-                try {
-                    acceptConnection();
-                } catch (IOException e) {
-                    JMetalLogger.logger.info("ERROR in server socket:\n\t" + e);
-                }
-            }
-        }).start();
+    @Override
+    protected String affinityKey(ParallelTask<S> task) {
+        if (problem instanceof CacheAwareProblem)
+            return ((CacheAwareProblem<S>) problem).cacheKey(task.getContents());
+        return null;
     }
 
-    public void acceptConnection() throws IOException {
-        Socket socket = serverSocket.accept();
-        Thread t = new Thread(new WorkerTalker(socket));
-        workerThreads.add(t);
-        t.start();
+    @Override
+    protected double[] costFeatures(ParallelTask<S> task) {
+        if (problem instanceof CostAwareProblem)
+            return ((CostAwareProblem<S>) problem).costFeatures(task.getContents());
+        return null;
     }
 
-    public int createTaskIdentifier() {
+    /**
+     * The run is near its end when the remaining evaluations could be covered by two tasks per worker
+     */
+    @Override
+    protected boolean nearEnd() {
+        int maximumNumberOfEvaluations;
+        if (termination instanceof TerminationByEvaluations)
+            maximumNumberOfEvaluations = ((TerminationByEvaluations) termination).getMaximumNumberOfEvaluations();
+        else if (termination instanceof TerminationByHypervolumeStagnation)
+            maximumNumberOfEvaluations = ((TerminationByHypervolumeStagnation) termination).getMaximumNumberOfEvaluations();
+        else return false;
+
+        return maximumNumberOfEvaluations - evaluations <= 2 * Math.max(numWorkers.get(), 1);
+    }
+
+    public synchronized int createTaskIdentifier() {
         int id = idCounter;
         idCounter++;
         return id;
@@ -114,6 +176,117 @@ public class AsynchronousDistributedEvolutionaryAlgorithm<S extends Solution<?>>
         observable.notifyObservers(attributes);
     }
 
+    /**
+     * Tracks the hypervolume of all the solutions evaluated, normalized by the given objective bounds, and publishes it
+     * as the HYPERVOLUME attribute (three objectives only)
+     */
+    public void setHypervolumeBounds(double[] lower, double[] upper) {
+        this.hypervolume = new IncrementalHypervolume(lower, upper);
+        attributes.put("HYPERVOLUME", hypervolume.value());
+    }
+
+    /**
+     * Records every evaluation of the run in the given history
+     */
+    public void setEvaluationHistory(EvaluationHistory history) {
+        this.history = history;
+    }
+
+    public EvaluationHistory getEvaluationHistory() {
+        return history;
+    }
+
+    public void setDecomposition(Decomposition decomposition) {
+        this.decomposition = decomposition;
+    }
+
+    public void setCoalescing(Coalescing coalescing) {
+        this.coalescing = coalescing;
+    }
+
+    /**
+     * Checks the tasks created or queued by the master (not the offspring of the workers, see
+     * {@link #setWorkerVariation(int)}) before they are dispatched
+     */
+    public void setPreDispatch(PreDispatch preDispatch) {
+        this.preDispatch = preDispatch;
+    }
+
+    /**
+     * @return Number of solutions whose variables were repaired before being dispatched
+     */
+    public synchronized int getRepaired() {
+        return repaired;
+    }
+
+    /**
+     * @return Number of solutions whose objectives were known, so they were not dispatched
+     */
+    public synchronized int getResolved() {
+        return resolved;
+    }
+
+    /**
+     * @return Number of solutions not dispatched because they duplicated one being evaluated
+     */
+    public synchronized int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Lets the remote workers generate their own offspring from a snapshot of the population, taken again every the
+     * given number of evaluations (0 to create all the tasks on the master). The master then only replaces and
+     * archives; decomposition and coalescing only apply to the tasks it still sends (initial and failed ones).
+     */
+    public void setWorkerVariation(int snapshotPeriod) {
+        this.snapshotPeriod = snapshotPeriod;
+    }
+
+    @Override
+    protected PopulationSnapshot<S> variationSnapshot() {
+        if (snapshotPeriod <= 0) return null;
+        if (snapshot == null) snapshot = createSnapshot();
+        return snapshot;
+    }
+
+    protected PopulationSnapshot<S> createSnapshot() {
+        List<S> copies;
+        synchronized (population) {
+            List<S> sorted = new ArrayList<>(population);
+            Comparator<S> order = snapshotOrder();
+            if (order != null) sorted.sort(order);
+
+            copies = new ArrayList<>(sorted.size());
+            for (S solution : sorted) {
+                S copy = (S) solution.copy();
+                copy.attributes().clear();
+                copies.add(copy);
+            }
+        }
+        return new PopulationSnapshot<>(copies, workerTournamentSize(), crossover, mutation);
+    }
+
+    /**
+     * @return Order (best first) of the solutions of the snapshots, or null if the selection does not depend on it
+     */
+    protected Comparator<S> snapshotOrder() {
+        return null;
+    }
+
+    /**
+     * @return Size of the tournaments run by the workers on the snapshots (1 is a random selection, as the default
+     * {@link #snapshotOrder()} keeps the population unsorted)
+     */
+    protected int workerTournamentSize() {
+        return 1;
+    }
+
+    @Override
+    protected ParallelTask<S> adoptWorkerTask(ParallelTask<S> task) {
+        if (task.getIdentifier() != PopulationSnapshot.NEW_TASK) return task;
+        return ParallelTask.create(createTaskIdentifier(), task.getContents());
+    }
+
     public void setVARFile(String VARFile) {
         this.VARFile = VARFile;
     }
@@ -139,8 +312,27 @@ public class AsynchronousDistributedEvolutionaryAlgorithm<S extends Solution<?>>
             initialTasks.forEach(this::submitTask);
     }
 
+    /**
+     * Waits for the next evaluated solution: parts of a decomposed evaluation are gathered until the last one arrives,
+     * and the solutions that waited for an evaluation get its result right after it
+     */
     @Override
     public ParallelTask<S> waitForComputedTask() {
+        if (!coalescedTasks.isEmpty()) return coalescedTasks.poll();
+
+        while (true) {
+            ParallelTask<S> task = nextComputedTask();
+            if (task == null) return null;
+
+            task = assemble(task);
+            if (task != null) {
+                fanOut(task);
+                return task;
+            }
+        }
+    }
+
+    protected ParallelTask<S> nextComputedTask() {
         ParallelTask<S> evaluatedTask = null;
         if (!firstPopFromFUN) {
             try {
@@ -172,20 +364,222 @@ public class AsynchronousDistributedEvolutionaryAlgorithm<S extends Solution<?>>
 
         archive.add((S) task.getContents().copy());
 
+        if (preDispatch != PreDispatch.NONE && problem instanceof RepairableProblem)
+            ((RepairableProblem<S>) problem).learn(task.getContents());
+
+        Long evaluationTime = evaluationTimes.remove(task.getIdentifier());
+        if (history != null && task.getContents() instanceof CompositeSolution && !reused.remove(task.getIdentifier()))
+            history.add((CompositeSolution) task.getContents(), evaluationTime != null ? evaluationTime : -1);
+
+        if (hypervolume != null)
+            attributes.put("HYPERVOLUME", hypervolume.add(task.getContents().objectives()));
+
 
         if (population.size() < populationSize) {
             population.add(task.getContents());
         } else {
             synchronized (population) {
-                List<S> offspringPopulation = new ArrayList<>(population);
-                offspringPopulation.add(task.getContents());
-                population = new RankingAndCrowdingSelection<>(populationSize, dominanceComparator).execute(offspringPopulation);
+                population = replace(population, task.getContents());
             }
         }
+
+        if (snapshotPeriod > 0 && evaluations % snapshotPeriod == 0) snapshot = createSnapshot();
+    }
+
+    /**
+     * @return The computed task if it is not a part, the task it is a part of (with its objectives aggregated) if it is
+     * the last part to arrive, or null otherwise
+     */
+    protected ParallelTask<S> assemble(ParallelTask<S> task) {
+        Part part = parts.remove(task.getIdentifier());
+        if (part == null) return task;
+
+        evaluationTimes.remove(task.getIdentifier());
+        PartialEvaluation evaluation = part.evaluation;
+        evaluation.parts.set(part.index, task.getContents());
+        if (--evaluation.remaining > 0) return null;
+
+        ((DecomposableProblem<S>) problem).aggregate(evaluation.task.getContents(), evaluation.parts);
+        evaluationTimes.put(evaluation.task.getIdentifier(), System.currentTimeMillis() - evaluation.start);
+        return evaluation.task;
     }
 
+    @Override
+    public ParallelTask<S> getPendingTask(Set<String> warmKeys, String worker) {
+        ParallelTask<S> task;
+        do task = super.getPendingTask(warmKeys, worker);
+        while (task != null && (resolve(task) || !claim(task, true)));
+        return decompose(task);
+    }
+
+    /**
+     * @return Task with a new offspring; with {@link Coalescing#REGENERATE}, offspring duplicating a solution being
+     * evaluated are replaced by new ones (after {@link #MAX_REGENERATIONS}, they wait for the result like in
+     * {@link Coalescing#WAIT} and a random solution is returned). If the random solutions are duplicates too, each new
+     * attempt waits for an evaluation to finish.
+     */
     @Override
     public ParallelTask<S> createNewTask() {
+        ParallelTask<S> task = createUnresolvedTask();
+        for (int attempt = 1; !claim(task, coalescing != Coalescing.REGENERATE || attempt >= MAX_REGENERATIONS); attempt++) {
+            if (attempt > MAX_REGENERATIONS) awaitEvaluation();
+            task = attempt < MAX_REGENERATIONS ? createUnresolvedTask() : ParallelTask.create(createTaskIdentifier(), problem.createSolution());
+        }
+        return decompose(task);
+    }
+
+    /**
+     * @return Task with a new offspring that {@link #resolve(ParallelTask)} could not resolve (after
+     * {@link #MAX_REGENERATIONS} resolved in a row, a random solution that is dispatched unchecked)
+     */
+    protected ParallelTask<S> createUnresolvedTask() {
+        ParallelTask<S> task = createOffspringTask();
+        for (int attempt = 1; attempt <= MAX_REGENERATIONS && resolve(task); attempt++)
+            task = attempt < MAX_REGENERATIONS ? createOffspringTask() : ParallelTask.create(createTaskIdentifier(), problem.createSolution());
+        return task;
+    }
+
+    /**
+     * Pre-dispatch stage of a {@link RepairableProblem}: repairs the solution of the task (with
+     * {@link PreDispatch#REPAIR}) and, if its objectives are known, queues it as computed. It has no evaluation time
+     * (-1 in the history), and it is not recorded again if its objectives come from the history
+     *
+     * @return Whether the task was resolved, so it must not be dispatched
+     */
+    protected boolean resolve(ParallelTask<S> task) {
+        if (preDispatch == PreDispatch.NONE || !(problem instanceof RepairableProblem) || parts.containsKey(task.getIdentifier()))
+            return false;
+
+        RepairableProblem<S> repairable = (RepairableProblem<S>) problem;
+        S solution = task.getContents();
+        if (preDispatch == PreDispatch.REPAIR && repairable.repair(solution)) {
+            synchronized (this) {
+                repaired++;
+            }
+        }
+
+        boolean known = repairable.resolve(solution);
+        if (!known && history != null && solution instanceof CompositeSolution) {
+            int position = history.find((CompositeSolution) solution);
+            double[] objectives = position >= 0 ? history.objectives(position) : null;
+            if (objectives != null && repairable.reusable(objectives)) {
+                System.arraycopy(objectives, 0, solution.objectives(), 0, objectives.length);
+                reused.add(task.getIdentifier());
+                known = true;
+            }
+        }
+        if (!known) return false;
+
+        synchronized (this) {
+            resolved++;
+        }
+        completedTaskQueue.add(task);
+        return true;
+    }
+
+    /**
+     * @return Key of the task when duplicates must be coalesced, null otherwise
+     */
+    protected String duplicateKey(ParallelTask<S> task) {
+        if (coalescing == Coalescing.NONE || !(problem instanceof DuplicateAwareProblem) || parts.containsKey(task.getIdentifier()))
+            return null;
+        return ((DuplicateAwareProblem<S>) problem).duplicateKey(task.getContents());
+    }
+
+    /**
+     * Registers the task as in flight unless it duplicates a task in flight, in which case it is attached to it (to
+     * get its result) or discarded
+     *
+     * @return Whether the task must be dispatched
+     */
+    protected boolean claim(ParallelTask<S> task, boolean attach) {
+        String key = duplicateKey(task);
+        if (key == null) return true;
+
+        synchronized (this) {
+            List<ParallelTask<S>> waiting = inFlight.get(key);
+            if (waiting == null) {
+                inFlight.put(key, new ArrayList<>());
+                inFlightKeys.put(task.getIdentifier(), key);
+                return true;
+            }
+            // The task itself, queued again after its worker failed
+            if (inFlightKeys.containsKey(task.getIdentifier())) return true;
+
+            if (attach) waiting.add(task);
+            duplicates++;
+            return false;
+        }
+    }
+
+    protected synchronized void awaitEvaluation() {
+        try {
+            wait(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Copies the objectives of the evaluated task to the tasks waiting for it, which are returned next by
+     * {@link #waitForComputedTask()}
+     */
+    protected void fanOut(ParallelTask<S> task) {
+        String key = inFlightKeys.remove(task.getIdentifier());
+        if (key == null) return;
+
+        List<ParallelTask<S>> waiting;
+        synchronized (this) {
+            waiting = inFlight.remove(key);
+            notifyAll();
+        }
+        for (ParallelTask<S> duplicate : waiting) {
+            double[] objectives = task.getContents().objectives();
+            System.arraycopy(objectives, 0, duplicate.getContents().objectives(), 0, objectives.length);
+            reused.add(duplicate.getIdentifier());
+            coalescedTasks.add(duplicate);
+        }
+    }
+
+    /**
+     * Splits the evaluation of the task, if the {@link Decomposition} mode and the problem allow it, queueing all its
+     * parts but the first one, which is returned
+     */
+    protected ParallelTask<S> decompose(ParallelTask<S> task) {
+        if (task == null || parts.containsKey(task.getIdentifier()) || !(problem instanceof DecomposableProblem)) return task;
+        if (decomposition == Decomposition.NONE || decomposition == Decomposition.AUTO && numWorkers.get() <= populationSize && !nearEnd())
+            return task;
+
+        List<S> contents = ((DecomposableProblem<S>) problem).decompose(task.getContents());
+        if (contents.size() < 2) return task;
+
+        PartialEvaluation evaluation = new PartialEvaluation(task, contents);
+        List<ParallelTask<S>> tasks = new ArrayList<>(contents.size());
+        for (int i = 0; i < contents.size(); i++) {
+            ParallelTask<S> partTask = ParallelTask.create(createTaskIdentifier(), contents.get(i));
+            parts.put(partTask.getIdentifier(), new Part(evaluation, i));
+            tasks.add(partTask);
+        }
+
+        tasks.subList(1, tasks.size()).forEach(this::submitTask);
+        return tasks.get(0);
+    }
+
+    /**
+     * Steady-state replacement: the population that survives when an evaluated solution arrives at a full population
+     * (NSGA-II ranking and crowding distance by default)
+     */
+    protected List<S> replace(List<S> population, S offspring) {
+        List<S> offspringPopulation = new ArrayList<>(population);
+        offspringPopulation.add(offspring);
+        return new RankingAndCrowdingSelection<>(populationSize, dominanceComparator).execute(offspringPopulation);
+    }
+
+    /**
+     * @return Task with an offspring of two parents selected from the population (the other offspring is queued), or a
+     * random solution while the population is not complete
+     */
+    protected ParallelTask<S> createOffspringTask() {
         synchronized (population) {
             if (population.size() > 2) {
                 List<S> parents = new ArrayList<>(2);
@@ -201,10 +595,10 @@ public class AsynchronousDistributedEvolutionaryAlgorithm<S extends Solution<?>>
                 mutation.execute(sol1);
 
                 if (JMetalRandom.getInstance().nextInt(0, 1) == 0) {
-                    pendingTaskQueue.add(ParallelTask.create(createTaskIdentifier(), sol1));
+                    submitTask(ParallelTask.create(createTaskIdentifier(), sol1));
                     return ParallelTask.create(createTaskIdentifier(), sol0);
                 } else {
-                    pendingTaskQueue.add(ParallelTask.create(createTaskIdentifier(), sol0));
+                    submitTask(ParallelTask.create(createTaskIdentifier(), sol0));
                     return ParallelTask.create(createTaskIdentifier(), sol1);
                 }
             } else return ParallelTask.create(createTaskIdentifier(), problem.createSolution());
@@ -231,4 +625,30 @@ public class AsynchronousDistributedEvolutionaryAlgorithm<S extends Solution<?>>
     public Observable<Map<String, Object>> observable() {
         return observable;
     }
+
+    /**
+     * Evaluation split into parts, waiting for the remaining ones
+     */
+    protected class PartialEvaluation {
+        protected final ParallelTask<S> task;
+        protected final List<S> parts;
+        protected final long start = System.currentTimeMillis();
+        protected int remaining;
+
+        public PartialEvaluation(ParallelTask<S> task, List<S> parts) {
+            this.task = task;
+            this.parts = new ArrayList<>(parts);
+            this.remaining = parts.size();
+        }
+    }
+
+    protected class Part {
+        protected final PartialEvaluation evaluation;
+        protected final int index;
+
+        public Part(PartialEvaluation evaluation, int index) {
+            this.evaluation = evaluation;
+            this.index = index;
+        }
+    }
 }
@@ -0,0 +1,22 @@
+package distributed;
+
+import java.util.Set;
+
+/**
+ * Problems whose evaluations depend on artifacts cached on the worker host (e.g., the L-moment matrices computed for a
+ * given scenario and sample size). Workers report the keys they already hold when connecting, and the master uses
+ * {@link #cacheKey(Object)} to steer each task towards a worker where its artifact is warm.
+ *
+ * @param <S> Solution type
+ */
+public interface CacheAwareProblem<S> {
+    /**
+     * @return Keys of the artifacts available in the local cache of the host running this problem
+     */
+    Set<String> cachedKeys();
+
+    /**
+     * @return Key of the cached artifact required to evaluate the solution
+     */
+    String cacheKey(S solution);
+}
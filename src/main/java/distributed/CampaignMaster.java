@@ -0,0 +1,200 @@
+package distributed;
+
+import org.uma.jmetal.parallel.asynchronous.task.ParallelTask;
+import org.uma.jmetal.solution.Solution;
+import util.JMetalLogger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Master running several optimization jobs over a single pool of workers. Each job is an
+ * {@link AsynchronousDistributedEvolutionaryAlgorithm} created without server socket (negative port) that runs its
+ * main loop in its own thread. This master owns the socket and the {@link WorkerTalker}s, and hands out the tasks of
+ * the jobs following a weighted fair-share policy: a worker asking for a task is served by the active job with the
+ * lowest number of dispatched tasks per unit of weight. Tasks are tagged with the name of their job (see
+ * {@link CampaignProblem}) so that workers evaluate them with the right problem and computed tasks are routed back to
+ * their job. Workers keep computing tasks of the remaining jobs until all of them have finished.
+ *
+ * @param <S> Solution type
+ */
+public class CampaignMaster<S extends Solution<?>> extends MasterDistributed<ParallelTask<S>, Map<String, List<S>>> {
+    protected final List<Job> jobs;
+
+    public CampaignMaster(int port) {
+        super(port, new CampaignProblem<S>());
+        jobs = new ArrayList<>();
+    }
+
+    public void addJob(String name, AsynchronousDistributedEvolutionaryAlgorithm<S> algorithm, double weight) {
+        ((CampaignProblem<S>) problem).addJob(name, algorithm.problem);
+        algorithm.setAffinityDelay(affinityDelay);
+        algorithm.setCostModel(costModel);
+        algorithm.workerKeys = workerKeys;
+        algorithm.numWorkers = numWorkers;
+        jobs.add(new Job(name, algorithm, weight));
+    }
+
+    @Override
+    public void setAffinityDelay(long affinityDelay) {
+        super.setAffinityDelay(affinityDelay);
+        jobs.forEach(job -> job.algorithm.setAffinityDelay(affinityDelay));
+    }
+
+    protected Job jobOf(ParallelTask<S> task) {
+        Object name = task.getContents().attributes().get(CampaignProblem.JOB);
+        for (Job job : jobs)
+            if (job.name.equals(name)) return job;
+        return null;
+    }
+
+    /**
+     * @return Active jobs sorted by dispatched tasks per unit of weight, or all the jobs if none is active
+     */
+    protected List<Job> jobsByShare() {
+        List<Job> active = new ArrayList<>(jobs.stream().filter(Job::isActive).toList());
+        if (active.isEmpty()) active.addAll(jobs);
+        active.sort(Comparator.comparingDouble(Job::share));
+        return active;
+    }
+
+    protected ParallelTask<S> tag(Job job, ParallelTask<S> task) {
+        task.getContents().attributes().put(CampaignProblem.JOB, job.name);
+        job.dispatched.incrementAndGet();
+        return task;
+    }
+
+    @Override
+    public List<ParallelTask<S>> createInitialTasks() {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public ParallelTask<S> getPendingTask(Set<String> warmKeys, String worker) {
+        // Tasks given back by failed workers are already tagged
+        ParallelTask<S> task = super.getPendingTask(warmKeys, worker);
+        if (task != null) return task;
+
+        for (Job job : jobsByShare()) {
+            task = job.algorithm.getPendingTask(warmKeys, worker);
+            if (task != null) return tag(job, task);
+        }
+
+        return null;
+    }
+
+    @Override
+    public ParallelTask<S> createNewTask() {
+        Job job = jobsByShare().get(0);
+        return tag(job, job.algorithm.createNewTask());
+    }
+
+    @Override
+    protected String affinityKey(ParallelTask<S> task) {
+        if (!task.getContents().attributes().containsKey(CampaignProblem.JOB)) return null;
+        return ((CampaignProblem<S>) problem).cacheKey(task.getContents());
+    }
+
+    @Override
+    protected double[] costFeatures(ParallelTask<S> task) {
+        if (!task.getContents().attributes().containsKey(CampaignProblem.JOB)) return null;
+        return ((CampaignProblem<S>) problem).costFeatures(task.getContents());
+    }
+
+    @Override
+    public ParallelTask<S> waitForComputedTask() {
+        try {
+            return completedTaskQueue.poll(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Override
+    public void processComputedTask(ParallelTask<S> task) {
+        Job job = jobOf(task);
+        Long evaluationTime = evaluationTimes.remove(task.getIdentifier());
+
+        // Results of jobs that have already finished are discarded
+        if (job != null && job.isActive()) {
+            if (evaluationTime != null) job.algorithm.evaluationTimes.put(task.getIdentifier(), evaluationTime);
+            job.algorithm.getCompletedTaskQueue().add(task);
+        }
+    }
+
+    @Override
+    public boolean stoppingConditionIsNotMet() {
+        return jobs.stream().anyMatch(Job::isActive);
+    }
+
+    @Override
+    public void initProgress() {
+    }
+
+    @Override
+    public void updateProgress() {
+    }
+
+    @Override
+    public void run() {
+        for (Job job : jobs) {
+            job.thread = new Thread(job.algorithm::run, job.name);
+            job.thread.start();
+        }
+
+        waitForWorkers();
+
+        initProgress();
+        while (stoppingConditionIsNotMet()) {
+            ParallelTask<S> computedTask = waitForComputedTask();
+            if (computedTask != null) processComputedTask(computedTask);
+            updateProgress();
+        }
+
+        for (Job job : jobs) {
+            try {
+                job.thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+            JMetalLogger.logger.info("Job " + job.name + " finished after " + job.algorithm.evaluations + " evaluations (" + job.dispatched.get() + " tasks dispatched)");
+        }
+    }
+
+    @Override
+    public Map<String, List<S>> getResult() {
+        Map<String, List<S>> result = new LinkedHashMap<>();
+        jobs.forEach(job -> result.put(job.name, job.algorithm.getResult()));
+        return result;
+    }
+
+    protected class Job {
+        protected final String name;
+        protected final AsynchronousDistributedEvolutionaryAlgorithm<S> algorithm;
+        protected final double weight;
+        protected final AtomicInteger dispatched;
+        protected Thread thread;
+
+        public Job(String name, AsynchronousDistributedEvolutionaryAlgorithm<S> algorithm, double weight) {
+            this.name = name;
+            this.algorithm = algorithm;
+            this.weight = weight;
+            this.dispatched = new AtomicInteger();
+        }
+
+        public boolean isActive() {
+            return algorithm.stoppingConditionIsNotMet();
+        }
+
+        public double share() {
+            return dispatched.get() / weight;
+        }
+    }
+}
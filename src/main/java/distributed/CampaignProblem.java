@@ -0,0 +1,134 @@
+package distributed;
+
+import org.uma.jmetal.problem.Problem;
+import org.uma.jmetal.solution.Solution;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Problem sent to the workers of a {@link CampaignMaster}. It bundles the problem of every job of the campaign, and
+ * each solution is evaluated by the problem of the job named in its {@link #JOB} attribute.
+ *
+ * @param <S> Solution type
+ */
+public class CampaignProblem<S extends Solution<?>> implements Problem<S>, CacheAwareProblem<S>, CostAwareProblem<S>, ArtifactAwareProblem<S> {
+    public static final String JOB = "JOB";
+
+    protected final Map<String, Problem<S>> problems;
+
+    public CampaignProblem() {
+        this.problems = new LinkedHashMap<>();
+    }
+
+    public void addJob(String job, Problem<S> problem) {
+        problems.put(job, problem);
+    }
+
+    public Problem<S> problemOf(S solution) {
+        Problem<S> problem = problems.get((String) solution.attributes().get(JOB));
+        if (problem == null)
+            throw new IllegalArgumentException("Solution without a known job: " + solution.attributes().get(JOB));
+        return problem;
+    }
+
+    protected Problem<S> firstProblem() {
+        return problems.values().iterator().next();
+    }
+
+    @Override
+    public int numberOfVariables() {
+        return firstProblem().numberOfVariables();
+    }
+
+    @Override
+    public int numberOfObjectives() {
+        return firstProblem().numberOfObjectives();
+    }
+
+    @Override
+    public int numberOfConstraints() {
+        return firstProblem().numberOfConstraints();
+    }
+
+    @Override
+    public String name() {
+        return "Campaign" + problems.keySet();
+    }
+
+    @Override
+    public S evaluate(S solution) {
+        return problemOf(solution).evaluate(solution);
+    }
+
+    @Override
+    public S createSolution() {
+        return firstProblem().createSolution();
+    }
+
+    @Override
+    public Set<String> cachedKeys() {
+        Set<String> keys = new HashSet<>();
+        for (Problem<S> problem : new HashSet<>(problems.values()))
+            if (problem instanceof CacheAwareProblem)
+                keys.addAll(((CacheAwareProblem<S>) problem).cachedKeys());
+        return keys;
+    }
+
+    @Override
+    public String cacheKey(S solution) {
+        Problem<S> problem = problemOf(solution);
+        if (problem instanceof CacheAwareProblem)
+            return ((CacheAwareProblem<S>) problem).cacheKey(solution);
+        return null;
+    }
+
+    @Override
+    public double[] costFeatures(S solution) {
+        Problem<S> problem = problemOf(solution);
+        if (problem instanceof CostAwareProblem)
+            return ((CostAwareProblem<S>) problem).costFeatures(solution);
+        return null;
+    }
+
+    @Override
+    public List<String> inputArtifacts(S solution) {
+        Problem<S> problem = problemOf(solution);
+        if (problem instanceof ArtifactAwareProblem)
+            return ((ArtifactAwareProblem<S>) problem).inputArtifacts(solution);
+        return List.of();
+    }
+
+    @Override
+    public List<String> outputArtifacts(S solution) {
+        Problem<S> problem = problemOf(solution);
+        if (problem instanceof ArtifactAwareProblem)
+            return ((ArtifactAwareProblem<S>) problem).outputArtifacts(solution);
+        return List.of();
+    }
+
+    @Override
+    public File artifactFile(String name) {
+        for (Problem<S> problem : problems.values()) {
+            if (problem instanceof ArtifactAwareProblem) {
+                File file = ((ArtifactAwareProblem<S>) problem).artifactFile(name);
+                if (file != null) return file;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Closeable lockArtifact(String name) throws IOException {
+        for (Problem<S> problem : problems.values())
+            if (problem instanceof ArtifactAwareProblem && ((ArtifactAwareProblem<S>) problem).artifactFile(name) != null)
+                return ((ArtifactAwareProblem<S>) problem).lockArtifact(name);
+        return ArtifactAwareProblem.super.lockArtifact(name);
+    }
+}
@@ -0,0 +1,15 @@
+package distributed;
+
+/**
+ * Problems whose evaluation cost varies with the solution in a predictable way. The master fits a {@link CostModel}
+ * over the features of the solutions it dispatches and the latencies it observes, and uses it to order the pending
+ * tasks and to place the expensive ones on fast workers.
+ *
+ * @param <S> Solution type
+ */
+public interface CostAwareProblem<S> {
+    /**
+     * @return Features the logarithm of the evaluation time of the solution depends (roughly) linearly on
+     */
+    double[] costFeatures(S solution);
+}
@@ -0,0 +1,95 @@
+package distributed;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Online model of evaluation latencies: log(ms) = w . (1, features) + speed(worker). The weights are fitted by
+ * recursive least squares and the speed of each worker is the running mean (exponentially weighted) of its residuals,
+ * so a worker with speed below the median of the workers seen is faster than the rest. Predictions are made for the
+ * typical worker (speed 0) or for a given one.
+ */
+public class CostModel {
+    protected static final int MINIMUM_OBSERVATIONS = 20;
+    protected static final double FORGETTING = 0.995;
+    protected static final double SPEED_RATE = 0.1;
+    protected static final double SPEED_MARGIN = 0.1;
+
+    protected double[] weights;
+    protected double[][] covariance;
+    protected final Map<String, Double> speeds = new HashMap<>();
+    protected int observations;
+
+    public synchronized void observe(double[] features, String worker, long millis) {
+        double[] x = withIntercept(features);
+        if (weights == null) initialize(x.length);
+
+        double y = Math.log(Math.max(millis, 1));
+        double speed = speeds.getOrDefault(worker, 0.0);
+        double residual = y - dot(weights, x);
+        speeds.put(worker, speed + SPEED_RATE * (residual - speed));
+
+        // Recursive least squares on the latency of the typical worker
+        double error = residual - speed;
+        double[] px = new double[x.length];
+        for (int i = 0; i < x.length; i++) px[i] = dot(covariance[i], x);
+        double denominator = FORGETTING + dot(x, px);
+        for (int i = 0; i < x.length; i++) weights[i] += px[i] * error / denominator;
+        for (int i = 0; i < x.length; i++)
+            for (int j = 0; j < x.length; j++)
+                covariance[i][j] = (covariance[i][j] - px[i] * px[j] / denominator) / FORGETTING;
+
+        observations++;
+    }
+
+    public synchronized boolean isReady() {
+        return observations >= MINIMUM_OBSERVATIONS;
+    }
+
+    /**
+     * @return Expected evaluation time (ms) of a task with the given features on the worker
+     */
+    public synchronized double predict(double[] features, String worker) {
+        if (weights == null) return 0.0;
+        return Math.exp(dot(weights, withIntercept(features)) + speeds.getOrDefault(worker, 0.0));
+    }
+
+    public synchronized boolean isFast(String worker) {
+        Double speed = speeds.get(worker);
+        return speed != null && speeds.size() > 1 && speed < medianSpeed() - SPEED_MARGIN;
+    }
+
+    public synchronized boolean isSlow(String worker) {
+        Double speed = speeds.get(worker);
+        return speed != null && speeds.size() > 1 && speed > medianSpeed() + SPEED_MARGIN;
+    }
+
+    protected double medianSpeed() {
+        double[] values = speeds.values().stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        return values.length % 2 == 1 ? values[values.length / 2] : (values[values.length / 2 - 1] + values[values.length / 2]) / 2.0;
+    }
+
+    protected void initialize(int size) {
+        weights = new double[size];
+        covariance = new double[size][size];
+        for (int i = 0; i < size; i++) covariance[i][i] = 1000.0;
+    }
+
+    protected static double[] withIntercept(double[] features) {
+        double[] x = Arrays.copyOf(new double[]{1.0}, features.length + 1);
+        System.arraycopy(features, 0, x, 1, features.length);
+        return x;
+    }
+
+    protected static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CostModel{observations=" + observations + ", weights=" + Arrays.toString(weights) + ", speeds=" + speeds + "}";
+    }
+}
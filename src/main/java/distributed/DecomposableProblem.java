@@ -0,0 +1,24 @@
+package distributed;
+
+import java.util.List;
+
+/**
+ * Problems whose evaluation can be split into independent parts (e.g., the fits of each estimator on each
+ * cross-validation split). The master sends the parts to different workers, which evaluate them with the usual
+ * {@code evaluate} method, and completes the solution when all of them are back, so a single evaluation can use
+ * several workers.
+ *
+ * @param <S> Solution type
+ */
+public interface DecomposableProblem<S> {
+    /**
+     * @return Copies of the solution, each one marked with the part of the evaluation it stands for, or an empty list if
+     * the solution must be evaluated as a whole
+     */
+    List<S> decompose(S solution);
+
+    /**
+     * Sets the objectives of the solution from its evaluated parts (in the order returned by {@link #decompose})
+     */
+    void aggregate(S solution, List<S> parts);
+}
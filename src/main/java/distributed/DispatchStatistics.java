@@ -0,0 +1,33 @@
+package distributed;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time the master takes to hand a task to a worker (choosing or creating it, and sending it), recorded without
+ * locking by every worker thread
+ */
+public class DispatchStatistics {
+    protected final LongAdder count = new LongAdder();
+    protected final LongAdder totalNanos = new LongAdder();
+    protected final AtomicLong maximumNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maximumNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double meanMicros() {
+        long n = count.sum();
+        return n > 0 ? totalNanos.sum() / 1000.0 / n : 0.0;
+    }
+
+    public double maximumMicros() {
+        return maximumNanos.get() / 1000.0;
+    }
+}
@@ -0,0 +1,14 @@
+package distributed;
+
+/**
+ * Problems where different solutions may be known to get the same objectives. The master uses
+ * {@link #duplicateKey(Object)} to avoid evaluating a solution while another one with the same key is being evaluated.
+ *
+ * @param <S> Solution type
+ */
+public interface DuplicateAwareProblem<S> {
+    /**
+     * @return Key shared by the solutions whose evaluation gives the same objectives
+     */
+    String duplicateKey(S solution);
+}
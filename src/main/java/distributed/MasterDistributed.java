@@ -2,15 +2,23 @@ package distributed;
 
 import org.uma.jmetal.parallel.asynchronous.task.ParallelTask;
 import org.uma.jmetal.problem.Problem;
+import org.uma.jmetal.solution.Solution;
+import util.EvaluationProfile;
 import util.JMetalLogger;
 
 import java.io.*;
 import java.net.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class MasterDistributed<T extends ParallelTask<?>, R> implements AsynchronousParallelAlgorithm<T, R> {
 
@@ -18,57 +26,207 @@ public abstract class MasterDistributed<T extends ParallelTask<?>, R> implements
     protected BlockingQueue<T> pendingTaskQueue;
     protected BlockingQueue<Thread> workerThreads;
     protected ServerSocket serverSocket;
-    protected int numWorkers;
+    // Connected workers (the jobs of a CampaignMaster share the count of its pool)
+    protected AtomicInteger numWorkers;
     protected int port;
     protected Problem problem;
+    protected Map<T, Long> pendingSince;
+    protected long affinityDelay;
+    // Cache keys of each connected worker (local workers share one set)
+    protected List<Set<String>> workerKeys = new CopyOnWriteArrayList<>();
+    protected CostModel costModel;
+    protected final DispatchStatistics dispatchStatistics = new DispatchStatistics();
+    protected final ProfileStatistics profileStatistics = new ProfileStatistics();
+    protected ArtifactServer artifactServer;
+    protected final Map<Long, Long> evaluationTimes = new ConcurrentHashMap<>();
 
     public MasterDistributed(int port, Problem problem) {
         completedTaskQueue = new LinkedBlockingQueue<>();
         pendingTaskQueue = new LinkedBlockingQueue<>();
         workerThreads = new LinkedBlockingQueue<>();
-        numWorkers = 0;
+        pendingSince = new ConcurrentHashMap<>();
+        numWorkers = new AtomicInteger();
+        affinityDelay = 0;
+        costModel = new CostModel();
 
         this.port = port;
         this.problem = problem;
 
-        openSocket();
+        if (port >= 0) openSocket();
+    }
+
+    /**
+     * Accepts worker connections in a background thread. Masters created with a negative port have no server socket
+     * and receive their tasks through another master (see {@link CampaignMaster}).
+     */
+    protected void waitForWorkers() {
+        if (serverSocket == null) return;
+
+        new Thread(() -> {
+            JMetalLogger.logger.info("Waiting for workers");
+            while (!serverSocket.isClosed()) {
+                try {
+                    acceptConnection();
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) JMetalLogger.logger.info("ERROR in server socket:\n\t" + e);
+                }
+            }
+        }).start();
+    }
+
+    /**
+     * Stops accepting workers. Connected workers are released as soon as the stopping condition is met.
+     */
+    public void shutdown() {
+        if (artifactServer != null) artifactServer.stop();
+        if (serverSocket == null) return;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            JMetalLogger.logger.info("ERROR closing server socket:\n\t" + e);
+        }
+    }
+
+    /**
+     * Serves the artifacts of the problem (see {@link ArtifactAwareProblem}) on the port next to the worker socket,
+     * keeping the objects uploaded by the workers in the given directory
+     */
+    public void startArtifactServer(File directory) throws IOException {
+        if (serverSocket == null) return;
+
+        ArtifactStore store = new ArtifactStore(directory, problem instanceof ArtifactAwareProblem ? (ArtifactAwareProblem<?>) problem : null);
+        artifactServer = new ArtifactServer(port + 1, store);
+        artifactServer.start();
+    }
+
+    public DispatchStatistics getDispatchStatistics() {
+        return dispatchStatistics;
+    }
+
+    public ProfileStatistics getProfileStatistics() {
+        return profileStatistics;
+    }
+
+    /**
+     * Adds the {@link EvaluationProfile} of the computed task, if its solution carries one, to the statistics of the
+     * worker
+     */
+    protected void recordProfile(String worker, T task) {
+        if (task.getContents() instanceof Solution<?> solution && solution.attributes().get(EvaluationProfile.ATTRIBUTE) instanceof EvaluationProfile profile)
+            profileStatistics.record(worker, profile);
+    }
+
+    /**
+     * @return Population to send to the workers when they generate their own offspring, or null when the master creates
+     * all the tasks. The talkers send it again whenever a different snapshot is returned.
+     */
+    protected PopulationSnapshot<?> variationSnapshot() {
+        return null;
+    }
+
+    /**
+     * @return Task evaluated by a worker from an offspring it generated itself, with an identifier of the master
+     */
+    protected T adoptWorkerTask(T task) {
+        return task;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getNumWorkers() {
+        return numWorkers.get();
+    }
+
+    public BlockingQueue<Thread> getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Starts workers that evaluate tasks inside this JVM, with no socket or serialization in between: each one runs
+     * the same dispatch loop as a {@link WorkerTalker} but calls the problem directly, so the count is the maximum
+     * number of concurrent evaluations. The workers run on virtual threads when the JVM provides them (Java 21 or
+     * later) and on daemon platform threads otherwise. All of them share the cache keys of this host.
+     */
+    public void startLocalWorkers(int count) {
+        Set<String> warmKeys = ConcurrentHashMap.newKeySet();
+        if (problem instanceof CacheAwareProblem)
+            warmKeys.addAll(((CacheAwareProblem<?>) problem).cachedKeys());
+
+        workerKeys.add(warmKeys);
+        for (int i = 0; i < count; i++) {
+            Thread t = newWorkerThread(new LocalWorker("local-" + i, warmKeys), "local-" + i);
+            workerThreads.add(t);
+            t.start();
+        }
+
+        JMetalLogger.logger.info(count + " local workers started (" + warmKeys.size() + " cached keys)");
+    }
+
+    /**
+     * @return Unstarted virtual thread if the JVM supports them, or a daemon platform thread otherwise
+     */
+    protected static Thread newWorkerThread(Runnable runnable, String name) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class).invoke(builder, name);
+            return (Thread) builderClass.getMethod("unstarted", Runnable.class).invoke(builder, runnable);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    public void acceptConnection() throws IOException {
+        Socket socket = serverSocket.accept();
+        Thread t = new Thread(new WorkerTalker(socket));
+        workerThreads.add(t);
+        t.start();
     }
 
     public void openSocket() {
         try {
             serverSocket = new ServerSocket(port);
             port = serverSocket.getLocalPort();
-            String ip = null;
+            String ip = localAddress().getHostAddress();
 
-            try {
-                DatagramSocket socket = new DatagramSocket();
-                socket.connect(InetAddress.getByName("8.8.8.8"), 65431);
-                ip = socket.getLocalAddress().getHostAddress();
-
-                PrintWriter out = new PrintWriter("serverIP.dat");
+            try (PrintWriter out = new PrintWriter("serverIP.dat")) {
                 out.print(ip);
-                out.close();
-                socket.close();
-            } catch (Exception ignored) {
-                try {
-                    ProcessBuilder pb = new ProcessBuilder("bash", "-c", "hostname -I | awk '{print $1}' > serverIP.dat");
-                    pb.redirectErrorStream(true);
-
-                    Process p = pb.start();
-                    List<String> lines = (new BufferedReader(new InputStreamReader(p.getInputStream()))).lines().collect(Collectors.toList());
-                    Scanner sc = new Scanner(new File("serverIP.dat"));
-                    ip = sc.nextLine();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
             }
 
-            JMetalLogger.logger.info("Server listening on port " + port);
+            JMetalLogger.logger.info("Server listening on " + ip + ":" + port);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Address of this host for the workers, found among the network interfaces without connecting anywhere: the first
+     * site-local IPv4 address of an interface that is up, else any other IPv4 address of such an interface, else the
+     * loopback address
+     */
+    public static InetAddress localAddress() {
+        InetAddress fallback = null;
+        try {
+            for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!networkInterface.isUp() || networkInterface.isLoopback() || networkInterface.isVirtual()) continue;
+
+                for (InetAddress address : Collections.list(networkInterface.getInetAddresses())) {
+                    if (!(address instanceof Inet4Address) || address.isLinkLocalAddress()) continue;
+                    if (address.isSiteLocalAddress()) return address;
+                    if (fallback == null) fallback = address;
+                }
+            }
+        } catch (SocketException e) {
+            JMetalLogger.logger.info("ERROR listing network interfaces:\n\t" + e);
+        }
+
+        return fallback != null ? fallback : InetAddress.getLoopbackAddress();
+    }
+
     @Override
     public void submitInitialTasks(List<T> initialTasks) {
         initialTasks.forEach(this::submitTask);
@@ -88,8 +246,12 @@ public abstract class MasterDistributed<T extends ParallelTask<?>, R> implements
     @Override
     public abstract void processComputedTask(T task);
 
+    /**
+     * Queues the task, recording when it was queued for {@link #getPendingTask(Set, String)}
+     */
     @Override
     public void submitTask(T task) {
+        pendingSince.put(task, System.currentTimeMillis());
         pendingTaskQueue.add(task);
     }
 
@@ -98,16 +260,118 @@ public abstract class MasterDistributed<T extends ParallelTask<?>, R> implements
 
     @Override
     public T getPendingTask() throws InterruptedException {
-        if (pendingTaskQueue.size() > 0) return pendingTaskQueue.take();
+        if (pendingTaskQueue.size() == 0) return null;
+        T task = pendingTaskQueue.take();
+        pendingSince.remove(task);
+        return task;
+    }
+
+    /**
+     * Bounded-delay affinity scheduling with cost-aware ordering. The candidates are the pending tasks whose cache key
+     * is warm in the worker or, if there are none, the tasks that no other connected worker could take warm (no key,
+     * or a key no other worker holds) and those that have waited for at least {@link #affinityDelay} ms: a task is only
+     * held back for a worker that holds its key, and for no longer than the delay. Among the candidates, the oldest is
+     * handed out unless the {@link CostModel} is ready: then fast workers, and every worker near the end of the run,
+     * get the longest expected task, and slow workers the shortest one. If there is no candidate, null is returned and
+     * the worker gets a newly created task.
+     *
+     * @param warmKeys Cache keys held by the worker asking for a task
+     * @param worker   Identity of the worker asking for a task
+     */
+    public T getPendingTask(Set<String> warmKeys, String worker) {
+        long now = System.currentTimeMillis();
+        List<T> warm = new ArrayList<>();
+        List<T> waited = new ArrayList<>();
+
+        for (T task : pendingTaskQueue) {
+            String key = affinityKey(task);
+            if (key != null && warmKeys.contains(key)) warm.add(task);
+            else if (!warmElsewhere(key, warmKeys) || now - pendingSince.getOrDefault(task, now) >= affinityDelay) waited.add(task);
+        }
+
+        List<T> candidates = warm.isEmpty() ? waited : warm;
+        if (candidates.isEmpty()) return null;
+
+        T chosen = candidates.get(0);
+        if (candidates.size() > 1 && costModel.isReady() && costFeatures(chosen) != null) {
+            boolean longestFirst = nearEnd() || costModel.isFast(worker);
+            boolean shortestFirst = !longestFirst && costModel.isSlow(worker);
+
+            if (longestFirst || shortestFirst) {
+                double best = longestFirst ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+                for (T task : candidates) {
+                    double cost = costModel.predict(costFeatures(task, warmKeys), worker);
+                    if (longestFirst ? cost > best : cost < best) {
+                        best = cost;
+                        chosen = task;
+                    }
+                }
+            }
+        }
+
+        if (!pendingTaskQueue.remove(chosen)) return null;
+        pendingSince.remove(chosen);
+        return chosen;
+    }
+
+    /**
+     * @return Whether a connected worker other than the one holding the given keys has the key warm
+     */
+    protected boolean warmElsewhere(String key, Set<String> warmKeys) {
+        if (key == null) return false;
+        for (Set<String> keys : workerKeys)
+            if (keys != warmKeys && keys.contains(key)) return true;
+        return false;
+    }
+
+    /**
+     * @return Features of the task for the {@link CostModel}, or null if the cost of the tasks is not modeled
+     */
+    protected double[] costFeatures(T task) {
+        return null;
+    }
+
+    /**
+     * @return Features of the task followed by whether its cache key is cold in the worker
+     */
+    protected double[] costFeatures(T task, Set<String> warmKeys) {
+        double[] features = costFeatures(task);
+        if (features == null) return null;
+
+        double[] result = Arrays.copyOf(features, features.length + 1);
+        String key = affinityKey(task);
+        result[features.length] = key != null && !warmKeys.contains(key) ? 1.0 : 0.0;
+        return result;
+    }
+
+    /**
+     * @return Whether the run is close enough to its end for the longest pending tasks to go first
+     */
+    protected boolean nearEnd() {
+        return false;
+    }
+
+    public void setCostModel(CostModel costModel) {
+        this.costModel = costModel;
+    }
+
+    /**
+     * @return Key of the worker-side cached artifact needed to compute the task, or null if tasks have no affinity
+     */
+    protected String affinityKey(T task) {
         return null;
     }
 
+    public void setAffinityDelay(long affinityDelay) {
+        this.affinityDelay = affinityDelay;
+    }
+
     @Override
     public abstract boolean stoppingConditionIsNotMet();
 
     @Override
     public int numIdleWorkers() {
-        return numWorkers - pendingTaskQueue.size();
+        return numWorkers.get() - pendingTaskQueue.size();
     }
 
     public BlockingQueue<T> getCompletedTaskQueue() {
@@ -124,10 +388,12 @@ public abstract class MasterDistributed<T extends ParallelTask<?>, R> implements
 
         private String ip;
 
+        private Set<String> warmKeys;
+
         public WorkerTalker(Socket socket) {
             this.socket = socket;
             this.ip = "";
-            numWorkers++;
+            numWorkers.incrementAndGet();
         }
 
         @Override
@@ -141,34 +407,49 @@ public abstract class MasterDistributed<T extends ParallelTask<?>, R> implements
                 output.reset();
                 try {
                     ip = (String) input.readObject();
+                    warmKeys = ConcurrentHashMap.newKeySet();
+                    warmKeys.addAll((Set<String>) input.readObject());
                 } catch (ClassNotFoundException e) {
                     throw new RuntimeException(e);
                 }
 
-                JMetalLogger.logger.info("Worker " + ip + " connected");
+                workerKeys.add(warmKeys);
+                JMetalLogger.logger.info("Worker " + ip + " connected (" + warmKeys.size() + " cached keys)");
                 long beforeUsedMem = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
 
                 int tries = 0;
 
+                boolean workerVariation = variationSnapshot() != null;
+                if (workerVariation) receiveOffspring(output, input);
+
                 // Send task until the stopping condition is met
-                while (stoppingConditionIsNotMet()) {
+                while (!workerVariation && stoppingConditionIsNotMet()) {
                     try {
-                        T taskToCompute = getPendingTask();
+                        long startTime = System.nanoTime();
+                        T taskToCompute = getPendingTask(warmKeys, ip);
 
                         if (taskToCompute == null) taskToCompute = createNewTask();
+                        double[] features = costFeatures(taskToCompute, warmKeys);
 
-                        long startTime = System.nanoTime();
                         output.writeObject(taskToCompute);
                         output.flush();
                         output.reset();
                         long endTime = System.nanoTime();
+                        dispatchStatistics.record(endTime - startTime);
 
                         try {
                             startTime = System.nanoTime();
                             T computedTask = (T) input.readObject();
                             endTime = System.nanoTime();
 
-                            JMetalLogger.logger.info("Waiting evaluation " + (endTime - startTime) / 1_000_000 + "ms.");
+                            if (JMetalLogger.sample("evaluation"))
+                                JMetalLogger.event("evaluation", "worker", ip, "ms", (endTime - startTime) / 1_000_000, "workers", numWorkers.get());
+                            if (features != null) costModel.observe(features, ip, (endTime - startTime) / 1_000_000);
+                            evaluationTimes.put(computedTask.getIdentifier(), (endTime - startTime) / 1_000_000);
+                            recordProfile(ip, computedTask);
+
+                            String key = affinityKey(computedTask);
+                            if (key != null) warmKeys.add(key);
 
                             completedTaskQueue.add(computedTask);
 
@@ -176,9 +457,8 @@ public abstract class MasterDistributed<T extends ParallelTask<?>, R> implements
 
                         } catch (EOFException e) {  // If the worker fails during the evaluation
                             JMetalLogger.logger.info("Worker " + ip + " down");
-                            pendingTaskQueue.add(taskToCompute);
-                            numWorkers--;
-                            JMetalLogger.logger.info("Active workers: " + numWorkers);
+                            submitTask(taskToCompute);
+                            JMetalLogger.logger.info("Active workers: " + (numWorkers.get() - 1));
                             Thread.currentThread().interrupt();
                         } catch (ClassNotFoundException ignored) {
                         }
@@ -198,7 +478,120 @@ public abstract class MasterDistributed<T extends ParallelTask<?>, R> implements
                 }
             } finally {
                 if (stoppingConditionIsNotMet()) JMetalLogger.logger.info("Worker " + ip + " disconnected");
-                numWorkers--;
+                workerKeys.removeIf(keys -> keys == warmKeys);
+                numWorkers.decrementAndGet();
+            }
+        }
+
+        /**
+         * Decentralized variation: the worker generates and evaluates its own offspring without waiting for the master,
+         * which only reads the results and sends back the newer population snapshots and, one at a time, the pending
+         * tasks (evaluated by the worker before its next offspring). Evaluation times are the intervals between
+         * results.
+         */
+        protected void receiveOffspring(ObjectOutputStream output, ObjectInputStream input) throws IOException {
+            List<T> sent = new ArrayList<>(1);
+            PopulationSnapshot<?> sentSnapshot = null;
+            long last = System.nanoTime();
+            // Results stream in without replies, so they must not wait for delayed acknowledgements
+            socket.setTcpNoDelay(true);
+
+            try {
+                while (stoppingConditionIsNotMet()) {
+                    PopulationSnapshot<?> snapshot = variationSnapshot();
+                    if (snapshot != sentSnapshot) {
+                        output.writeObject(snapshot);
+                        sentSnapshot = snapshot;
+                    }
+                    if (sent.isEmpty()) {
+                        T pendingTask = getPendingTask(warmKeys, ip);
+                        if (pendingTask != null) {
+                            output.writeObject(pendingTask);
+                            sent.add(pendingTask);
+                        }
+                    }
+                    output.flush();
+                    output.reset();
+
+                    T computedTask = (T) input.readObject();
+                    long now = System.nanoTime();
+                    sent.removeIf(task -> task.getIdentifier() == computedTask.getIdentifier());
+                    T task = adoptWorkerTask(computedTask);
+
+                    if (JMetalLogger.sample("evaluation"))
+                        JMetalLogger.event("evaluation", "worker", ip, "ms", (now - last) / 1_000_000, "workers", numWorkers.get());
+                    evaluationTimes.put(task.getIdentifier(), (now - last) / 1_000_000);
+                    recordProfile(ip, task);
+                    last = now;
+
+                    String key = affinityKey(task);
+                    if (key != null) warmKeys.add(key);
+
+                    completedTaskQueue.add(task);
+                }
+            } catch (EOFException | SocketException e) {
+                JMetalLogger.logger.info("Worker " + ip + " down");
+                sent.forEach(MasterDistributed.this::submitTask);
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * In-JVM counterpart of {@link WorkerTalker}: tasks are evaluated by calling the problem of the master. A task whose
+     * evaluation throws is queued again, as the task of a remote worker that goes down; the worker stops after
+     * {@link #MAX_FAILURES} failures in a row
+     */
+    public class LocalWorker implements Runnable {
+        public static final int MAX_FAILURES = 3;
+
+        private final String name;
+        private final Set<String> warmKeys;
+
+        public LocalWorker(String name, Set<String> warmKeys) {
+            this.name = name;
+            this.warmKeys = warmKeys;
+            numWorkers.incrementAndGet();
+        }
+
+        @Override
+        public void run() {
+            int failures = 0;
+            try {
+                while (stoppingConditionIsNotMet()) {
+                    long startTime = System.nanoTime();
+                    T taskToCompute = getPendingTask(warmKeys, name);
+                    if (taskToCompute == null) taskToCompute = createNewTask();
+                    double[] features = costFeatures(taskToCompute, warmKeys);
+                    dispatchStatistics.record(System.nanoTime() - startTime);
+
+                    startTime = System.nanoTime();
+                    try {
+                        problem.evaluate(taskToCompute.getContents());
+                    } catch (RuntimeException e) {
+                        JMetalLogger.logger.severe("Local worker " + name + " failed to evaluate a task: " + e);
+                        submitTask(taskToCompute);
+                        if (++failures >= MAX_FAILURES) {
+                            JMetalLogger.logger.severe("Local worker " + name + " down after " + failures + " failures in a row");
+                            break;
+                        }
+                        continue;
+                    }
+                    failures = 0;
+                    long endTime = System.nanoTime();
+
+                    if (features != null) costModel.observe(features, name, (endTime - startTime) / 1_000_000);
+                    evaluationTimes.put(taskToCompute.getIdentifier(), (endTime - startTime) / 1_000_000);
+                    recordProfile(name, taskToCompute);
+
+                    String key = affinityKey(taskToCompute);
+                    if (key != null) warmKeys.add(key);
+
+                    completedTaskQueue.add(taskToCompute);
+                }
+            } finally {
+                numWorkers.decrementAndGet();
             }
         }
     }
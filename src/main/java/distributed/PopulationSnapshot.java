@@ -0,0 +1,110 @@
+package distributed;
+
+import org.uma.jmetal.operator.crossover.CrossoverOperator;
+import org.uma.jmetal.operator.mutation.MutationOperator;
+import org.uma.jmetal.problem.Problem;
+import org.uma.jmetal.solution.Solution;
+import org.uma.jmetal.util.pseudorandom.JMetalRandom;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copy of the population sent to the workers that generate their own offspring. Solutions are sorted from best to
+ * worst (without their attributes), and parents are selected by tournaments between positions, so the workers do not
+ * need the comparators of the master: a tournament size of 2 is a binary tournament, and 1 a random selection. A
+ * snapshot is serialized once, however many workers it is sent to.
+ *
+ * @param <S> Solution type
+ */
+public class PopulationSnapshot<S extends Solution<?>> implements Serializable {
+    /**
+     * Identifier of the tasks created by the workers, replaced by the master when their results arrive
+     */
+    public static final long NEW_TASK = -1;
+
+    protected final List<S> population;
+    protected final int tournamentSize;
+    protected final CrossoverOperator<S> crossover;
+    protected final MutationOperator<S> mutation;
+    protected transient byte[] packed;
+
+    public PopulationSnapshot(List<S> population, int tournamentSize, CrossoverOperator<S> crossover, MutationOperator<S> mutation) {
+        this.population = population;
+        this.tournamentSize = tournamentSize;
+        this.crossover = crossover;
+        this.mutation = mutation;
+    }
+
+    /**
+     * @return The two offspring of two parents selected from the population, or a random solution while it has two
+     * solutions or fewer (as the master does)
+     */
+    public List<S> offspring(Problem<S> problem) {
+        if (population.size() <= 2) return List.of(problem.createSolution());
+
+        List<S> parents = new ArrayList<>(2);
+        parents.add(select());
+        parents.add(select());
+
+        List<S> offspring = crossover.execute(parents);
+        List<S> result = new ArrayList<>(offspring.size());
+        for (S solution : offspring) {
+            S child = (S) solution.copy();
+            mutation.execute(child);
+            result.add(child);
+        }
+        return result;
+    }
+
+    protected S select() {
+        int best = population.size();
+        for (int i = 0; i < tournamentSize; i++)
+            best = Math.min(best, JMetalRandom.getInstance().nextInt(0, population.size() - 1));
+        return population.get(best);
+    }
+
+    public int size() {
+        return population.size();
+    }
+
+    protected synchronized Object writeReplace() throws ObjectStreamException {
+        if (packed == null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                output.writeObject(population);
+                output.writeInt(tournamentSize);
+                output.writeObject(crossover);
+                output.writeObject(mutation);
+            } catch (IOException e) {
+                throw new InvalidObjectException("Unable to serialize the population snapshot: " + e);
+            }
+            packed = bytes.toByteArray();
+        }
+        return new Packed(packed);
+    }
+
+    protected static class Packed implements Serializable {
+        protected final byte[] bytes;
+
+        protected Packed(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        protected Object readResolve() throws ObjectStreamException {
+            try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                return new PopulationSnapshot<>((List) input.readObject(), input.readInt(), (CrossoverOperator) input.readObject(), (MutationOperator) input.readObject());
+            } catch (IOException | ClassNotFoundException e) {
+                throw new InvalidObjectException("Invalid population snapshot: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package distributed;
+
+import util.EvaluationProfile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mean time of each evaluation phase (see {@link EvaluationProfile}) per sample size and per worker, recorded by the
+ * worker threads of the master as the evaluated tasks come back
+ */
+public class ProfileStatistics {
+    protected final Map<String, Group> groups = new ConcurrentSkipListMap<>();
+    protected final Set<String> phases = Collections.synchronizedSet(new LinkedHashSet<>());
+
+    public void record(String worker, EvaluationProfile profile) {
+        Map<String, Double> times = profile.phases();
+        phases.addAll(times.keySet());
+
+        group(String.format("n=%03d", profile.n())).add(times, profile.source());
+        group("worker=" + worker).add(times, profile.source());
+    }
+
+    protected Group group(String name) {
+        return groups.computeIfAbsent(name, key -> new Group());
+    }
+
+    public boolean isEmpty() {
+        return groups.isEmpty();
+    }
+
+    /**
+     * @return Table with one row per sample size and per worker: number of evaluations, mean time of each phase (ms)
+     * and sources of the L-moment matrices
+     */
+    public String report() {
+        List<String> columns;
+        synchronized (phases) {
+            columns = new ArrayList<>(phases);
+        }
+
+        StringBuilder table = new StringBuilder(String.format("%-24s %8s", "group", "evals"));
+        for (String phase : columns) table.append(String.format(" %10s", phase));
+        table.append("  sources\n");
+
+        groups.forEach((name, group) -> {
+            long count = group.count.sum();
+            table.append(String.format("%-24s %8d", name, count));
+            for (String phase : columns) {
+                DoubleAdder sum = group.sums.get(phase);
+                table.append(String.format(" %10.1f", sum != null && count > 0 ? sum.sum() / count : 0.0));
+            }
+            table.append("  ");
+            group.sources.forEach((source, n) -> table.append(source).append('=').append(n.sum()).append(' '));
+            table.append('\n');
+        });
+
+        return table.toString();
+    }
+
+    protected static class Group {
+        protected final LongAdder count = new LongAdder();
+        protected final Map<String, DoubleAdder> sums = new ConcurrentHashMap<>();
+        protected final Map<String, LongAdder> sources = new ConcurrentSkipListMap<>();
+
+        protected void add(Map<String, Double> times, String source) {
+            count.increment();
+            times.forEach((phase, ms) -> sums.computeIfAbsent(phase, key -> new DoubleAdder()).add(ms));
+            if (source != null) sources.computeIfAbsent(source, key -> new LongAdder()).increment();
+        }
+    }
+}
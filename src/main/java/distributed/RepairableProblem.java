@@ -0,0 +1,32 @@
+package distributed;
+
+/**
+ * Problems whose solutions the master can check before dispatching them: {@link #repair(Object)} changes the variables
+ * that would only waste the evaluation, and {@link #resolve(Object)} sets the objectives of the solutions whose result
+ * is known without evaluating them. The checks may use what the workers report with the evaluated solutions, which are
+ * all passed to {@link #learn(Object)}.
+ *
+ * @param <S> Solution type
+ */
+public interface RepairableProblem<S> {
+    /**
+     * @return Whether the variables of the solution were changed
+     */
+    boolean repair(S solution);
+
+    /**
+     * @return Whether the objectives of the solution were set, so that it needs no evaluation
+     */
+    boolean resolve(S solution);
+
+    /**
+     * @return Whether the objectives of an evaluated solution can be given to another one with the same variables
+     * (false for failed evaluations, which may succeed when retried)
+     */
+    boolean reusable(double[] objectives);
+
+    /**
+     * Receives every evaluated solution
+     */
+    void learn(S solution);
+}
@@ -11,6 +11,11 @@ import java.io.ObjectOutputStream;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class WorkerDistributed<T extends ParallelTask<?>> {
     protected String ip;
@@ -51,15 +56,27 @@ public class WorkerDistributed<T extends ParallelTask<?>> {
 
             Problem problem = (Problem) input.readObject();
             output.writeObject(myIp);
+            if (problem instanceof CacheAwareProblem)
+                output.writeObject(new HashSet<>(((CacheAwareProblem<?>) problem).cachedKeys()));
+            else
+                output.writeObject(new HashSet<String>());
             output.flush();
 
+            ArtifactClient artifacts = problem instanceof ArtifactAwareProblem ? new ArtifactClient(ip, port + 1) : null;
+
             JMetalLogger.logger.info("Worker " + myIp + " starting");
             JMetalLogger.logger.info("Receiving tasks");
+            long tasks = 0;
 
             while (!socket.isClosed()) {
                 try {
                     Object receivedTask = input.readObject();
 
+                    if (receivedTask instanceof PopulationSnapshot<?> snapshot) {
+                        generateOffspring(snapshot, problem, artifacts, input, output);
+                        break;
+                    }
+
                     if (!(receivedTask instanceof ParallelTask)) {
                         JMetalLogger.logger.info("Worker " + myIp + " received invalid task.");
                         break;
@@ -68,13 +85,16 @@ public class WorkerDistributed<T extends ParallelTask<?>> {
                     @SuppressWarnings("unchecked")
                     T task = (T) receivedTask;
 
+                    if (artifacts != null) artifacts.fetchInputs((ArtifactAwareProblem) problem, task.getContents());
                     problem.evaluate(task.getContents());
+                    if (artifacts != null) artifacts.publishOutputs((ArtifactAwareProblem) problem, task.getContents());
 
                     output.writeObject(task);
                     output.flush();
                     output.reset();
 
-                    JMetalLogger.logger.info("Worker " + myIp + " task sent back.");
+                    tasks++;
+                    if (JMetalLogger.sample("task")) JMetalLogger.event("task", "worker", myIp, "tasks", tasks);
 
                 } catch (EOFException e) {
                     JMetalLogger.logger.info("Worker " + myIp + " stopping by master (EOF detected)");
@@ -95,4 +115,73 @@ public class WorkerDistributed<T extends ParallelTask<?>> {
             JMetalLogger.logger.info("Worker " + myIp + " stops.");
         }
     }
+
+    /**
+     * Decentralized variation (see {@link PopulationSnapshot}): offspring of the latest snapshot are evaluated and sent
+     * to the master one after another, while a receiver thread takes the newer snapshots and the tasks of the master,
+     * which are evaluated first. The worker stops when the master closes the connection.
+     */
+    protected void generateOffspring(PopulationSnapshot<?> first, Problem problem, ArtifactClient artifacts, ObjectInputStream input, ObjectOutputStream output) throws IOException {
+        JMetalLogger.logger.info("Worker " + myIp + " generating its own offspring (" + first.size() + " solutions received)");
+
+        socket.setTcpNoDelay(true);
+
+        PopulationSnapshot<?>[] snapshot = {first};
+        BlockingQueue<ParallelTask<?>> assigned = new LinkedBlockingQueue<>();
+        Thread receiver = new Thread(() -> {
+            try {
+                while (true) {
+                    Object message = input.readObject();
+                    if (message instanceof PopulationSnapshot<?> received) {
+                        synchronized (snapshot) {
+                            snapshot[0] = received;
+                        }
+                    } else if (message instanceof ParallelTask<?> task) assigned.add(task);
+                    else break;
+                }
+            } catch (IOException | ClassNotFoundException ignored) {
+                // The master closed the connection
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }, "snapshot-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+
+        Queue<Object> offspring = new ArrayDeque<>();
+        long tasks = 0;
+        while (!socket.isClosed()) {
+            ParallelTask<?> task = assigned.poll();
+            if (task == null) {
+                if (offspring.isEmpty()) {
+                    PopulationSnapshot<?> current;
+                    synchronized (snapshot) {
+                        current = snapshot[0];
+                    }
+                    offspring.addAll(current.offspring(problem));
+                }
+                task = ParallelTask.create(PopulationSnapshot.NEW_TASK, offspring.poll());
+            }
+
+            if (artifacts != null) artifacts.fetchInputs((ArtifactAwareProblem) problem, task.getContents());
+            problem.evaluate(task.getContents());
+            if (artifacts != null) artifacts.publishOutputs((ArtifactAwareProblem) problem, task.getContents());
+
+            try {
+                output.writeObject(task);
+                output.flush();
+                output.reset();
+            } catch (IOException e) {
+                if (!socket.isClosed()) throw e;
+            }
+
+            tasks++;
+            if (JMetalLogger.sample("task")) JMetalLogger.event("task", "worker", myIp, "tasks", tasks);
+        }
+
+        JMetalLogger.logger.info("Worker " + myIp + " stopping by master (" + tasks + " offspring evaluated)");
+    }
 }
@@ -0,0 +1,128 @@
+package distributed;
+
+import util.JMetalLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts and supervises {@code Worker} processes on this host, connected to a master through the loopback address.
+ * The number of workers is bounded by the cores and by the physical memory (a given amount per worker, which also
+ * covers the Python process it runs), and it is adjusted every second:
+ * <ul>
+ * <li>Workers are added (up to the bound) while tasks are waiting in the pending queue, at most as many as tasks
+ * waiting, so the initial population puts every core to work within seconds.</li>
+ * <li>When the available memory drops below the amount of one worker, the newest worker is stopped and the bound
+ * lowered (its task goes back to the pending queue).</li>
+ * <li>Workers that exit while the run is going on are restarted.</li>
+ * </ul>
+ * The output of each worker is written to workers/worker-&lt;i&gt;.log.
+ */
+public class WorkerLauncher {
+    protected static final File LOGS = new File("workers");
+
+    protected final MasterDistributed<?, ?> master;
+    protected final long memoryPerWorker;
+    protected final List<Process> processes = new ArrayList<>();
+    protected final ScheduledExecutorService supervisor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "worker-launcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    protected int capacity;
+    protected int started;
+
+    /**
+     * @param maximum         Maximum number of workers (0 for the number of cores)
+     * @param memoryPerWorker Memory taken by each worker and its evaluations (MB)
+     */
+    public WorkerLauncher(MasterDistributed<?, ?> master, int maximum, long memoryPerWorker) {
+        this.master = master;
+        this.memoryPerWorker = memoryPerWorker;
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        long byMemory = freeMemory() / memoryPerWorker;
+        capacity = (int) Math.max(1, Math.min(maximum > 0 ? maximum : cores, byMemory));
+
+        JMetalLogger.logger.info("Up to " + capacity + " local workers (" + cores + " cores, " + freeMemory() + " MB free, " + memoryPerWorker + " MB per worker)");
+    }
+
+    public void start() {
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+        supervisor.scheduleWithFixedDelay(this::supervise, 0, 1, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        supervisor.shutdownNow();
+        processes.forEach(Process::destroy);
+        processes.clear();
+    }
+
+    protected synchronized void supervise() {
+        try {
+            if (!master.stoppingConditionIsNotMet()) return;
+
+            for (Process process : new ArrayList<>(processes)) {
+                if (!process.isAlive()) {
+                    JMetalLogger.logger.info("Local worker " + process.pid() + " exited with code " + process.exitValue() + ", restarting it");
+                    processes.remove(process);
+                }
+            }
+
+            if (processes.size() > 1 && freeMemory() < memoryPerWorker) {
+                capacity = processes.size() - 1;
+                Process newest = processes.remove(processes.size() - 1);
+                newest.destroy();
+                JMetalLogger.logger.info("Low memory (" + freeMemory() + " MB free): local workers reduced to " + capacity);
+            }
+
+            int waiting = master.getPendingTaskQueue().size();
+            int target = Math.min(capacity, processes.size() + Math.max(waiting, processes.isEmpty() ? 1 : 0));
+            while (processes.size() < target) processes.add(launch());
+        } catch (IOException | RuntimeException e) {
+            JMetalLogger.logger.info("ERROR launching local workers:\n\t" + e);
+        }
+    }
+
+    protected Process launch() throws IOException {
+        String java = new File(System.getProperty("java.home"), "bin/java").getPath();
+        long heap = Math.max(256, memoryPerWorker / 2);
+
+        LOGS.mkdirs();
+        File log = new File(LOGS, "worker-" + started++ + ".log");
+
+        return new ProcessBuilder(java, "-Xmx" + heap + "m", "-cp", System.getProperty("java.class.path"), "Worker", "127.0.0.1", String.valueOf(master.getPort()))
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+    }
+
+    /**
+     * @return Available physical memory (MB): MemAvailable in Linux (free memory plus reclaimable caches), the free
+     * memory reported by the JVM elsewhere, or the maximum if the JVM does not report it
+     */
+    protected static long freeMemory() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/meminfo")))
+                if (line.startsWith("MemAvailable:"))
+                    return Long.parseLong(line.replaceAll("[^0-9]", "")) / 1024;
+        } catch (IOException | NumberFormatException ignored) {
+        }
+
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean)
+            return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getFreeMemorySize() / (1024 * 1024);
+        return Long.MAX_VALUE;
+    }
+
+    public synchronized int size() {
+        return processes.size();
+    }
+}
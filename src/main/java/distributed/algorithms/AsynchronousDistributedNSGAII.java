@@ -11,6 +11,8 @@ import org.uma.jmetal.solution.compositesolution.CompositeSolution;
 import org.uma.jmetal.util.comparator.RankingAndCrowdingDistanceComparator;
 import org.uma.jmetal.util.comparator.dominanceComparator.impl.DefaultDominanceComparator;
 
+import java.util.Comparator;
+
 public class AsynchronousDistributedNSGAII<S extends Solution<?>> extends AsynchronousDistributedEvolutionaryAlgorithm<CompositeSolution> {
 
     public AsynchronousDistributedNSGAII(int port, Problem<CompositeSolution> problem, int populationSize, CrossoverOperator<CompositeSolution> crossover, MutationOperator<CompositeSolution> mutation, Termination termination) {
@@ -19,4 +21,17 @@ public class AsynchronousDistributedNSGAII<S extends Solution<?>> extends Asynch
         //new RankingAndDensityEstimatorReplacement<>(new MergeNonDominatedSortRanking<>(), new CrowdingDistanceDensityEstimator<>(), Replacement.RemovalPolicy.ONE_SHOT)
         waitForWorkers();
     }
+
+    /**
+     * Workers run binary tournaments on the population sorted by rank and crowding distance
+     */
+    @Override
+    protected Comparator<CompositeSolution> snapshotOrder() {
+        return new RankingAndCrowdingDistanceComparator<>();
+    }
+
+    @Override
+    protected int workerTournamentSize() {
+        return 2;
+    }
 }
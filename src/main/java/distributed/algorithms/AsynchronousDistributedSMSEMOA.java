@@ -0,0 +1,161 @@
+package distributed.algorithms;
+
+import distributed.AsynchronousDistributedEvolutionaryAlgorithm;
+import org.uma.jmetal.component.catalogue.common.termination.Termination;
+import org.uma.jmetal.operator.crossover.CrossoverOperator;
+import org.uma.jmetal.operator.mutation.MutationOperator;
+import org.uma.jmetal.operator.selection.impl.RandomSelection;
+import org.uma.jmetal.problem.Problem;
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
+import org.uma.jmetal.util.comparator.dominanceComparator.impl.DefaultDominanceComparator;
+import org.uma.jmetal.util.ranking.Ranking;
+import org.uma.jmetal.util.ranking.impl.FastNonDominatedSortRanking;
+import util.HypervolumeContributions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Asynchronous steady-state SMS-EMOA: parents are chosen at random, and each evaluated solution joins the population,
+ * from which the solution with the smallest exclusive hypervolume contribution to the last non-dominated front is
+ * dropped. Objectives are normalized by the given bounds, with the reference point at 1.1 in each of them.
+ * <p>
+ * The non-dominated fronts of the population are kept between replacements: the new solution joins the first front
+ * where no solution dominates it, and the solutions of that front it dominates move to the next one, pushing in turn
+ * the solutions they dominate there (O(M N) comparisons instead of sorting the population again, which is only done
+ * when the population was replaced or changed by other means). The removed solution belongs to the last front, which dominates no
+ * other, so the removal does not change the rest. The contributions of the last front are also kept
+ * ({@link HypervolumeContributions}): when the front is the previous one plus the new solution, which is the common
+ * case once the population has converged, they are updated for the insertion and the removal only. Otherwise (the
+ * front changed) they are rebuilt.
+ */
+public class AsynchronousDistributedSMSEMOA extends AsynchronousDistributedEvolutionaryAlgorithm<CompositeSolution> {
+    protected static final double[] REFERENCE = {1.1, 1.1, 1.1};
+
+    protected final double[] lower;
+    protected final double[] upper;
+    protected final List<CompositeSolution> lastFront;
+    protected HypervolumeContributions contributions;
+    // Fronts of the population returned by the last replacement
+    protected final List<List<CompositeSolution>> fronts;
+    protected List<CompositeSolution> sorted;
+
+    public AsynchronousDistributedSMSEMOA(int port, Problem<CompositeSolution> problem, int populationSize, CrossoverOperator<CompositeSolution> crossover, MutationOperator<CompositeSolution> mutation, Termination termination, double[] lower, double[] upper) {
+        super(port, problem, populationSize, crossover, mutation, new RandomSelection<>(), new DefaultDominanceComparator<>(), termination);
+        this.lower = lower.clone();
+        this.upper = upper.clone();
+        this.lastFront = new ArrayList<>();
+        this.fronts = new ArrayList<>();
+        setHypervolumeBounds(lower, upper);
+        waitForWorkers();
+    }
+
+    @Override
+    protected List<CompositeSolution> replace(List<CompositeSolution> population, CompositeSolution offspring) {
+        if (population != sorted || fronts.stream().mapToInt(List::size).sum() != population.size()) sort(population);
+        insert(offspring);
+
+        List<CompositeSolution> union = new ArrayList<>(population);
+        union.add(offspring);
+
+        List<CompositeSolution> last = fronts.get(fronts.size() - 1);
+
+        CompositeSolution removed;
+        if (last.size() == 1) {
+            removed = last.get(0);
+            contributions = null;
+            lastFront.clear();
+        } else {
+            if (isLastFrontPlus(last, offspring)) {
+                contributions.add(normalize(offspring));
+                lastFront.add(offspring);
+            } else {
+                contributions = new HypervolumeContributions(REFERENCE);
+                lastFront.clear();
+                for (CompositeSolution solution : last) {
+                    contributions.add(normalize(solution));
+                    lastFront.add(solution);
+                }
+            }
+
+            int worst = contributions.smallest();
+            removed = lastFront.remove(worst);
+            contributions.remove(worst);
+        }
+
+        last.removeIf(solution -> solution == removed);
+        if (last.isEmpty()) fronts.remove(fronts.size() - 1);
+        union.removeIf(solution -> solution == removed);
+        sorted = union;
+        return union;
+    }
+
+    protected void sort(List<CompositeSolution> population) {
+        Ranking<CompositeSolution> ranking = new FastNonDominatedSortRanking<>(dominanceComparator).compute(population);
+        fronts.clear();
+        for (int i = 0; i < ranking.getNumberOfSubFronts(); i++)
+            fronts.add(new ArrayList<>(ranking.getSubFront(i)));
+        contributions = null;
+        lastFront.clear();
+    }
+
+    /**
+     * Adds the solution to the first front where it is not dominated, moving down the solutions it displaces
+     */
+    protected void insert(CompositeSolution solution) {
+        int rank = 0;
+        while (rank < fronts.size() && dominated(solution, fronts.get(rank))) rank++;
+
+        List<CompositeSolution> moving = List.of(solution);
+        while (!moving.isEmpty()) {
+            if (rank == fronts.size()) {
+                fronts.add(new ArrayList<>(moving));
+                return;
+            }
+
+            List<CompositeSolution> front = fronts.get(rank++);
+            List<CompositeSolution> displaced = new ArrayList<>();
+            List<CompositeSolution> arriving = moving;
+            front.removeIf(member -> {
+                if (!dominated(member, arriving)) return false;
+                displaced.add(member);
+                return true;
+            });
+            front.addAll(moving);
+            moving = displaced;
+        }
+    }
+
+    /**
+     * @return True if any of the solutions dominates the solution
+     */
+    protected boolean dominated(CompositeSolution solution, List<CompositeSolution> solutions) {
+        for (CompositeSolution other : solutions)
+            if (dominanceComparator.compare(other, solution) < 0) return true;
+        return false;
+    }
+
+    /**
+     * @return True if the front is the front of the kept contributions plus the offspring
+     */
+    protected boolean isLastFrontPlus(List<CompositeSolution> front, CompositeSolution offspring) {
+        if (contributions == null || front.size() != lastFront.size() + 1) return false;
+
+        Set<CompositeSolution> members = Collections.newSetFromMap(new IdentityHashMap<>());
+        members.addAll(front);
+        if (!members.remove(offspring)) return false;
+        for (CompositeSolution solution : lastFront)
+            if (!members.remove(solution)) return false;
+        return members.isEmpty();
+    }
+
+    protected double[] normalize(CompositeSolution solution) {
+        double[] point = new double[3];
+        for (int i = 0; i < 3; i++)
+            point[i] = (solution.objectives()[i] - lower[i]) / (upper[i] - lower[i]);
+        return point;
+    }
+}
@@ -0,0 +1,27 @@
+package evaluation;
+
+/**
+ * Balanced accuracy as balanced_accuracy_score: mean recall over the classes present in the true labels
+ */
+public class BalancedAccuracy {
+    public static double score(int[] truth, int[] predicted, int numberOfClasses) {
+        int[] support = new int[numberOfClasses];
+        int[] hits = new int[numberOfClasses];
+
+        for (int i = 0; i < truth.length; i++) {
+            support[truth[i]]++;
+            if (truth[i] == predicted[i]) hits[truth[i]]++;
+        }
+
+        double sum = 0.0;
+        int classes = 0;
+        for (int c = 0; c < numberOfClasses; c++) {
+            if (support[c] > 0) {
+                sum += (double) hits[c] / support[c];
+                classes++;
+            }
+        }
+
+        return classes > 0 ? sum / classes : 0.0;
+    }
+}
@@ -0,0 +1,384 @@
+package evaluation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary cache of the flow columns of a scenario. The dataset CSV is memory-mapped and only the feature and label
+ * columns of the scenario are parsed, straight from the mapped bytes into primitive columns, dropping the rows with
+ * missing or infinite values as Data.extract_data does and interning the labels in order of first occurrence. The
+ * result is saved at lmoments/data/.columns/<dataset>.<file hash>.<columns hash>.bin, so a changed file or another
+ * selection of columns gets its own cache. Hashing the CSV costs another full read, so the cache in use is recorded in
+ * a stamp (<dataset>.<columns hash>.stamp, a JSON line with the size and modification time of the CSV in ms and the
+ * name of the cache): while the CSV keeps that size and time, Java and Python find the cache without hashing it.
+ * <p>
+ * A cache file starts with a JSON line (padded with spaces to a multiple of 64 bytes) describing its contents: rows,
+ * features, label names and the byte offsets of the columns (little-endian float64, column after column) and of the
+ * labels (little-endian int32). Python maps it without copying with numpy.memmap (see lmoments/src/columns.py).
+ */
+public class ColumnCache {
+    public static final File DIRECTORY = new File("lmoments/data/.columns");
+
+    protected static final int VERSION = 1;
+    protected static final int ALIGNMENT = 64;
+    protected static final long CHUNK = 1L << 30;
+
+    /**
+     * @return Flow columns of the scenario, from the binary cache when it exists
+     */
+    public static FlowDataset load(Scenario scenario) throws IOException {
+        File csv = scenario.datasetFile();
+        File stamp = stampFile(csv, scenario.features, scenario.labels);
+        File cache = stamped(stamp, csv);
+        if (cache != null) return read(cache);
+
+        cache = cacheFile(csv, scenario.features, scenario.labels);
+        FlowDataset dataset;
+        if (cache.exists()) {
+            dataset = read(cache);
+        } else {
+            dataset = parse(csv, scenario.features, scenario.labels);
+            write(cache, dataset);
+        }
+        writeStamp(stamp, csv, cache);
+        return dataset;
+    }
+
+    public static File cacheFile(File csv, List<String> features, String labelColumn) throws IOException {
+        return new File(DIRECTORY, csv.getName() + "." + fileHash(csv).substring(0, 16) + "." + columnsHash(features, labelColumn) + ".bin");
+    }
+
+    public static File stampFile(File csv, List<String> features, String labelColumn) {
+        return new File(DIRECTORY, csv.getName() + "." + columnsHash(features, labelColumn) + ".stamp");
+    }
+
+    protected static String columnsHash(List<String> features, String labelColumn) {
+        String columns = String.join("\n", features) + "\n" + labelColumn;
+        return hex(digest().digest(columns.getBytes(StandardCharsets.UTF_8))).substring(0, 16);
+    }
+
+    /**
+     * @return Cache named by the stamp, or null if there is no stamp, the CSV changed since it was written or the cache
+     * no longer exists
+     */
+    protected static File stamped(File stamp, File csv) throws IOException {
+        if (!stamp.isFile()) return null;
+
+        JsonNode node;
+        try {
+            node = new ObjectMapper().readTree(stamp);
+        } catch (IOException e) {
+            return null;
+        }
+        if (node == null || node.path("size").asLong(-1) != csv.length() || node.path("modified").asLong(-1) != modified(csv))
+            return null;
+
+        File cache = new File(DIRECTORY, node.path("cache").asText());
+        return cache.isFile() ? cache : null;
+    }
+
+    protected static void writeStamp(File stamp, File csv, File cache) throws IOException {
+        Map<String, Object> contents = new LinkedHashMap<>();
+        contents.put("size", csv.length());
+        contents.put("modified", modified(csv));
+        contents.put("cache", cache.getName());
+
+        File temporary = Files.createTempFile(DIRECTORY.toPath(), stamp.getName(), ".tmp").toFile();
+        try {
+            Files.write(temporary.toPath(), new ObjectMapper().writeValueAsBytes(contents));
+            Files.move(temporary.toPath(), stamp.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    /**
+     * @return Modification time of the file in ms (st_mtime_ns // 1000000 in Python)
+     */
+    protected static long modified(File file) throws IOException {
+        return Files.getLastModifiedTime(file.toPath()).toMillis();
+    }
+
+    /**
+     * @return SHA-256 of the contents of the file (hexadecimal)
+     */
+    public static String fileHash(File file) throws IOException {
+        MessageDigest digest = digest();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += CHUNK)
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK, size - position)));
+        }
+        return hex(digest.digest());
+    }
+
+    /**
+     * Parses the columns of the CSV file from memory-mapped chunks of up to 1 GiB (each one remapped from the start of
+     * its first complete line)
+     */
+    public static FlowDataset parse(File csv, List<String> features, String labelColumn) throws IOException {
+        try (FileChannel channel = FileChannel.open(csv.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(CHUNK, size));
+
+            int headerEnd = nextLine(buffer, 0);
+            if (headerEnd < 0) throw new IOException("Missing header in " + csv);
+            String header = StandardCharsets.UTF_8.decode(buffer.slice(0, headerEnd)).toString().stripTrailing();
+            String[] names = FlowDataset.mangle(header.split(",", -1));
+
+            int[] featureOfField = new int[names.length];
+            Arrays.fill(featureOfField, -1);
+            for (int f = 0; f < features.size(); f++)
+                featureOfField[FlowDataset.indexOf(names, features.get(f), csv)] = f;
+            int labelField = FlowDataset.indexOf(names, labelColumn, csv);
+
+            Columns columns = new Columns(features.size());
+            ByteSequence field = new ByteSequence();
+            double[] row = new double[features.size()];
+
+            long base = 0;
+            int position = headerEnd + 1;
+            while (true) {
+                int end = nextLine(buffer, position);
+                if (end < 0) {
+                    if (base + buffer.limit() >= size) {
+                        if (position < buffer.limit()) parseLine(buffer, position, buffer.limit(), featureOfField, labelField, field, row, columns);
+                        break;
+                    }
+                    if (position == 0) throw new IOException("Line longer than " + CHUNK + " bytes in " + csv);
+                    base += position;
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(CHUNK, size - base));
+                    position = 0;
+                    continue;
+                }
+
+                parseLine(buffer, position, end, featureOfField, labelField, field, row, columns);
+                position = end + 1;
+            }
+
+            return columns.toDataset(features);
+        }
+    }
+
+    /**
+     * @return Position of the next line break from position, or -1 if the buffer ends before
+     */
+    protected static int nextLine(ByteBuffer buffer, int position) {
+        for (int i = position; i < buffer.limit(); i++)
+            if (buffer.get(i) == '\n') return i;
+        return -1;
+    }
+
+    protected static void parseLine(ByteBuffer buffer, int from, int to, int[] featureOfField, int labelField, ByteSequence field, double[] row, Columns columns) {
+        if (to > from && buffer.get(to - 1) == '\r') to--;
+        if (to == from) return;
+
+        int index = 0;
+        int start = from;
+        int parsed = 0;
+        String label = null;
+
+        for (int i = from; i <= to; i++) {
+            if (i == to || buffer.get(i) == ',') {
+                if (index < featureOfField.length && featureOfField[index] >= 0) {
+                    double value = FlowRecordParser.parseDouble(field.wrap(buffer, start, i), 0, i - start);
+                    if (!Double.isFinite(value)) return;
+                    row[featureOfField[index]] = value;
+                    parsed++;
+                } else if (index == labelField) {
+                    label = StandardCharsets.UTF_8.decode(buffer.slice(start, i - start)).toString().stripLeading();
+                }
+                index++;
+                start = i + 1;
+            }
+        }
+
+        if (parsed == row.length && label != null && !label.isEmpty())
+            columns.add(row, label);
+    }
+
+    public static FlowDataset read(File cache) throws IOException {
+        try (FileChannel channel = FileChannel.open(cache.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1 << 20));
+            int headerEnd = nextLine(first, 0);
+            if (headerEnd < 0) throw new IOException("Invalid column cache " + cache);
+            JsonNode header = new ObjectMapper().readTree(StandardCharsets.UTF_8.decode(first.slice(0, headerEnd)).toString());
+            if (header.get("version").asInt() != VERSION) throw new IOException("Unsupported column cache version in " + cache);
+
+            int rows = header.get("rows").asInt();
+            List<String> features = new ArrayList<>();
+            header.get("features").forEach(name -> features.add(name.asText()));
+            List<String> labelNames = new ArrayList<>();
+            header.get("labels").forEach(name -> labelNames.add(name.asText()));
+            long columnsOffset = header.get("columns_offset").asLong();
+            long labelsOffset = header.get("labels_offset").asLong();
+
+            double[][] columns = new double[features.size()][rows];
+            for (int f = 0; f < features.size(); f++)
+                channel.map(FileChannel.MapMode.READ_ONLY, columnsOffset + (long) f * rows * Double.BYTES, (long) rows * Double.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(columns[f]);
+
+            int[] labels = new int[rows];
+            channel.map(FileChannel.MapMode.READ_ONLY, labelsOffset, (long) rows * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(labels);
+
+            return new FlowDataset(features.toArray(new String[0]), columns, labels, labelNames);
+        }
+    }
+
+    /**
+     * Writes the cache to a temporary file that is then renamed, so concurrent readers never see a partial cache
+     */
+    public static void write(File cache, FlowDataset dataset) throws IOException {
+        cache.getParentFile().mkdirs();
+
+        long columnsBytes = (long) dataset.features.length * dataset.rows * Double.BYTES;
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("version", VERSION);
+        header.put("rows", dataset.rows);
+        header.put("features", dataset.features);
+        header.put("labels", dataset.labelNames);
+        header.put("columns_offset", 0L);
+        header.put("labels_offset", 0L);
+
+        // The offsets depend on the length of the header, which depends on the offsets: pad generously
+        byte[] json = new ObjectMapper().writeValueAsBytes(header);
+        long headerLength = ((json.length + 2 * 20 + 1) / ALIGNMENT + 1) * ALIGNMENT;
+        header.put("columns_offset", headerLength);
+        header.put("labels_offset", headerLength + columnsBytes);
+        json = new ObjectMapper().writeValueAsBytes(header);
+
+        ByteBuffer headerBuffer = ByteBuffer.allocate((int) headerLength);
+        headerBuffer.put(json);
+        while (headerBuffer.position() < headerLength - 1) headerBuffer.put((byte) ' ');
+        headerBuffer.put((byte) '\n');
+        headerBuffer.flip();
+
+        File temporary = new File(cache.getPath() + "." + ProcessHandle.current().pid() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (headerBuffer.hasRemaining()) channel.write(headerBuffer);
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(dataset.rows, 1) * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (double[] column : dataset.columns) {
+                buffer.clear();
+                buffer.asDoubleBuffer().put(column);
+                buffer.limit(column.length * Double.BYTES);
+                while (buffer.hasRemaining()) channel.write(buffer);
+            }
+
+            buffer.clear();
+            buffer.asIntBuffer().put(dataset.labels);
+            buffer.limit(dataset.labels.length * Integer.BYTES);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+
+        Files.move(temporary.toPath(), cache.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    protected static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected static String hex(byte[] bytes) {
+        StringBuilder builder = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) builder.append(String.format("%02x", b));
+        return builder.toString();
+    }
+
+    /**
+     * Growable primitive columns and interned labels
+     */
+    protected static class Columns {
+        protected double[][] values;
+        protected int[] labels = new int[1 << 16];
+        protected final List<String> labelNames = new ArrayList<>();
+        protected final Map<String, Integer> labelIds = new HashMap<>();
+        protected int rows;
+
+        protected Columns(int numberOfFeatures) {
+            values = new double[numberOfFeatures][1 << 16];
+        }
+
+        protected void add(double[] row, String label) {
+            if (rows == labels.length) {
+                labels = Arrays.copyOf(labels, rows * 2);
+                for (int f = 0; f < values.length; f++)
+                    values[f] = Arrays.copyOf(values[f], rows * 2);
+            }
+
+            for (int f = 0; f < values.length; f++)
+                values[f][rows] = row[f];
+            labels[rows] = labelIds.computeIfAbsent(label, l -> {
+                labelNames.add(l);
+                return labelNames.size() - 1;
+            });
+            rows++;
+        }
+
+        protected FlowDataset toDataset(List<String> features) {
+            double[][] columns = new double[values.length][];
+            for (int f = 0; f < values.length; f++)
+                columns[f] = Arrays.copyOf(values[f], rows);
+            return new FlowDataset(features.toArray(new String[0]), columns, Arrays.copyOf(labels, rows), labelNames);
+        }
+    }
+
+    /**
+     * ASCII view of a range of a byte buffer, reused for every field
+     */
+    protected static class ByteSequence implements CharSequence {
+        protected ByteBuffer buffer;
+        protected int from;
+        protected int length;
+
+        protected ByteSequence wrap(ByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.from = from;
+            this.length = to - from;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(from + index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return StandardCharsets.ISO_8859_1.decode(buffer.slice(from, length)).toString();
+        }
+    }
+}
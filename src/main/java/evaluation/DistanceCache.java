@@ -0,0 +1,132 @@
+package evaluation;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Pairwise squared distances of the standardized selected ratios, shared by the estimators, splits and stacking folds of
+ * an evaluation and reused across evaluations. The squared differences of each column of an L-moment matrix (a block)
+ * are computed once per matrix, and the distances of a selection of columns are their sum weighted by 1 / scale^2,
+ * accumulated in ascending column order so that they do not depend on what was cached or evicted before. Blocks are
+ * the state reused across selections, so views are only given distances when all the blocks of their matrix fit in
+ * half of a least recently used budget of distances.budget MiB (a quarter of the heap by default), shared with the
+ * matrices of the selections; otherwise (the smaller sample sizes) they are returned unchanged and the estimators
+ * compute their distances. So are views of up to {@link #ATTACH_DIMENSIONS} selected ratios, where the k-nearest
+ * neighbors keep their kd-tree and the RBF support vector machines gained less than the build of the matrix took. Each
+ * block or matrix is built once outside the lock, while other threads asking for it wait for that build.
+ */
+public class DistanceCache {
+    public static final long BUDGET = Long.getLong("distances.budget", Runtime.getRuntime().maxMemory() / 4 >> 20) << 20;
+
+    public static final int ATTACH_DIMENSIONS = 12;
+
+    protected static final Map<Object, PairwiseDistances> entries = new LinkedHashMap<>(16, 0.75f, true);
+    protected static final Map<Object, CompletableFuture<PairwiseDistances>> building = new HashMap<>();
+    protected static long bytes;
+
+    /**
+     * @return The view with the distances of its rows attached, or the view itself when the blocks of its matrix do not
+     * fit in the budget
+     */
+    public static FeatureView attach(LmomentDataset dataset, FeatureView x) {
+        if (x.columns != dataset.columns || x.dimensions() <= ATTACH_DIMENSIONS) return x;
+        if (dataset.columns.length * PairwiseDistances.bytes(dataset.rows) > BUDGET / 2) return x;
+        return x.withDistances(distances(dataset, x.selected, x.scale));
+    }
+
+    protected static PairwiseDistances distances(LmomentDataset dataset, int[] columns, double[] scale) {
+        Map<Integer, Double> weights = new TreeMap<>();
+        for (int d = 0; d < columns.length; d++) weights.put(columns[d], 1.0 / (scale[d] * scale[d]));
+
+        return get(new Selection(dataset, weights), () -> {
+            PairwiseDistances[] blocks = new PairwiseDistances[weights.size()];
+            double[] w = new double[weights.size()];
+            int c = 0;
+            for (Map.Entry<Integer, Double> weight : weights.entrySet()) {
+                blocks[c] = block(dataset, weight.getKey());
+                w[c++] = weight.getValue();
+            }
+            return PairwiseDistances.sum(blocks, w, dataset.rows);
+        });
+    }
+
+    protected static PairwiseDistances block(LmomentDataset dataset, int column) {
+        return get(new Block(dataset, column), () -> PairwiseDistances.of(dataset.columns[column], dataset.rows));
+    }
+
+    /**
+     * @return Cached distances of the key, built by this thread or waited for when another one is building them
+     */
+    protected static PairwiseDistances get(Object key, Supplier<PairwiseDistances> builder) {
+        CompletableFuture<PairwiseDistances> future;
+        synchronized (DistanceCache.class) {
+            PairwiseDistances distances = entries.get(key);
+            if (distances != null) return distances;
+
+            future = building.get(key);
+            if (future == null) building.put(key, new CompletableFuture<>());
+        }
+        if (future != null) return future.join();
+
+        PairwiseDistances distances;
+        try {
+            distances = builder.get();
+        } catch (RuntimeException | Error e) {
+            synchronized (DistanceCache.class) {
+                building.remove(key).completeExceptionally(e);
+            }
+            throw e;
+        }
+        synchronized (DistanceCache.class) {
+            put(key, distances);
+            building.remove(key).complete(distances);
+        }
+        return distances;
+    }
+
+    protected static void put(Object key, PairwiseDistances distances) {
+        PairwiseDistances previous = entries.put(key, distances);
+        if (previous != null) bytes -= previous.bytes();
+        bytes += distances.bytes();
+
+        Iterator<Map.Entry<Object, PairwiseDistances>> iterator = entries.entrySet().iterator();
+        while (bytes > BUDGET && iterator.hasNext()) {
+            Map.Entry<Object, PairwiseDistances> eldest = iterator.next();
+            if (eldest.getKey().equals(key)) continue;
+            bytes -= eldest.getValue().bytes();
+            iterator.remove();
+        }
+    }
+
+    public static synchronized long bytes() {
+        return bytes;
+    }
+
+    public static synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    protected record Block(LmomentDataset dataset, int column) {
+    }
+
+    /**
+     * Columns of a matrix with their weights
+     */
+    protected record Selection(LmomentDataset dataset, Map<Integer, Double> weights) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Selection selection && selection.dataset == dataset && selection.weights.equals(weights);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(dataset) * 31 + weights.hashCode();
+        }
+    }
+}
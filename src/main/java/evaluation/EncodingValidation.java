@@ -0,0 +1,179 @@
+package evaluation;
+
+import org.uma.jmetal.util.binarySet.BinarySet;
+import util.JMetalLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks that the reduced-precision encodings of {@link LmomentMatrixFile} do not change which configurations are
+ * better. Usage:
+ * <p>
+ * EncodingValidation <scenario_json> ... [--n=10,50,200] [--configurations=20] [--seed=1]
+ * <p>
+ * For each scenario and sample size, the L-moment matrix is loaded from its CSV cache (or computed), written with each
+ * encoding to a temporary folder and read back, reporting the size of each file, the time to read it and the largest
+ * error of its columns. The same random configurations are then evaluated on the matrix and on each decoded copy,
+ * reporting the largest change of balanced accuracy and the number of pairs of configurations whose order changes
+ * (Kendall's tau is 1 when there are none). The fitted models are sensitive to the last bits of the data (SMO and SGD
+ * take other paths), so the same figures are first reported for the matrix perturbed by a relative 1e-12: changes of
+ * the encodings within that noise floor are not due to their precision. Run it without -Dlmoments.encoding, so the
+ * reference is the CSV.
+ */
+public class EncodingValidation {
+    protected static final LmomentMatrixFile.Encoding[] ENCODINGS = {LmomentMatrixFile.Encoding.FLOAT32, LmomentMatrixFile.Encoding.INT16};
+    protected static final double NOISE = 1e-12;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: EncodingValidation <scenario_json> ... [--n=10,50,200] [--configurations=20] [--seed=1]");
+            System.exit(1);
+        }
+        if (LmomentMatrixFile.ENCODING != LmomentMatrixFile.Encoding.CSV)
+            throw new IllegalStateException("Run without -Dlmoments.encoding: the reference matrix must come from the CSV");
+
+        int[] sizes = {10, 50, 200};
+        int configurations = 20;
+        long seed = 1;
+        List<String> scenarios = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--n=")) sizes = Arrays.stream(arg.substring("--n=".length()).split(",")).mapToInt(Integer::parseInt).toArray();
+            else if (arg.startsWith("--configurations=")) configurations = Integer.parseInt(arg.substring("--configurations=".length()));
+            else if (arg.startsWith("--seed=")) seed = Long.parseLong(arg.substring("--seed=".length()));
+            else scenarios.add(arg);
+        }
+
+        File directory = Files.createTempDirectory("lmoments-encoding").toFile();
+        directory.deleteOnExit();
+        boolean unchanged = true;
+
+        for (String name : scenarios) {
+            Scenario scenario = JavaEnsembleEvaluator.scenario("lmoments/conf_default/" + name);
+            String[] names = scenario.tauColumns();
+            for (int n : sizes) {
+                LmomentDataset reference = JavaEnsembleEvaluator.lmoments(scenario, n);
+                System.out.printf(Locale.ROOT, "%n==> %s n=%d (%d windows, %d columns)%n", scenario.name, n, reference.rows, names.length);
+
+                File csv = scenario.lmomentFile(n);
+                if (csv.exists()) {
+                    long start = System.nanoTime();
+                    LmomentDataset.readColumns(csv, names);
+                    System.out.printf(Locale.ROOT, "  csv      %10d bytes  read %8.1f ms%n", csv.length(), (System.nanoTime() - start) / 1e6);
+                }
+
+                List<EnsembleConfiguration> sample = configurations(scenario, n, reference.rows, configurations, seed);
+                double[] expected = evaluate(reference, sample);
+                double[] perturbed = evaluate(new LmomentDataset(n, perturb(reference.columns, new Random(seed)), reference.labels), sample);
+                System.out.printf(Locale.ROOT, "  %-8s %s%n", "noise", compare(expected, perturbed));
+
+                for (LmomentMatrixFile.Encoding encoding : ENCODINGS) {
+                    File file = new File(directory, scenario.name + "." + n + "." + encoding.name().toLowerCase(Locale.ROOT) + ".bin");
+                    LmomentMatrixFile.write(file, names, reference.columns, encoding);
+                    long start = System.nanoTime();
+                    LmomentMatrixFile.Matrix matrix = LmomentMatrixFile.read(file, names);
+                    double readMs = (System.nanoTime() - start) / 1e6;
+                    System.out.printf(Locale.ROOT, "  %-8s %10d bytes  read %8.1f ms  %s%n", encoding.name().toLowerCase(Locale.ROOT), file.length(), readMs,
+                            LmomentMatrixFile.describeErrors(names, matrix.maxErrors));
+                    file.delete();
+
+                    double[] actual = evaluate(new LmomentDataset(n, matrix.columns, reference.labels), sample);
+                    unchanged &= discordantPairs(expected, actual) <= discordantPairs(expected, perturbed);
+                    System.out.printf(Locale.ROOT, "  %-8s %s%n", "", compare(expected, actual));
+                }
+            }
+        }
+
+        System.out.println();
+        System.out.println(unchanged ? "No encoding reorders more pairs than the noise floor" : "Some encodings reorder more pairs than the noise floor: see above");
+    }
+
+    public static String compare(double[] expected, double[] actual) {
+        double maxChange = 0.0;
+        for (int i = 0; i < actual.length; i++) maxChange = Math.max(maxChange, Math.abs(actual[i] - expected[i]));
+        return String.format(Locale.ROOT, "accuracy max change %.3g, %d of %d pairs reordered (Kendall's tau %.4f)",
+                maxChange, discordantPairs(expected, actual), pairs(expected.length), kendallTau(expected, actual));
+    }
+
+    protected static double[][] perturb(double[][] columns, Random random) {
+        double[][] perturbed = new double[columns.length][];
+        for (int c = 0; c < columns.length; c++) {
+            perturbed[c] = columns[c].clone();
+            for (int r = 0; r < perturbed[c].length; r++) perturbed[c][r] *= 1.0 + NOISE * random.nextGaussian();
+        }
+        return perturbed;
+    }
+
+    /**
+     * @return Random configurations of sample size n, with the bounds of {@link problem.LmomEnsembleProblem}
+     */
+    protected static List<EnsembleConfiguration> configurations(Scenario scenario, int n, int rows, int count, long seed) {
+        Random random = new Random(seed + n);
+        int bits = scenario.features.size() * Lmoments.NUMBER_OF_RATIOS + 1;
+        int maxNeighbors = Math.max(5, (int) Math.floor(Math.sqrt(Math.floor(rows * 0.8 * 0.8) / 2.0)));
+        List<EnsembleConfiguration> configurations = new ArrayList<>(count);
+        while (configurations.size() < count) {
+            BinarySet features = new BinarySet(bits);
+            for (int i = 0; i < bits; i++) features.set(i, random.nextBoolean());
+            BinarySet ensemble = new BinarySet(6);
+            for (int i = 0; i < 6; i++) ensemble.set(i, random.nextBoolean());
+            EnsembleConfiguration configuration = new EnsembleConfiguration(features, ensemble,
+                    List.of(n, 2 + random.nextInt(4), 5 + random.nextInt(maxNeighbors - 4)));
+            if (configuration.columns.length > 0) configurations.add(configuration);
+        }
+        return configurations;
+    }
+
+    protected static double[] evaluate(LmomentDataset dataset, List<EnsembleConfiguration> configurations) {
+        double[] accuracies = new double[configurations.size()];
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < accuracies.length; i++)
+            accuracies[i] = JavaEnsembleEvaluator.evaluate(dataset, configurations.get(i));
+        JMetalLogger.logger.info(configurations.size() + " configurations evaluated in " + (System.currentTimeMillis() - start) + " ms");
+        return accuracies;
+    }
+
+    /**
+     * @return Pairs strictly ordered one way by the expected accuracies and the other way by the actual ones
+     */
+    protected static int discordantPairs(double[] expected, double[] actual) {
+        int discordant = 0;
+        for (int i = 0; i < expected.length; i++)
+            for (int j = i + 1; j < expected.length; j++)
+                if (Math.signum(expected[i] - expected[j]) * Math.signum(actual[i] - actual[j]) < 0) discordant++;
+        return discordant;
+    }
+
+    /**
+     * @return Kendall's tau-b between the two lists of accuracies
+     */
+    protected static double kendallTau(double[] expected, double[] actual) {
+        long concordant = 0;
+        long discordant = 0;
+        long tiesExpected = 0;
+        long tiesActual = 0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = i + 1; j < expected.length; j++) {
+                double a = Math.signum(expected[i] - expected[j]);
+                double b = Math.signum(actual[i] - actual[j]);
+                if (a == 0 && b == 0) continue;
+                if (a == 0) tiesExpected++;
+                else if (b == 0) tiesActual++;
+                else if (a == b) concordant++;
+                else discordant++;
+            }
+        }
+        double denominator = Math.sqrt((double) (concordant + discordant + tiesExpected) * (concordant + discordant + tiesActual));
+        return denominator > 0 ? (concordant - discordant) / denominator : 1.0;
+    }
+
+    protected static int pairs(int count) {
+        return count * (count - 1) / 2;
+    }
+}
@@ -0,0 +1,55 @@
+package evaluation;
+
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
+import org.uma.jmetal.util.binarySet.BinarySet;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Classifier configuration encoded by a solution of {@link problem.LmomEnsembleProblem}, decoded as in
+ * lmoments/src/__main__.py. Bit i of the feature set selects the ratio tau(3 + i % 3) of feature i / 3, that is, the
+ * column (i % 3) * numberOfFeatures + i / 3 of the L-moment matrix (all tau3 columns, then tau4, then tau5). As in the
+ * Python code, the last bit of the feature set is never read.
+ */
+public class EnsembleConfiguration implements Serializable {
+    public final int[] columns;
+    public final int n;
+    public final boolean stacking;
+    public final boolean sgdL2Penalty;
+    public final boolean sgdSquaredHinge;
+    public final boolean rbfGammaAuto;
+    public final int polyDegree;
+    public final boolean polyGammaAuto;
+    public final int knnNeighbors;
+    public final boolean knnDistanceWeights;
+
+    public EnsembleConfiguration(BinarySet features, BinarySet ensemble, List<Integer> integers) {
+        int numberOfFeatures = features.getBinarySetLength() / 3;
+        int count = 0;
+        for (int i = 0; i < features.getBinarySetLength() - 1; i++)
+            if (features.get(i)) count++;
+
+        columns = new int[count];
+        count = 0;
+        for (int i = 0; i < features.getBinarySetLength() - 1; i++)
+            if (features.get(i)) columns[count++] = (i % 3) * numberOfFeatures + i / 3;
+
+        n = integers.get(0);
+        stacking = ensemble.get(0);
+        sgdL2Penalty = ensemble.get(1);
+        sgdSquaredHinge = ensemble.get(2) || !ensemble.get(1);
+        rbfGammaAuto = ensemble.get(3);
+        polyDegree = integers.get(1);
+        polyGammaAuto = ensemble.get(4);
+        knnNeighbors = integers.get(2);
+        knnDistanceWeights = ensemble.get(5);
+    }
+
+    public static EnsembleConfiguration of(CompositeSolution solution) {
+        return new EnsembleConfiguration(
+                (BinarySet) solution.variables().get(0).variables().get(0),
+                (BinarySet) solution.variables().get(1).variables().get(0),
+                (List<Integer>) solution.variables().get(2).variables());
+    }
+}
@@ -0,0 +1,37 @@
+package evaluation;
+
+import java.io.Serializable;
+
+/**
+ * Result of one base estimator on one of the shuffle splits of {@link JavaEnsembleEvaluator}, enough for the master to
+ * combine the estimators without the data. For voting, the predictions of the estimator on the test rows. For
+ * stacking, the meta-features the estimator gives to the training rows (cross-validated) and to the test rows (fitted
+ * on the whole training set), {@code width} values per row.
+ */
+public class EvaluationPart implements Serializable {
+    public final int split;
+    public final int estimator;
+    public final int numberOfClasses;
+    public final int[] testLabels;
+    public final int[] predictions;
+    public final int[] trainLabels;
+    public final double[] trainOutputs;
+    public final double[] testOutputs;
+    public final int width;
+
+    public EvaluationPart(int split, int estimator, int numberOfClasses, int[] testLabels, int[] predictions) {
+        this(split, estimator, numberOfClasses, testLabels, predictions, null, null, null, 0);
+    }
+
+    public EvaluationPart(int split, int estimator, int numberOfClasses, int[] testLabels, int[] predictions, int[] trainLabels, double[] trainOutputs, double[] testOutputs, int width) {
+        this.split = split;
+        this.estimator = estimator;
+        this.numberOfClasses = numberOfClasses;
+        this.testLabels = testLabels;
+        this.predictions = predictions;
+        this.trainLabels = trainLabels;
+        this.trainOutputs = trainOutputs;
+        this.testOutputs = testOutputs;
+        this.width = width;
+    }
+}
@@ -0,0 +1,121 @@
+package evaluation;
+
+import java.io.Serializable;
+
+/**
+ * Standardized view of some rows and columns of a column-major matrix. Values are read from the underlying columns
+ * and scaled on the fly, so selecting the features of a genotype or the rows of a fold never copies data.
+ */
+public class FeatureView implements Serializable {
+    protected final double[][] columns;
+    protected final int[] selected;
+    protected final int[] rows;
+    protected final double[] mean;
+    protected final double[] scale;
+    // Distances between the rows of the underlying matrix (see DistanceCache), not serialized
+    protected transient PairwiseDistances distances;
+
+    public FeatureView(double[][] columns, int[] selected, int[] rows, double[] mean, double[] scale) {
+        this.columns = columns;
+        this.selected = selected;
+        this.rows = rows;
+        this.mean = mean;
+        this.scale = scale;
+    }
+
+    /**
+     * Standardizes the selected columns over the given rows, as StandardScaler does (population standard deviation,
+     * columns with zero variance are only centered)
+     */
+    public static FeatureView standardized(double[][] columns, int[] selected, int[] rows) {
+        double[] mean = new double[selected.length];
+        double[] scale = new double[selected.length];
+
+        for (int d = 0; d < selected.length; d++) {
+            double[] column = columns[selected[d]];
+            double sum = 0.0;
+            for (int row : rows) sum += column[row];
+            mean[d] = sum / rows.length;
+
+            double squares = 0.0;
+            for (int row : rows) squares += (column[row] - mean[d]) * (column[row] - mean[d]);
+            double std = Math.sqrt(squares / rows.length);
+            scale[d] = std > 0.0 ? std : 1.0;
+        }
+
+        return new FeatureView(columns, selected, rows, mean, scale);
+    }
+
+    /**
+     * @return View of the given rows of this view (indexes relative to this view)
+     */
+    public FeatureView subset(int[] viewRows) {
+        int[] subset = new int[viewRows.length];
+        for (int i = 0; i < viewRows.length; i++)
+            subset[i] = rows[viewRows[i]];
+        return new FeatureView(columns, selected, subset, mean, scale).withDistances(distances);
+    }
+
+    /**
+     * @return View of the same rows whose distances are read from the given matrix
+     */
+    public FeatureView withDistances(PairwiseDistances distances) {
+        FeatureView view = new FeatureView(columns, selected, rows, mean, scale);
+        view.distances = distances;
+        return view;
+    }
+
+    /**
+     * @return Pairwise distances of the standardized rows (indexed by {@link #sourceRow(int)}), or null if they are not
+     * available
+     */
+    public PairwiseDistances distances() {
+        return distances;
+    }
+
+    public int rows() {
+        return rows.length;
+    }
+
+    public int dimensions() {
+        return selected.length;
+    }
+
+    public double get(int row, int dimension) {
+        return (columns[selected[dimension]][rows[row]] - mean[dimension]) / scale[dimension];
+    }
+
+    /**
+     * Copies the (scaled) values of a row into the buffer
+     */
+    public void row(int row, double[] buffer) {
+        int index = rows[row];
+        for (int d = 0; d < selected.length; d++)
+            buffer[d] = (columns[selected[d]][index] - mean[d]) / scale[d];
+    }
+
+    /**
+     * @return Row of the underlying matrix
+     */
+    public int sourceRow(int row) {
+        return rows[row];
+    }
+
+    /**
+     * @return Variance of all the values of the view (used by gamma = 'scale')
+     */
+    public double variance() {
+        double sum = 0.0;
+        double squares = 0.0;
+        for (int d = 0; d < selected.length; d++) {
+            for (int r = 0; r < rows.length; r++) {
+                double value = get(r, d);
+                sum += value;
+                squares += value * value;
+            }
+        }
+        double count = (double) rows.length * selected.length;
+        double mean = sum / count;
+        return squares / count - mean * mean;
+    }
+}
@@ -0,0 +1,68 @@
+package evaluation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flow features and labels of a CIC-DDoS2019 CSV file, as {@link ColumnCache} reads them following Data.extract_data in
+ * lmoments/src/compute.py: only the requested columns are kept, leading spaces of the fields are skipped, repeated
+ * column names are renamed as pandas does (name, name.1, ...), and rows with an infinite or missing value are dropped.
+ * Labels are interned to ints in order of first occurrence.
+ */
+public class FlowDataset {
+    public final String[] features;
+    public final double[][] columns;
+    public final int[] labels;
+    public final List<String> labelNames;
+    public final int rows;
+
+    public FlowDataset(String[] features, double[][] columns, int[] labels, List<String> labelNames) {
+        this.features = features;
+        this.columns = columns;
+        this.labels = labels;
+        this.labelNames = labelNames;
+        this.rows = labels.length;
+    }
+
+    /**
+     * Parses a numeric field as pandas does: empty fields and nan are missing values, inf and infinity are infinite
+     */
+    public static double parse(String field) {
+        String value = field.strip();
+        if (value.isEmpty()) return Double.NaN;
+
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            String lower = value.toLowerCase();
+            if (lower.equals("inf") || lower.equals("+inf") || lower.equals("infinity")) return Double.POSITIVE_INFINITY;
+            if (lower.equals("-inf") || lower.equals("-infinity")) return Double.NEGATIVE_INFINITY;
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Strips the column names and renames the repeated ones as name.1, name.2, ...
+     */
+    public static String[] mangle(String[] header) {
+        Map<String, Integer> seen = new HashMap<>();
+        String[] names = new String[header.length];
+
+        for (int i = 0; i < header.length; i++) {
+            String name = header[i].strip();
+            int count = seen.merge(name, 1, Integer::sum);
+            names[i] = count == 1 ? name : name + "." + (count - 1);
+        }
+
+        return names;
+    }
+
+    protected static int indexOf(String[] header, String column, File file) throws IOException {
+        for (int i = 0; i < header.length; i++)
+            if (header[i].equals(column)) return i;
+        throw new IOException("Column '" + column + "' not found in " + file);
+    }
+}
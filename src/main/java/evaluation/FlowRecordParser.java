@@ -0,0 +1,114 @@
+package evaluation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extracts the flow features of a scenario from CSV records with the column layout given by a header line (as the
+ * CIC-DDoS2019 files, whose column names have leading spaces). Fields are parsed in place from the line, without
+ * creating strings, so a record can be turned into a feature vector at line rate.
+ */
+public class FlowRecordParser {
+    // Exact fast path of decimal parsing: mantissas up to 2^53 scaled by exact powers of ten
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    protected final int[] featureOfField;
+    protected final int numberOfFeatures;
+
+    public FlowRecordParser(String header, List<String> features) {
+        String[] names = FlowDataset.mangle(header.split(",", -1));
+        featureOfField = new int[names.length];
+        numberOfFeatures = features.size();
+
+        Arrays.fill(featureOfField, -1);
+        for (int f = 0; f < features.size(); f++) {
+            int position = -1;
+            for (int i = 0; i < names.length && position < 0; i++)
+                if (names[i].equals(features.get(f))) position = i;
+            if (position < 0) throw new IllegalArgumentException("Column '" + features.get(f) + "' not found in the header");
+            featureOfField[position] = f;
+        }
+    }
+
+    public int numberOfFeatures() {
+        return numberOfFeatures;
+    }
+
+    /**
+     * Stores in record[f] the value of feature f of the line
+     *
+     * @return Whether every feature is present and finite (otherwise the record is dropped, as in the offline dataset)
+     */
+    public boolean parse(CharSequence line, double[] record) {
+        int field = 0;
+        int start = 0;
+        int length = line.length();
+        int parsed = 0;
+
+        for (int i = 0; i <= length; i++) {
+            if (i == length || line.charAt(i) == ',') {
+                if (field < featureOfField.length && featureOfField[field] >= 0) {
+                    double value = parseDouble(line, start, i);
+                    if (!Double.isFinite(value)) return false;
+                    record[featureOfField[field]] = value;
+                    parsed++;
+                }
+                field++;
+                start = i + 1;
+            }
+        }
+
+        return parsed == numberOfFeatures;
+    }
+
+    /**
+     * Parses line[from, to) as a double: plain decimal numbers (with optional sign, fraction and exponent) are parsed
+     * without allocating whenever the result is exact; anything else goes through {@link FlowDataset#parse}
+     */
+    protected static double parseDouble(CharSequence line, int from, int to) {
+        while (from < to && Character.isWhitespace(line.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(line.charAt(to - 1))) to--;
+        if (from == to) return Double.NaN;
+
+        int i = from;
+        boolean negative = false;
+        if (line.charAt(i) == '-' || line.charAt(i) == '+') negative = line.charAt(i++) == '-';
+
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; i < to; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (mantissa >= MAX_EXACT_MANTISSA / 10) return FlowDataset.parse(line.subSequence(from, to).toString());
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) scale--;
+                digits++;
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else break;
+        }
+
+        if (i < to && (line.charAt(i) == 'e' || line.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (line.charAt(i) == '-' || line.charAt(i) == '+')) negativeExponent = line.charAt(i++) == '-';
+            int exponent = 0;
+            int exponentDigits = 0;
+            for (; i < to && line.charAt(i) >= '0' && line.charAt(i) <= '9' && exponent < 1000; i++, exponentDigits++)
+                exponent = exponent * 10 + (line.charAt(i) - '0');
+            if (exponentDigits == 0) i = -1;
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        if (i != to || digits == 0 || scale < -22 || scale > 22)
+            return FlowDataset.parse(line.subSequence(from, to).toString());
+
+        double value = scale >= 0 ? mantissa * POWERS_OF_TEN[scale] : mantissa / POWERS_OF_TEN[-scale];
+        return negative ? -value : value;
+    }
+}
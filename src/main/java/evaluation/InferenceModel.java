@@ -0,0 +1,123 @@
+package evaluation;
+
+import evaluation.classifier.Classifier;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Classifier of a solution of {@link problem.LmomEnsembleProblem} trained once on all the windows of its scenario (the
+ * ones whose selected ratios are not all zero, as in the evaluation), ready to classify the L-moment ratios of live
+ * traffic. Only the selected columns of the training windows are kept, so the serialized model holds the fitted
+ * ensemble and a copy of the data it needs (e.g., the support vectors and the neighbors), not the whole L-moment matrix.
+ * <p>
+ * {@link #classify(double[])} standardizes the ratios with the training scaling and predicts without allocating, so a
+ * model must not be shared between threads (load one per thread instead). Ratio vectors come from
+ * {@link #streamingLmoments()} fed with flow records, or from any other source following the column order of
+ * {@link EnsembleConfiguration#columns}.
+ */
+public class InferenceModel implements Serializable {
+    protected final EnsembleConfiguration configuration;
+    protected final int numberOfFeatures;
+    protected final List<String> labelNames;
+    protected final Classifier classifier;
+    protected final double[] mean;
+    protected final double[] scale;
+
+    // Single-row view where the queries are copied
+    protected transient double[][] queryColumns;
+    protected transient FeatureView query;
+
+    protected InferenceModel(EnsembleConfiguration configuration, int numberOfFeatures, List<String> labelNames, Classifier classifier, FeatureView train) {
+        this.configuration = configuration;
+        this.numberOfFeatures = numberOfFeatures;
+        this.labelNames = labelNames;
+        this.classifier = classifier;
+        this.mean = train.mean;
+        this.scale = train.scale;
+    }
+
+    /**
+     * Trains the ensemble of the configuration on the scenario described by the JSON file
+     */
+    public static InferenceModel train(String jsonFile, EnsembleConfiguration configuration) throws IOException {
+        Scenario scenario = JavaEnsembleEvaluator.scenario(jsonFile);
+        FlowDataset flows = JavaEnsembleEvaluator.flows(scenario);
+        LmomentDataset dataset = JavaEnsembleEvaluator.lmoments(scenario, configuration.n);
+
+        int[] rows = JavaEnsembleEvaluator.nonZeroRows(dataset.columns, configuration.columns, dataset.rows);
+        double[][] columns = selectedColumns(dataset, configuration, rows);
+        int[] labels = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) labels[i] = dataset.labels[rows[i]];
+
+        FeatureView train = FeatureView.standardized(columns, IntStream.range(0, columns.length).toArray(), IntStream.range(0, rows.length).toArray());
+        Classifier classifier = JavaEnsembleEvaluator.ensemble(configuration);
+        classifier.fit(train, labels, dataset.numberOfClasses);
+
+        return new InferenceModel(configuration, flows.features.length, flows.labelNames, classifier, train);
+    }
+
+    /**
+     * @return Copy of the selected columns of the L-moment matrix over the given rows
+     */
+    public static double[][] selectedColumns(LmomentDataset dataset, EnsembleConfiguration configuration, int[] rows) {
+        double[][] columns = new double[configuration.columns.length][rows.length];
+        for (int d = 0; d < columns.length; d++) {
+            double[] column = dataset.columns[configuration.columns[d]];
+            for (int i = 0; i < rows.length; i++) columns[d][i] = column[rows[i]];
+        }
+        return columns;
+    }
+
+    /**
+     * @param tau Ratios of a window in the order of the selected columns
+     * @return Predicted class (see {@link #labelName(int)})
+     */
+    public int classify(double[] tau) {
+        if (query == null) {
+            queryColumns = new double[configuration.columns.length][1];
+            query = new FeatureView(queryColumns, IntStream.range(0, queryColumns.length).toArray(), new int[]{0}, mean, scale);
+        }
+
+        for (int d = 0; d < queryColumns.length; d++) queryColumns[d][0] = tau[d];
+        return classifier.predict(query, 0);
+    }
+
+    public String labelName(int label) {
+        return labelNames.get(label);
+    }
+
+    /**
+     * @return New extractor of the ratios of this model from flow records (all the features of the scenario)
+     */
+    public StreamingLmoments streamingLmoments() {
+        return new StreamingLmoments(numberOfFeatures, configuration);
+    }
+
+    public EnsembleConfiguration configuration() {
+        return configuration;
+    }
+
+    public void save(File file) throws IOException {
+        try (ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            output.writeObject(this);
+        }
+    }
+
+    public static InferenceModel load(File file) throws IOException {
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return (InferenceModel) input.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Invalid model file " + file, e);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package evaluation;
+
+import evaluation.classifier.Classifier;
+import evaluation.classifier.KNeighborsClassifier;
+import evaluation.classifier.LogisticRegression;
+import evaluation.classifier.SGDClassifier;
+import evaluation.classifier.SVC;
+import evaluation.classifier.StackingClassifier;
+import evaluation.classifier.VotingClassifier;
+import util.EvaluationProfile;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * In-JVM counterpart of the classification of lmoments/src/compute.py: loads (or computes) the L-moment matrix of the
+ * sample size, drops the windows whose selected ratios are all zero, standardizes the selected columns, and returns the
+ * mean balanced accuracy of the voting or stacking ensemble over 4 stratified shuffle splits (test size 0.2, seed 42).
+ * The flow columns come from the {@link ColumnCache}, and they and the most recently used L-moment matrices stay in
+ * memory between evaluations, so a worker only pays for parsing once per scenario and sample size.
+ */
+public class JavaEnsembleEvaluator {
+    protected static final int SPLITS = 4;
+    protected static final double TEST_SIZE = 0.2;
+    protected static final long RANDOM_STATE = 42;
+    protected static final int CACHED_MATRICES = 8;
+    protected static final int NUMBER_OF_ESTIMATORS = 4;
+
+    protected static final Map<String, Scenario> scenarios = new LinkedHashMap<>();
+    protected static final Map<String, FlowDataset> flows = new LinkedHashMap<>();
+    protected static final Map<String, LmomentDataset> matrices = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LmomentDataset> eldest) {
+            return size() > CACHED_MATRICES;
+        }
+    };
+
+    /**
+     * @return Mean balanced accuracy of the configuration on the scenario described by the JSON file
+     */
+    public static double evaluate(String jsonFile, EnsembleConfiguration configuration) throws IOException {
+        return evaluate(jsonFile, configuration, new EvaluationProfile(configuration.n));
+    }
+
+    /**
+     * Same as {@link #evaluate(String, EnsembleConfiguration)}, recording the time of each phase in the profile
+     */
+    public static double evaluate(String jsonFile, EnsembleConfiguration configuration, EvaluationProfile profile) throws IOException {
+        Scenario scenario = scenario(jsonFile);
+        LmomentDataset dataset = lmoments(scenario, configuration.n, profile);
+        return evaluate(dataset, configuration, profile);
+    }
+
+    public static double evaluate(LmomentDataset dataset, EnsembleConfiguration configuration) {
+        return evaluate(dataset, configuration, new EvaluationProfile(configuration.n));
+    }
+
+    public static double evaluate(LmomentDataset dataset, EnsembleConfiguration configuration, EvaluationProfile profile) {
+        long start = System.nanoTime();
+        int[] rows = nonZeroRows(dataset.columns, configuration.columns, dataset.rows);
+        int[] labels = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) labels[i] = dataset.labels[rows[i]];
+
+        FeatureView x = FeatureView.standardized(dataset.columns, configuration.columns, rows);
+        List<int[][]> splits = StratifiedSplits.shuffleSplit(labels, dataset.numberOfClasses, SPLITS, TEST_SIZE, RANDOM_STATE);
+        profile.addNanos("scaling", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        x = DistanceCache.attach(dataset, x);
+        profile.addNanos("distances", System.nanoTime() - start);
+        FeatureView view = x;
+
+        return IntStream.range(0, splits.size()).parallel().mapToDouble(s -> {
+            int[] train = splits.get(s)[0];
+            int[] test = splits.get(s)[1];
+
+            int[] trainLabels = new int[train.length];
+            for (int i = 0; i < train.length; i++) trainLabels[i] = labels[train[i]];
+            int[] testLabels = new int[test.length];
+            for (int i = 0; i < test.length; i++) testLabels[i] = labels[test[i]];
+
+            long fitStart = System.nanoTime();
+            Classifier classifier = ensemble(configuration);
+            classifier.fit(view.subset(train), trainLabels, dataset.numberOfClasses);
+            profile.addNanos("fit", System.nanoTime() - fitStart);
+
+            long predictStart = System.nanoTime();
+            FeatureView testView = view.subset(test);
+            int[] predicted = new int[test.length];
+            for (int i = 0; i < test.length; i++) predicted[i] = classifier.predict(testView, i);
+            profile.addNanos("predict", System.nanoTime() - predictStart);
+
+            return BalancedAccuracy.score(testLabels, predicted, dataset.numberOfClasses);
+        }).average().orElse(0.0);
+    }
+
+    /**
+     * Evaluates one base estimator on one split (see {@link EvaluationPart})
+     */
+    public static EvaluationPart evaluatePart(String jsonFile, EnsembleConfiguration configuration, int split, int estimator, EvaluationProfile profile) throws IOException {
+        Scenario scenario = scenario(jsonFile);
+        LmomentDataset dataset = lmoments(scenario, configuration.n, profile);
+        return evaluatePart(dataset, configuration, split, estimator, profile);
+    }
+
+    public static EvaluationPart evaluatePart(LmomentDataset dataset, EnsembleConfiguration configuration, int split, int estimator) {
+        return evaluatePart(dataset, configuration, split, estimator, new EvaluationProfile(configuration.n));
+    }
+
+    public static EvaluationPart evaluatePart(LmomentDataset dataset, EnsembleConfiguration configuration, int split, int estimator, EvaluationProfile profile) {
+        long start = System.nanoTime();
+        int[] rows = nonZeroRows(dataset.columns, configuration.columns, dataset.rows);
+        int[] labels = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) labels[i] = dataset.labels[rows[i]];
+
+        FeatureView x = FeatureView.standardized(dataset.columns, configuration.columns, rows);
+        int[][] indexes = StratifiedSplits.shuffleSplit(labels, dataset.numberOfClasses, SPLITS, TEST_SIZE, RANDOM_STATE).get(split);
+        int[] train = indexes[0];
+        int[] test = indexes[1];
+
+        int[] trainLabels = new int[train.length];
+        for (int i = 0; i < train.length; i++) trainLabels[i] = labels[train[i]];
+        int[] testLabels = new int[test.length];
+        for (int i = 0; i < test.length; i++) testLabels[i] = labels[test[i]];
+
+        profile.addNanos("scaling", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        x = DistanceCache.attach(dataset, x);
+        profile.addNanos("distances", System.nanoTime() - start);
+
+        Supplier<Classifier> supplier = estimators(configuration).get(estimator);
+        FeatureView trainView = x.subset(train);
+        FeatureView testView = x.subset(test);
+        Classifier classifier = supplier.get();
+
+        if (!configuration.stacking) {
+            start = System.nanoTime();
+            classifier.fit(trainView, trainLabels, dataset.numberOfClasses);
+            profile.addNanos("fit", System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int[] predictions = new int[test.length];
+            for (int i = 0; i < test.length; i++) predictions[i] = classifier.predict(testView, i);
+            profile.addNanos("predict", System.nanoTime() - start);
+            return new EvaluationPart(split, estimator, dataset.numberOfClasses, testLabels, predictions);
+        }
+
+        start = System.nanoTime();
+        int width = StackingClassifier.width(dataset.numberOfClasses);
+        double[] trainOutputs = StackingClassifier.crossValidatedOutputs(supplier, trainView, trainLabels, dataset.numberOfClasses);
+        classifier.fit(trainView, trainLabels, dataset.numberOfClasses);
+        profile.addNanos("fit", System.nanoTime() - start);
+
+        start = System.nanoTime();
+        double[] testOutputs = new double[test.length * width];
+        for (int i = 0; i < test.length; i++) classifier.outputs(testView, i, testOutputs, i * width);
+        profile.addNanos("predict", System.nanoTime() - start);
+
+        return new EvaluationPart(split, estimator, dataset.numberOfClasses, testLabels, null, trainLabels, trainOutputs, testOutputs, width);
+    }
+
+    /**
+     * Combines the parts of every estimator on every split as {@link #evaluate(LmomentDataset, EnsembleConfiguration)}
+     * does: hard voting over their predictions, or a {@link LogisticRegression} fitted on their meta-features
+     *
+     * @return Mean balanced accuracy over the splits
+     */
+    public static double aggregate(List<EvaluationPart> parts, boolean stacking) {
+        Map<Integer, List<EvaluationPart>> bySplit = parts.stream()
+                .sorted(Comparator.comparingInt(part -> part.estimator))
+                .collect(Collectors.groupingBy(part -> part.split));
+
+        return bySplit.values().stream().mapToDouble(split -> {
+            EvaluationPart first = split.get(0);
+            int numberOfClasses = first.numberOfClasses;
+            int[] predicted = new int[first.testLabels.length];
+
+            if (!stacking) {
+                int[] votes = new int[numberOfClasses];
+                for (int i = 0; i < predicted.length; i++) {
+                    Arrays.fill(votes, 0);
+                    for (EvaluationPart part : split) votes[part.predictions[i]]++;
+                    for (int c = 1; c < numberOfClasses; c++)
+                        if (votes[c] > votes[predicted[i]]) predicted[i] = c;
+                }
+            } else {
+                double[][] trainMeta = metaFeatures(split, first.trainLabels.length, part -> part.trainOutputs);
+                double[][] testMeta = metaFeatures(split, predicted.length, part -> part.testOutputs);
+
+                LogisticRegression finalEstimator = new LogisticRegression();
+                finalEstimator.fit(trainMeta, first.trainLabels, numberOfClasses);
+                for (int i = 0; i < predicted.length; i++) predicted[i] = finalEstimator.predict(testMeta[i]);
+            }
+
+            return BalancedAccuracy.score(first.testLabels, predicted, numberOfClasses);
+        }).average().orElse(0.0);
+    }
+
+    protected static double[][] metaFeatures(List<EvaluationPart> split, int rows, Function<EvaluationPart, double[]> outputs) {
+        int width = split.get(0).width;
+        double[][] meta = new double[rows][split.size() * width];
+        for (int e = 0; e < split.size(); e++) {
+            double[] values = outputs.apply(split.get(e));
+            for (int r = 0; r < rows; r++) System.arraycopy(values, r * width, meta[r], e * width, width);
+        }
+        return meta;
+    }
+
+    /**
+     * @return {split, estimator} pairs of the parts of an evaluation
+     */
+    public static List<int[]> parts() {
+        return IntStream.range(0, SPLITS * NUMBER_OF_ESTIMATORS)
+                .mapToObj(i -> new int[]{i / NUMBER_OF_ESTIMATORS, i % NUMBER_OF_ESTIMATORS})
+                .toList();
+    }
+
+    public static Classifier ensemble(EnsembleConfiguration configuration) {
+        List<Supplier<Classifier>> estimators = estimators(configuration);
+        return configuration.stacking ? new StackingClassifier(estimators) : new VotingClassifier(estimators);
+    }
+
+    public static List<Supplier<Classifier>> estimators(EnsembleConfiguration configuration) {
+        return List.of(
+                () -> new SGDClassifier(configuration.sgdL2Penalty, configuration.sgdSquaredHinge, RANDOM_STATE),
+                () -> new SVC(SVC.Kernel.RBF, 3, configuration.rbfGammaAuto),
+                () -> new SVC(SVC.Kernel.POLY, configuration.polyDegree, configuration.polyGammaAuto),
+                () -> new KNeighborsClassifier(configuration.knnNeighbors, configuration.knnDistanceWeights));
+    }
+
+    /**
+     * @return Rows where at least one of the selected columns is not zero
+     */
+    public static int[] nonZeroRows(double[][] columns, int[] selected, int rows) {
+        return IntStream.range(0, rows).filter(r -> {
+            for (int c : selected)
+                if (columns[c][r] != 0.0) return true;
+            return false;
+        }).toArray();
+    }
+
+    /**
+     * @return Columns of the L-moment matrix of sample size n whose values are all zero
+     */
+    public static BitSet zeroColumns(String jsonFile, int n) throws IOException {
+        return lmoments(scenario(jsonFile), n).zeroColumns();
+    }
+
+    public static synchronized Scenario scenario(String jsonFile) throws IOException {
+        Scenario scenario = scenarios.get(jsonFile);
+        if (scenario == null) {
+            scenario = Scenario.read(jsonFile);
+            scenarios.put(jsonFile, scenario);
+        }
+        return scenario;
+    }
+
+    public static synchronized FlowDataset flows(Scenario scenario) throws IOException {
+        FlowDataset dataset = flows.get(scenario.name);
+        if (dataset == null) {
+            dataset = ColumnCache.load(scenario);
+            flows.put(scenario.name, dataset);
+        }
+        return dataset;
+    }
+
+    public static LmomentDataset lmoments(Scenario scenario, int n) throws IOException {
+        return lmoments(scenario, n, new EvaluationProfile(n));
+    }
+
+    public static LmomentDataset lmoments(Scenario scenario, int n, EvaluationProfile profile) throws IOException {
+        String key = scenario.key(n);
+        synchronized (matrices) {
+            LmomentDataset dataset = matrices.get(key);
+            if (dataset != null) {
+                profile.setSource("memory");
+                return dataset;
+            }
+        }
+
+        long start = System.nanoTime();
+        FlowDataset flows = flows(scenario);
+        profile.addNanos("load", System.nanoTime() - start);
+
+        LmomentDataset dataset = LmomentDataset.load(scenario, flows, n, profile);
+        synchronized (matrices) {
+            matrices.put(key, dataset);
+        }
+        return dataset;
+    }
+}
@@ -0,0 +1,259 @@
+package evaluation;
+
+import util.EvaluationProfile;
+import util.JMetalLogger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * L-moment ratios of every flow feature computed over consecutive windows of n flows, stored by columns (all tau3
+ * columns, then tau4, then tau5), together with the label of each window. It reproduces compute_lmom and get_labels of
+ * lmoments/src/compute.py, including the fact that each window leaves out its last flow, and it shares the CSV cache
+ * of the Python code (<Data>/<scenario>.<n>.csv, guarded by a .lock file). With -Dlmoments.encoding=float32 or int16,
+ * the matrix is read from its {@link LmomentMatrixFile} instead, which is written from the CSV (or the computed
+ * columns) the first time.
+ */
+public class LmomentDataset {
+    public final int n;
+    public final double[][] columns;
+    public final int[] labels;
+    public final int numberOfClasses;
+    public final int rows;
+    protected BitSet zeroColumns;
+
+    public LmomentDataset(int n, double[][] columns, int[] labels) {
+        this.n = n;
+        this.columns = columns;
+        this.labels = labels;
+        this.numberOfClasses = Arrays.stream(labels).max().orElse(-1) + 1;
+        this.rows = labels.length;
+    }
+
+    /**
+     * @return Columns whose values are all zero (compute.py prints them as columns_all_zero), found the first time
+     */
+    public synchronized BitSet zeroColumns() {
+        if (zeroColumns == null) {
+            zeroColumns = new BitSet(columns.length);
+            for (int c = 0; c < columns.length; c++)
+                if (Arrays.stream(columns[c]).allMatch(value -> value == 0.0)) zeroColumns.set(c);
+        }
+        return zeroColumns;
+    }
+
+    /**
+     * Reads the L-moment matrix of the scenario from its CSV cache, computing and saving it if it does not exist
+     */
+    public static LmomentDataset load(Scenario scenario, FlowDataset flows, int n) throws IOException {
+        return load(scenario, flows, n, new EvaluationProfile(n));
+    }
+
+    /**
+     * Same as {@link #load(Scenario, FlowDataset, int)}, recording the time waiting for the lock and the time reading
+     * or computing the matrix in the profile
+     */
+    public static LmomentDataset load(Scenario scenario, FlowDataset flows, int n, EvaluationProfile profile) throws IOException {
+        File file = scenario.lmomentFile(n);
+        File lock = new File(file.getPath() + ".lock");
+        int[] labels = windowLabels(flows.labels, n);
+
+        LmomentMatrixFile.Encoding encoding = LmomentMatrixFile.ENCODING;
+        File binary = scenario.lmomentFile(n, encoding);
+        if (encoding != LmomentMatrixFile.Encoding.CSV && binary.exists()) {
+            long start = System.nanoTime();
+            LmomentDataset dataset = new LmomentDataset(n, LmomentMatrixFile.read(binary, scenario.tauColumns()).columns, labels);
+            profile.addNanos("lmoments", System.nanoTime() - start);
+            profile.setSource("binary");
+            return dataset;
+        }
+
+        if (file.exists()) {
+            long start = System.nanoTime();
+            acquireLock(lock);
+            profile.addNanos("lock", System.nanoTime() - start);
+            double[][] columns;
+            try {
+                start = System.nanoTime();
+                columns = readColumns(file, scenario.tauColumns());
+                profile.addNanos("lmoments", System.nanoTime() - start);
+                profile.setSource("csv");
+            } finally {
+                releaseLock(lock);
+            }
+            return new LmomentDataset(n, encode(binary, scenario.tauColumns(), columns, encoding), labels);
+        }
+
+        long start = System.nanoTime();
+        double[][] columns = computeColumns(flows.columns, n);
+        profile.addNanos("lmoments", System.nanoTime() - start);
+        profile.setSource("computed");
+
+        start = System.nanoTime();
+        acquireLock(lock);
+        profile.addNanos("lock", System.nanoTime() - start);
+        try {
+            writeColumns(file, scenario.tauColumns(), columns);
+        } finally {
+            releaseLock(lock);
+        }
+
+        return new LmomentDataset(n, encode(binary, scenario.tauColumns(), columns, encoding), labels);
+    }
+
+    /**
+     * Writes the binary copy of the matrix when an encoding is selected (if it cannot be written, the evaluation goes
+     * on and a later one writes it)
+     *
+     * @return The columns as the other workers will read them from that copy
+     */
+    protected static double[][] encode(File binary, String[] names, double[][] columns, LmomentMatrixFile.Encoding encoding) {
+        if (encoding == LmomentMatrixFile.Encoding.CSV) return columns;
+        try {
+            return LmomentMatrixFile.write(binary, names, columns, encoding).columns;
+        } catch (IOException e) {
+            JMetalLogger.logger.warning("Unable to write " + binary + ": " + e.getMessage());
+            return LmomentMatrixFile.roundTrip(columns, encoding).columns;
+        }
+    }
+
+    /**
+     * Computes tau3, tau4 and tau5 of each feature (in parallel) over windows of n flows
+     */
+    public static double[][] computeColumns(double[][] features, int n) {
+        int numberOfFeatures = features.length;
+        double[][] columns = new double[numberOfFeatures * Lmoments.NUMBER_OF_RATIOS][];
+
+        IntStream.range(0, numberOfFeatures).parallel().forEach(f -> {
+            double[] feature = features[f];
+            int windows = (feature.length + n - 1) / n;
+            double[][] taus = new double[Lmoments.NUMBER_OF_RATIOS][windows];
+            double[] sample = new double[n];
+            double[] ratios = new double[Lmoments.NUMBER_OF_RATIOS];
+            Map<Integer, Lmoments> estimators = new HashMap<>();
+
+            for (int w = 0; w < windows; w++) {
+                int from = w * n;
+                int to = Math.min(from + n - 1, feature.length - 1);
+                int size = Math.max(to - from, 0);
+
+                System.arraycopy(feature, from, sample, 0, size);
+                Arrays.sort(sample, 0, size);
+                estimators.computeIfAbsent(size, Lmoments::new).ratios(sample, 0, ratios, 0);
+
+                for (int t = 0; t < Lmoments.NUMBER_OF_RATIOS; t++)
+                    taus[t][w] = ratios[t];
+            }
+
+            for (int t = 0; t < Lmoments.NUMBER_OF_RATIOS; t++)
+                columns[t * numberOfFeatures + f] = taus[t];
+        });
+
+        return columns;
+    }
+
+    /**
+     * Most frequent label of each window of n flows (on ties, the one appearing first in the window, as
+     * value_counts()[:1] in get_labels), interned again to ints in order of first occurrence
+     */
+    public static int[] windowLabels(int[] labels, int n) {
+        int windows = (labels.length + n - 1) / n;
+        int numberOfLabels = Arrays.stream(labels).max().orElse(-1) + 1;
+        int[] counts = new int[numberOfLabels];
+        int[] ids = new int[numberOfLabels];
+        Arrays.fill(ids, -1);
+        int[] seen = new int[numberOfLabels];
+        int[] result = new int[windows];
+        int next = 0;
+
+        for (int w = 0; w < windows; w++) {
+            Arrays.fill(counts, 0);
+            int distinct = 0;
+            for (int i = w * n; i < Math.min((w + 1) * n, labels.length); i++)
+                if (counts[labels[i]]++ == 0) seen[distinct++] = labels[i];
+
+            int best = seen[0];
+            for (int j = 1; j < distinct; j++)
+                if (counts[seen[j]] > counts[best]) best = seen[j];
+
+            if (ids[best] == -1) ids[best] = next++;
+            result[w] = ids[best];
+        }
+
+        return result;
+    }
+
+    protected static double[][] readColumns(File file, String[] names) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String[] header = FlowDataset.mangle(reader.readLine().split(",", -1));
+            int[] positions = new int[names.length];
+            for (int c = 0; c < names.length; c++)
+                positions[c] = FlowDataset.indexOf(header, names[c], file);
+
+            List<double[]> rows = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",", -1);
+                double[] row = new double[names.length];
+                for (int c = 0; c < names.length; c++)
+                    row[c] = FlowDataset.parse(fields[positions[c]]);
+                rows.add(row);
+            }
+
+            double[][] columns = new double[names.length][rows.size()];
+            for (int r = 0; r < rows.size(); r++)
+                for (int c = 0; c < names.length; c++)
+                    columns[c][r] = rows.get(r)[c];
+            return columns;
+        }
+    }
+
+    protected static void writeColumns(File file, String[] names, double[][] columns) throws IOException {
+        try (PrintWriter out = new PrintWriter(file)) {
+            out.println(String.join(",", names));
+            StringBuilder line = new StringBuilder();
+            for (int r = 0; r < columns[0].length; r++) {
+                line.setLength(0);
+                for (int c = 0; c < columns.length; c++) {
+                    if (c > 0) line.append(',');
+                    line.append(columns[c][r]);
+                }
+                out.println(line);
+            }
+        }
+    }
+
+    /**
+     * Same protocol as acquire_lock in compute.py: waits (up to 240 s) while the lock file exists, removing it if it is
+     * older than 250 s, and then creates it
+     */
+    public static void acquireLock(File lock) throws IOException {
+        if (lock.exists() && System.currentTimeMillis() - lock.lastModified() > 250_000)
+            lock.delete();
+
+        long start = System.currentTimeMillis();
+        while (!lock.createNewFile()) {
+            if (System.currentTimeMillis() - start > 240_000)
+                throw new IOException("Timeout: unable to acquire the lock file " + lock);
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    public static void releaseLock(File lock) {
+        lock.delete();
+    }
+}
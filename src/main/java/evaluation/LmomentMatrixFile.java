@@ -0,0 +1,225 @@
+package evaluation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import util.JMetalLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Binary copy of the L-moment matrix of a sample size, read instead of the CSV cache when -Dlmoments.encoding is
+ * float32 or int16 (<Data>/<scenario>.<n>.<encoding>.bin). Like the {@link ColumnCache}, a file starts with a JSON
+ * line (padded to a multiple of 64 bytes) with the rows, the column names, the encoding, the data offset and, for each
+ * column, its scale and the maximum absolute error of its encoded values; the columns follow one after the other in
+ * little-endian.
+ * <p>
+ * float32 stores the values as floats (4 bytes, relative error below 6e-8). int16 stores round(value / scale) with
+ * scale = max |value| / 32767 (2 bytes, absolute error below scale / 2, about 1.5e-5 for ratios in [-1, 1]). Zero is
+ * encoded exactly and nonzero values never round to zero (those within scale / 2 of zero are stored as +-1, with an
+ * error below scale), so the windows dropped for having all their selected ratios at zero are the same as with the
+ * CSV; NaN is stored as -32768. The evaluation reads the decoded values, so every
+ * worker sees the same matrix whether it computed, parsed or mapped it.
+ * <p>
+ * The encodings are off by default: they have not been validated (see {@link EncodingValidation}) to leave the
+ * rankings of the conf_default scenarios unchanged, and the decoded columns take as much heap as the parsed CSV.
+ */
+public class LmomentMatrixFile {
+    public enum Encoding {CSV, FLOAT32, INT16}
+
+    public static final Encoding ENCODING = Encoding.valueOf(System.getProperty("lmoments.encoding", "csv").toUpperCase(Locale.ROOT));
+
+    static {
+        if (ENCODING != Encoding.CSV)
+            JMetalLogger.logger.warning("The " + ENCODING.name().toLowerCase(Locale.ROOT) + " encoding of the L-moment matrices has not been validated on the conf_default scenarios (see EncodingValidation)");
+    }
+
+    protected static final int VERSION = 1;
+    protected static final int ALIGNMENT = 64;
+    protected static final short NAN = Short.MIN_VALUE;
+
+    /**
+     * Decoded columns of a binary matrix, with the maximum error of each column
+     */
+    public static class Matrix {
+        public final double[][] columns;
+        public final double[] maxErrors;
+
+        public Matrix(double[][] columns, double[] maxErrors) {
+            this.columns = columns;
+            this.maxErrors = maxErrors;
+        }
+    }
+
+    /**
+     * @return The given columns as they are read back after encoding them, with their errors
+     */
+    public static Matrix roundTrip(double[][] columns, Encoding encoding) {
+        double[][] decoded = new double[columns.length][];
+        double[] maxErrors = new double[columns.length];
+        IntStream.range(0, columns.length).parallel().forEach(c -> {
+            double[] column = columns[c];
+            double[] values = new double[column.length];
+            double scale = scale(column, encoding);
+            for (int r = 0; r < column.length; r++) {
+                values[r] = switch (encoding) {
+                    case CSV -> column[r];
+                    case FLOAT32 -> (float) column[r];
+                    case INT16 -> decode(encode(column[r], scale), scale);
+                };
+                if (!Double.isNaN(column[r])) maxErrors[c] = Math.max(maxErrors[c], Math.abs(values[r] - column[r]));
+            }
+            decoded[c] = values;
+        });
+        return new Matrix(decoded, maxErrors);
+    }
+
+    /**
+     * Writes the columns to a temporary file of its own that is then renamed, so concurrent readers never see a partial
+     * matrix and concurrent writers (other workers, or other evaluations of this JVM) never share a file
+     *
+     * @return The columns as they will be read from the file
+     */
+    public static Matrix write(File file, String[] names, double[][] columns, Encoding encoding) throws IOException {
+        if (encoding == Encoding.CSV) throw new IllegalArgumentException("Not a binary encoding: " + encoding);
+
+        Matrix matrix = roundTrip(columns, encoding);
+        int rows = columns.length > 0 ? columns[0].length : 0;
+        int width = width(encoding);
+        double[] scales = new double[columns.length];
+        for (int c = 0; c < columns.length; c++) scales[c] = scale(columns[c], encoding);
+
+        Map<String, Object> header = new LinkedHashMap<>();
+        header.put("version", VERSION);
+        header.put("rows", rows);
+        header.put("encoding", encoding.name().toLowerCase(Locale.ROOT));
+        header.put("columns", names);
+        header.put("scales", scales);
+        header.put("max_errors", matrix.maxErrors);
+        header.put("offset", 0L);
+
+        // The offset depends on the length of the header, which depends on the offset: pad generously
+        byte[] json = new ObjectMapper().writeValueAsBytes(header);
+        long headerLength = ((json.length + 20 + 1) / ALIGNMENT + 1) * ALIGNMENT;
+        header.put("offset", headerLength);
+        json = new ObjectMapper().writeValueAsBytes(header);
+
+        ByteBuffer headerBuffer = ByteBuffer.allocate((int) headerLength);
+        headerBuffer.put(json);
+        while (headerBuffer.position() < headerLength - 1) headerBuffer.put((byte) ' ');
+        headerBuffer.put((byte) '\n');
+        headerBuffer.flip();
+
+        File temporary = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName(), ".tmp").toFile();
+        try {
+            try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (headerBuffer.hasRemaining()) channel.write(headerBuffer);
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(rows, 1) * width).order(ByteOrder.LITTLE_ENDIAN);
+                for (int c = 0; c < columns.length; c++) {
+                    buffer.clear();
+                    for (double value : columns[c]) {
+                        if (encoding == Encoding.FLOAT32) buffer.putFloat((float) value);
+                        else buffer.putShort(encode(value, scales[c]));
+                    }
+                    buffer.flip();
+                    while (buffer.hasRemaining()) channel.write(buffer);
+                }
+            }
+
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+        return matrix;
+    }
+
+    /**
+     * Maps the file and decodes the given columns (in parallel)
+     */
+    public static Matrix read(File file, String[] names) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer first = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1 << 20));
+            int headerEnd = ColumnCache.nextLine(first, 0);
+            if (headerEnd < 0) throw new IOException("Invalid L-moment matrix " + file);
+            JsonNode header = new ObjectMapper().readTree(StandardCharsets.UTF_8.decode(first.slice(0, headerEnd)).toString());
+            if (header.get("version").asInt() != VERSION) throw new IOException("Unsupported L-moment matrix version in " + file);
+
+            int rows = header.get("rows").asInt();
+            Encoding encoding = Encoding.valueOf(header.get("encoding").asText().toUpperCase(Locale.ROOT));
+            int width = width(encoding);
+            long offset = header.get("offset").asLong();
+            List<String> columns = new ArrayList<>();
+            header.get("columns").forEach(name -> columns.add(name.asText()));
+            String[] fileNames = FlowDataset.mangle(columns.toArray(new String[0]));
+
+            int[] positions = new int[names.length];
+            for (int c = 0; c < names.length; c++)
+                positions[c] = FlowDataset.indexOf(fileNames, names[c], file);
+
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) columns.size() * rows * width).order(ByteOrder.LITTLE_ENDIAN);
+            double[][] decoded = new double[names.length][rows];
+            double[] maxErrors = new double[names.length];
+            IntStream.range(0, names.length).parallel().forEach(c -> {
+                int position = positions[c];
+                double[] values = decoded[c];
+                ByteBuffer column = data.slice(position * rows * width, rows * width).order(ByteOrder.LITTLE_ENDIAN);
+                if (encoding == Encoding.FLOAT32) {
+                    for (int r = 0; r < rows; r++) values[r] = column.getFloat(r * Float.BYTES);
+                } else {
+                    double scale = header.get("scales").get(position).asDouble();
+                    for (int r = 0; r < rows; r++) values[r] = decode(column.getShort(r * Short.BYTES), scale);
+                }
+                maxErrors[c] = header.get("max_errors").get(position).asDouble();
+            });
+            return new Matrix(decoded, maxErrors);
+        }
+    }
+
+    protected static int width(Encoding encoding) {
+        return encoding == Encoding.FLOAT32 ? Float.BYTES : Short.BYTES;
+    }
+
+    protected static double scale(double[] column, Encoding encoding) {
+        if (encoding != Encoding.INT16) return 1.0;
+        double max = 0.0;
+        for (double value : column)
+            if (Double.isFinite(value)) max = Math.max(max, Math.abs(value));
+        return max > 0.0 ? max / Short.MAX_VALUE : 1.0;
+    }
+
+    protected static short encode(double value, double scale) {
+        if (Double.isNaN(value)) return NAN;
+        long q = Math.round(value / scale);
+        if (q == 0 && value != 0.0) q = value > 0.0 ? 1 : -1;
+        return (short) Math.max(-Short.MAX_VALUE, Math.min(Short.MAX_VALUE, q));
+    }
+
+    protected static double decode(short value, double scale) {
+        return value == NAN ? Double.NaN : value * scale;
+    }
+
+    /**
+     * @return Human-readable summary of the errors of the columns
+     */
+    public static String describeErrors(String[] names, double[] maxErrors) {
+        int worst = 0;
+        for (int c = 1; c < maxErrors.length; c++) if (maxErrors[c] > maxErrors[worst]) worst = c;
+        return maxErrors.length == 0 ? "no columns" : String.format(Locale.ROOT, "max error %.3g (%s), mean %.3g",
+                maxErrors[worst], names[worst], Arrays.stream(maxErrors).average().orElse(0.0));
+    }
+}
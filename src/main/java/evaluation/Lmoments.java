@@ -0,0 +1,65 @@
+package evaluation;
+
+/**
+ * L-moment ratios tau3, tau4 and tau5 of a sample of fixed size, computed as in lmoments/src/lmoments.py. The weights
+ * of the probability-weighted moments only depend on the sample size, so they are computed once and reused for every
+ * sample: computing the ratios of a (sorted) sample does not allocate.
+ */
+public class Lmoments {
+    public static final int NUMBER_OF_RATIOS = 3;
+
+    private static final int ORDER = 5;
+
+    protected final int size;
+    protected final double[][] weights;
+
+    public Lmoments(int size) {
+        this.size = size;
+        this.weights = new double[ORDER + 1][];
+
+        for (int r = 2; r <= ORDER; r++) {
+            double denominator = comb(size, r);
+            weights[r] = new double[size];
+            if (denominator > 0) {
+                for (int i = 0; i < size; i++) {
+                    double weight = 0.0;
+                    for (int k = 0; k < r; k++)
+                        weight += comb(r - 1, k) * ((k % 2 == 0) ? 1 : -1) * comb(i, r - k - 1) * comb(size - 1 - i, k);
+                    weights[r][i] = weight / r / denominator;
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Computes tau3, tau4 and tau5 of the sorted sample stored in sample[from, from + size()). The ratios are 0 when
+     * the second L-moment is 0.
+     *
+     * @param ratios Array of (at least) three positions where the ratios are stored from position offset
+     */
+    public void ratios(double[] sample, int from, double[] ratios, int offset) {
+        double l2 = moment(2, sample, from);
+
+        for (int r = 3; r <= ORDER; r++)
+            ratios[offset + r - 3] = l2 != 0.0 ? moment(r, sample, from) / l2 : 0.0;
+    }
+
+    protected double moment(int r, double[] sample, int from) {
+        double sum = 0.0;
+        for (int i = 0; i < size; i++)
+            sum += weights[r][i] * sample[from + i];
+        return sum;
+    }
+
+    protected static double comb(int n, int k) {
+        if (k < 0 || k > n) return 0.0;
+        double result = 1.0;
+        for (int i = 1; i <= k; i++)
+            result = result * (n - k + i) / i;
+        return Math.rint(result);
+    }
+}
@@ -0,0 +1,85 @@
+package evaluation;
+
+import java.util.stream.IntStream;
+
+/**
+ * Squared Euclidean distances between all the rows of an L-moment matrix, in the upper triangle of a row-major matrix.
+ * Built from one column (the squared differences of its values) or as a weighted sum of those, so the distances of any
+ * standardized selection of columns are sum(d_c / scale_c^2) over its columns. Sums are accumulated in the order of
+ * the given blocks, so a selection always gets the same distances. Values are doubles, as the estimators compute them
+ * from the view, and differ from those only by rounding (a relative 1e-16).
+ */
+public class PairwiseDistances {
+    protected static final int CHUNK = 1 << 16;
+
+    protected final int rows;
+    protected final double[] values;
+
+    public PairwiseDistances(int rows, double[] values) {
+        this.rows = rows;
+        this.values = values;
+    }
+
+    /**
+     * @return Squared differences of the values of the column
+     */
+    public static PairwiseDistances of(double[] column, int rows) {
+        double[] values = new double[(int) size(rows)];
+        IntStream.range(0, rows).parallel().forEach(a -> {
+            int index = index(rows, a, a + 1);
+            double value = column[a];
+            for (int b = a + 1; b < rows; b++) {
+                double diff = value - column[b];
+                values[index++] = diff * diff;
+            }
+        });
+        return new PairwiseDistances(rows, values);
+    }
+
+    /**
+     * @return Sum of the blocks (squared differences of single columns) times their weights
+     */
+    public static PairwiseDistances sum(PairwiseDistances[] blocks, double[] weights, int rows) {
+        double[] values = new double[(int) size(rows)];
+        IntStream.range(0, (values.length + CHUNK - 1) / CHUNK).parallel().forEach(chunk -> {
+            int start = chunk * CHUNK, end = Math.min(values.length, start + CHUNK);
+            for (int c = 0; c < blocks.length; c++) {
+                double[] block = blocks[c].values;
+                double weight = weights[c];
+                for (int i = start; i < end; i++) values[i] += weight * block[i];
+            }
+        });
+        return new PairwiseDistances(rows, values);
+    }
+
+    /**
+     * @return Squared distance between two rows of the matrix
+     */
+    public double get(int a, int b) {
+        if (a == b) return 0.0;
+        return a < b ? values[index(rows, a, b)] : values[index(rows, b, a)];
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public long bytes() {
+        return 8L * values.length;
+    }
+
+    /**
+     * @return Bytes taken by the distances between the given number of rows
+     */
+    public static long bytes(int rows) {
+        return 8L * size(rows);
+    }
+
+    public static long size(int rows) {
+        return (long) rows * (rows - 1) / 2;
+    }
+
+    protected static int index(int rows, int a, int b) {
+        return (int) ((long) a * (2L * rows - a - 1) / 2 + (b - a - 1));
+    }
+}
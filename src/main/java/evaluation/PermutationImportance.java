@@ -0,0 +1,219 @@
+package evaluation;
+
+import evaluation.classifier.Classifier;
+import evaluation.classifier.SGDClassifier;
+import util.JMetalLogger;
+import util.TraceReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Java counterpart of permutation_importance/permutation_importance.py. Usage:
+ * <p>
+ * PermutationImportance <scenario_json> FUN.csv VAR.csv [--output=<file>] [--repeats=3] [--threads=<cores>]
+ * <p>
+ * For each solution of the run, the ensemble (or a default SGD classifier if only one ratio is selected) is trained on
+ * a stratified 80/20 split of all the windows (seed 42, standardized with the scaling of the whole matrix), and the
+ * importance of each selected ratio is the mean drop of the balanced accuracy on the test windows when that ratio is
+ * shuffled. The (ratio, repeat) pairs run in parallel on a ForkJoin pool: the selected columns are shared read-only,
+ * and each thread keeps its own copy of the fitted classifier and a buffer where the shuffled column is written. All
+ * the ratios are shuffled with the same permutation in a given repeat, as scikit-learn does, although the permutations
+ * themselves are not the ones numpy would draw. The output follows the .out files of the Python script.
+ */
+public class PermutationImportance {
+    protected static final double TEST_SIZE = 0.2;
+    protected static final long RANDOM_STATE = 42;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: PermutationImportance <scenario_json> <FUN.csv> <VAR.csv> [--output=<file>] [--repeats=3] [--threads=<cores>]");
+            System.exit(1);
+        }
+
+        String output = null;
+        int repeats = 3;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--output=")) output = arg.substring("--output=".length());
+            else if (arg.startsWith("--repeats=")) repeats = Integer.parseInt(arg.substring("--repeats=".length()));
+            else if (arg.startsWith("--threads=")) threads = Integer.parseInt(arg.substring("--threads=".length()));
+        }
+
+        Scenario scenario = JavaEnsembleEvaluator.scenario("lmoments/conf_default/" + args[0]);
+        String[] names = scenario.tauColumns();
+        List<TraceReader.TracedSolution> solutions = TraceReader.read(new File(args[1]), new File(args[2]));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try (PrintStream out = output == null ? new PrintStream(System.out, false) : new PrintStream(output)) {
+            for (int i = 0; i < solutions.size(); i++) {
+                TraceReader.TracedSolution solution = solutions.get(i);
+                EnsembleConfiguration configuration = new EnsembleConfiguration(solution.features, solution.ensemble, solution.integers);
+                out.println();
+                out.println("==> Solution " + i);
+
+                long start = System.currentTimeMillis();
+                try {
+                    double[] importances = importances(JavaEnsembleEvaluator.lmoments(scenario, configuration.n), configuration, repeats, pool);
+                    for (int d = 0; d < importances.length; d++)
+                        out.println(names[configuration.columns[d]] + " " + repr(importances[d]));
+                } catch (IOException | RuntimeException e) {
+                    out.println("  > Error computing permutation importance: " + e.getMessage());
+                }
+                out.flush();
+                JMetalLogger.logger.info("Solution " + i + " (" + configuration.columns.length + " ratios) analyzed in " + (System.currentTimeMillis() - start) + " ms");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return Mean importance of each selected column of the configuration, in the order of
+     * {@link EnsembleConfiguration#columns}
+     */
+    public static double[] importances(LmomentDataset dataset, EnsembleConfiguration configuration, int repeats, ForkJoinPool pool) {
+        int dimensions = configuration.columns.length;
+        if (dimensions == 0) throw new IllegalArgumentException("No ratios selected");
+
+        int[] rows = IntStream.range(0, dataset.rows).toArray();
+        double[][] columns = InferenceModel.selectedColumns(dataset, configuration, rows);
+        int[] selected = IntStream.range(0, dimensions).toArray();
+        FeatureView x = FeatureView.standardized(columns, selected, rows);
+
+        int[][] split = StratifiedSplits.shuffleSplit(dataset.labels, dataset.numberOfClasses, 1, TEST_SIZE, RANDOM_STATE).get(0);
+        int[] train = split[0];
+        int[] test = split[1];
+        int[] trainLabels = new int[train.length];
+        for (int i = 0; i < train.length; i++) trainLabels[i] = dataset.labels[train[i]];
+        int[] testLabels = new int[test.length];
+        for (int i = 0; i < test.length; i++) testLabels[i] = dataset.labels[test[i]];
+
+        Classifier classifier = dimensions == 1 ? new SGDClassifier(true, false, RANDOM_STATE) : JavaEnsembleEvaluator.ensemble(configuration);
+        classifier.fit(x.subset(train), trainLabels, dataset.numberOfClasses);
+        double baseline = score(classifier, x.subset(test), testLabels, dataset.numberOfClasses, new int[test.length]);
+
+        byte[] fitted = serialize(classifier);
+        ThreadLocal<Shuffler> shufflers = ThreadLocal.withInitial(() -> new Shuffler(deserialize(fitted), columns, dataset.rows, test.length));
+
+        double[][] drops = new double[dimensions][repeats];
+        try {
+            pool.submit(() -> IntStream.range(0, dimensions * repeats).parallel().forEach(task -> {
+                int d = task / repeats;
+                int repeat = task % repeats;
+                Shuffler shuffler = shufflers.get();
+                FeatureView permuted = shuffler.permute(columns, d, test, new Random(RANDOM_STATE + repeat), x);
+                drops[d][repeat] = baseline - score(shuffler.classifier, permuted, testLabels, dataset.numberOfClasses, shuffler.predicted);
+                shuffler.restore(columns, d);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        double[] importances = new double[dimensions];
+        for (int d = 0; d < dimensions; d++) {
+            double sum = 0.0;
+            for (double drop : drops[d]) sum += drop;
+            importances[d] = sum / repeats;
+        }
+        return importances;
+    }
+
+    protected static double score(Classifier classifier, FeatureView test, int[] labels, int numberOfClasses, int[] predicted) {
+        for (int i = 0; i < labels.length; i++) predicted[i] = classifier.predict(test, i);
+        return BalancedAccuracy.score(labels, predicted, numberOfClasses);
+    }
+
+    /**
+     * @return Shortest representation of the value, formatted as Python's repr of a float
+     */
+    protected static String repr(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) return Double.isNaN(value) ? "nan" : value > 0 ? "inf" : "-inf";
+        if (value == 0.0) return 1.0 / value < 0 ? "-0.0" : "0.0";
+
+        BigDecimal decimal = new BigDecimal(Double.toString(value)).stripTrailingZeros();
+        int exponent = decimal.precision() - decimal.scale() - 1;
+        if (exponent < -4 || exponent >= 16) {
+            String digits = decimal.unscaledValue().abs().toString();
+            String mantissa = digits.length() == 1 ? digits : digits.charAt(0) + "." + digits.substring(1);
+            return (decimal.signum() < 0 ? "-" : "") + mantissa + String.format("e%s%02d", exponent < 0 ? "-" : "+", Math.abs(exponent));
+        }
+
+        String plain = decimal.toPlainString();
+        return plain.contains(".") ? plain : plain + ".0";
+    }
+
+    protected static byte[] serialize(Classifier classifier) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(classifier);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    protected static Classifier deserialize(byte[] bytes) {
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Classifier) input.readObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * State of a pool thread: its copy of the fitted classifier (predicting is not thread-safe), the columns it reads
+     * (the shared ones but the shuffled one, which is replaced by its buffer) and the buffers of the permutation and
+     * the predictions
+     */
+    protected static class Shuffler {
+        protected final Classifier classifier;
+        protected final double[][] columns;
+        protected final double[] buffer;
+        protected final int[] permutation;
+        protected final int[] predicted;
+
+        protected Shuffler(Classifier classifier, double[][] columns, int rows, int testRows) {
+            this.classifier = classifier;
+            this.columns = columns.clone();
+            this.buffer = new double[rows];
+            this.permutation = new int[testRows];
+            this.predicted = new int[testRows];
+        }
+
+        /**
+         * @return View of the test rows where column d holds the values of those rows in a random order
+         */
+        protected FeatureView permute(double[][] shared, int d, int[] test, Random random, FeatureView x) {
+            for (int i = 0; i < permutation.length; i++) permutation[i] = i;
+            StratifiedSplits.shuffle(permutation, random);
+
+            double[] column = shared[d];
+            for (int i = 0; i < test.length; i++) buffer[test[i]] = column[test[permutation[i]]];
+            columns[d] = buffer;
+
+            return new FeatureView(columns, x.selected, test, x.mean, x.scale);
+        }
+
+        protected void restore(double[][] shared, int d) {
+            columns[d] = shared[d];
+        }
+    }
+}
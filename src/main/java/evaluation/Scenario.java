@@ -0,0 +1,71 @@
+package evaluation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scenario described by a JSON file of lmoments/conf_default: the dataset (relative to lmoments/data), the flow
+ * features, the label column and the folder where the L-moment matrices are cached ("Data").
+ */
+public class Scenario implements Serializable {
+    public final String name;
+    public final String dataset;
+    public final List<String> features;
+    public final String labels;
+    public final String dataDirectory;
+
+    public Scenario(String name, String dataset, List<String> features, String labels, String dataDirectory) {
+        this.name = name;
+        this.dataset = dataset;
+        this.features = features;
+        this.labels = labels;
+        this.dataDirectory = dataDirectory;
+    }
+
+    public static Scenario read(String jsonFile) throws IOException {
+        JsonNode rootNode = new ObjectMapper().readTree(new File(jsonFile));
+
+        List<String> features = new ArrayList<>();
+        rootNode.get("features").forEach(feature -> features.add(feature.asText()));
+
+        return new Scenario(FilenameUtils.getBaseName(jsonFile), rootNode.get("dataset").asText(), features, rootNode.get("labels").asText(), rootNode.get("Data").asText());
+    }
+
+    public File datasetFile() {
+        return new File("lmoments/data", dataset);
+    }
+
+    /**
+     * @return CSV file with the L-moment matrix of sample size n, shared with the Python evaluation
+     */
+    public File lmomentFile(int n) {
+        return new File(dataDirectory, name + "." + n + ".csv");
+    }
+
+    /**
+     * @return Binary copy of the L-moment matrix of sample size n (see {@link LmomentMatrixFile}), or the CSV file
+     */
+    public File lmomentFile(int n, LmomentMatrixFile.Encoding encoding) {
+        if (encoding == LmomentMatrixFile.Encoding.CSV) return lmomentFile(n);
+        return new File(dataDirectory, name + "." + n + "." + encoding.name().toLowerCase() + ".bin");
+    }
+
+    public String key(int n) {
+        return name + "." + n;
+    }
+
+    public String[] tauColumns() {
+        String[] columns = new String[features.size() * Lmoments.NUMBER_OF_RATIOS];
+        for (int t = 0; t < Lmoments.NUMBER_OF_RATIOS; t++)
+            for (int f = 0; f < features.size(); f++)
+                columns[t * features.size() + f] = features.get(f) + " (tau" + (t + 3) + ")";
+        return columns;
+    }
+}
@@ -0,0 +1,125 @@
+package evaluation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stratified train/test splits in the way of scikit-learn: StratifiedShuffleSplit (random splits that keep the class
+ * proportions) and StratifiedKFold without shuffling (used by stacking to build the meta-features). Random numbers come
+ * from java.util.Random, so the shuffled splits are not the ones numpy would draw, but they follow the same allocation.
+ */
+public class StratifiedSplits {
+    /**
+     * @return For each split, the train indexes (position 0) and test indexes (position 1)
+     */
+    public static List<int[][]> shuffleSplit(int[] labels, int numberOfClasses, int splits, double testSize, long seed) {
+        Random random = new Random(seed);
+        int samples = labels.length;
+        int test = (int) Math.ceil(testSize * samples);
+        int train = samples - test;
+
+        int[] counts = new int[numberOfClasses];
+        for (int label : labels) counts[label]++;
+
+        int[][] classIndexes = new int[numberOfClasses][];
+        int[] filled = new int[numberOfClasses];
+        for (int c = 0; c < numberOfClasses; c++) classIndexes[c] = new int[counts[c]];
+        for (int i = 0; i < samples; i++) classIndexes[labels[i]][filled[labels[i]]++] = i;
+
+        List<int[][]> result = new ArrayList<>(splits);
+        for (int s = 0; s < splits; s++) {
+            int[] trainCounts = approximateMode(counts, train, random);
+            int[] remaining = new int[numberOfClasses];
+            for (int c = 0; c < numberOfClasses; c++) remaining[c] = counts[c] - trainCounts[c];
+            int[] testCounts = approximateMode(remaining, test, random);
+
+            int[] trainIndexes = new int[train];
+            int[] testIndexes = new int[test];
+            int trainPosition = 0;
+            int testPosition = 0;
+            for (int c = 0; c < numberOfClasses; c++) {
+                int[] permutation = classIndexes[c].clone();
+                shuffle(permutation, random);
+                for (int i = 0; i < trainCounts[c]; i++) trainIndexes[trainPosition++] = permutation[i];
+                for (int i = 0; i < testCounts[c]; i++) testIndexes[testPosition++] = permutation[trainCounts[c] + i];
+            }
+
+            shuffle(trainIndexes, random);
+            shuffle(testIndexes, random);
+            result.add(new int[][]{trainIndexes, testIndexes});
+        }
+
+        return result;
+    }
+
+    /**
+     * StratifiedKFold(n_splits=folds, shuffle=False): the samples of each class are assigned to the folds in order
+     *
+     * @return Fold of each sample
+     */
+    public static int[] kFold(int[] labels, int numberOfClasses, int folds) {
+        int[] sorted = labels.clone();
+        Arrays.sort(sorted);
+
+        int[][] allocation = new int[folds][numberOfClasses];
+        for (int i = 0; i < sorted.length; i++)
+            allocation[i % folds][sorted[i]]++;
+
+        int[] result = new int[labels.length];
+        int[] fold = new int[numberOfClasses];
+        int[] used = new int[numberOfClasses];
+        for (int i = 0; i < labels.length; i++) {
+            int c = labels[i];
+            while (used[c] == allocation[fold[c]][c]) {
+                fold[c]++;
+                used[c] = 0;
+            }
+            result[i] = fold[c];
+            used[c]++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Number of samples of each class to draw so that the class proportions are kept: the floor of the expected counts
+     * plus one for the classes with the largest remainders (ties broken at random)
+     */
+    protected static int[] approximateMode(int[] counts, int draws, Random random) {
+        int total = Arrays.stream(counts).sum();
+        int[] result = new int[counts.length];
+        double[] remainders = new double[counts.length];
+        int assigned = 0;
+
+        for (int c = 0; c < counts.length; c++) {
+            double expected = total > 0 ? (double) counts[c] * draws / total : 0.0;
+            result[c] = (int) Math.floor(expected);
+            remainders[c] = expected - result[c] + random.nextDouble() * 1e-9;
+            assigned += result[c];
+        }
+
+        Integer[] order = new Integer[counts.length];
+        for (int c = 0; c < counts.length; c++) order[c] = c;
+        Arrays.sort(order, (a, b) -> Double.compare(remainders[b], remainders[a]));
+
+        for (int i = 0; assigned < draws && i < order.length; i++) {
+            if (result[order[i]] < counts[order[i]]) {
+                result[order[i]]++;
+                assigned++;
+            }
+        }
+
+        return result;
+    }
+
+    protected static void shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package evaluation;
+
+import java.util.Arrays;
+
+/**
+ * Streaming counterpart of compute_lmom in lmoments/src/compute.py: flow records are accepted one at a time and, every
+ * n records (a tumbling window, as the offline matrix is built), the selected L-moment ratios of the window are
+ * emitted in the column order of the genotype (see {@link EnsembleConfiguration#columns}), ready to be classified.
+ * <p>
+ * As offline, the ratios of a window are computed over its first n - 1 records, so the vectors match the ones the
+ * models were trained on. Only the features used by some selected ratio keep state: a sorted buffer of n - 1 values
+ * where each record is inserted, so closing a window costs one pass over the buffer per ratio. All the state is
+ * allocated by the constructor and accepting records does not allocate.
+ */
+public class StreamingLmoments {
+    protected final int n;
+    protected final int numberOfFeatures;
+    protected final int[] columns;
+
+    protected final int[] features;          // Features with state
+    protected final int[] stateOfColumn;     // Position in features of the feature of each selected column
+    protected final int[] ratioOfColumn;     // 0, 1, 2 for tau3, tau4, tau5
+    protected final double[][] sorted;
+    protected final double[] last;          // Last value of each feature, left out if the window is flushed
+    protected final Lmoments lmoments;
+    protected final double[] ratios;
+    protected final double[] output;
+
+    protected int count;
+    protected long windows;
+
+    /**
+     * @param numberOfFeatures Number of flow features of the scenario
+     * @param columns          Selected columns of the L-moment matrix (all tau3 columns, then tau4, then tau5)
+     * @param n                Number of records of each window
+     */
+    public StreamingLmoments(int numberOfFeatures, int[] columns, int n) {
+        if (n < 2) throw new IllegalArgumentException("The window must have at least 2 records: " + n);
+
+        this.n = n;
+        this.numberOfFeatures = numberOfFeatures;
+        this.columns = columns.clone();
+
+        features = Arrays.stream(columns).map(c -> c % numberOfFeatures).distinct().sorted().toArray();
+        stateOfColumn = new int[columns.length];
+        ratioOfColumn = new int[columns.length];
+        for (int c = 0; c < columns.length; c++) {
+            stateOfColumn[c] = Arrays.binarySearch(features, columns[c] % numberOfFeatures);
+            ratioOfColumn[c] = columns[c] / numberOfFeatures;
+        }
+
+        sorted = new double[features.length][n - 1];
+        last = new double[features.length];
+        lmoments = new Lmoments(n - 1);
+        ratios = new double[features.length * Lmoments.NUMBER_OF_RATIOS];
+        output = new double[columns.length];
+    }
+
+    public StreamingLmoments(int numberOfFeatures, EnsembleConfiguration configuration) {
+        this(numberOfFeatures, configuration.columns, configuration.n);
+    }
+
+    /**
+     * Adds a flow record (the value of every feature of the scenario, as {@link FlowRecordParser} extracts them)
+     *
+     * @return Whether the record closed a window, whose ratios are then available in {@link #ratios()}
+     */
+    public boolean accept(double[] record) {
+        if (count < n - 1) {
+            for (int s = 0; s < features.length; s++) {
+                insert(sorted[s], count, record[features[s]]);
+                last[s] = record[features[s]];
+            }
+        }
+
+        if (++count < n) return false;
+
+        close(n - 1);
+        return true;
+    }
+
+    /**
+     * Closes the current (partial) window, as the offline matrix does with the last rows of the dataset
+     *
+     * @return Whether there were records in the window, whose ratios are then available in {@link #ratios()}
+     */
+    public boolean flush() {
+        if (count == 0) return false;
+
+        // Offline, the last window also leaves out its last record
+        for (int s = 0; s < features.length; s++)
+            remove(sorted[s], count, last[s]);
+        close(count - 1);
+        return true;
+    }
+
+    /**
+     * @return Ratios of the last closed window, in the order of the selected columns. The array is reused by the next
+     * window.
+     */
+    public double[] ratios() {
+        return output;
+    }
+
+    /**
+     * @return Number of windows closed
+     */
+    public long windows() {
+        return windows;
+    }
+
+    public int n() {
+        return n;
+    }
+
+    protected void close(int size) {
+        for (int s = 0; s < features.length; s++) {
+            if (size == n - 1) {
+                lmoments.ratios(sorted[s], 0, ratios, s * Lmoments.NUMBER_OF_RATIOS);
+            } else {
+                // Only the last window of a finite stream is shorter: the estimator is built for its size
+                new Lmoments(size).ratios(sorted[s], 0, ratios, s * Lmoments.NUMBER_OF_RATIOS);
+            }
+        }
+
+        for (int c = 0; c < columns.length; c++)
+            output[c] = ratios[stateOfColumn[c] * Lmoments.NUMBER_OF_RATIOS + ratioOfColumn[c]];
+
+        count = 0;
+        windows++;
+    }
+
+    /**
+     * Removes one occurrence of the value from the sorted prefix buffer[0, size)
+     */
+    protected static void remove(double[] buffer, int size, double value) {
+        int position = Arrays.binarySearch(buffer, 0, size, value);
+        System.arraycopy(buffer, position + 1, buffer, position, size - position - 1);
+    }
+
+    /**
+     * Inserts the value in the sorted prefix buffer[0, size)
+     */
+    protected static void insert(double[] buffer, int size, double value) {
+        int position = Arrays.binarySearch(buffer, 0, size, value);
+        if (position < 0) position = -position - 1;
+        System.arraycopy(buffer, position, buffer, position + 1, size - position);
+        buffer[position] = value;
+    }
+}
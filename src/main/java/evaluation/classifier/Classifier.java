@@ -0,0 +1,27 @@
+package evaluation.classifier;
+
+import evaluation.FeatureView;
+
+import java.io.Serializable;
+
+/**
+ * Classifier trained and queried through {@link FeatureView}s. Labels are ints in [0, numberOfClasses). Predicting
+ * does not allocate, so a trained classifier must not be shared between threads. Trained classifiers can be
+ * serialized together with their training view.
+ */
+public interface Classifier extends Serializable {
+    void fit(FeatureView x, int[] y, int numberOfClasses);
+
+    int predict(FeatureView x, int row);
+
+    /**
+     * @return Number of values produced by {@link #outputs}: 1 for binary problems, one per class otherwise
+     */
+    int numberOfOutputs();
+
+    /**
+     * Stores the values used as meta-features by stacking (decision function or class probabilities, as the
+     * 'auto' stack_method of StackingClassifier)
+     */
+    void outputs(FeatureView x, int row, double[] buffer, int offset);
+}
@@ -0,0 +1,287 @@
+package evaluation.classifier;
+
+import evaluation.FeatureView;
+import evaluation.PairwiseDistances;
+
+import java.util.Arrays;
+
+/**
+ * k-nearest neighbors classifier (Euclidean distance, uniform or inverse-distance weights) as KNeighborsClassifier. The
+ * training rows are indexed by a kd-tree built over the view (leaves of up to 30 rows, split on the dimension of
+ * largest spread at the median), and queries keep the k best candidates in preallocated arrays (ties going to the
+ * lower training row). In more than 12 dimensions, where the tree prunes little, queries whose view carries the
+ * pairwise distances of the training rows scan them instead: with 958 and 1917 training windows (n=200 and n=100) the
+ * scan took from a half to a fifth of the time of the tree there, and up to ten times longer in 4 to 8 dimensions.
+ */
+public class KNeighborsClassifier implements Classifier {
+    protected static final int LEAF_SIZE = 30;
+    protected static final int SCAN_DIMENSIONS = 12;
+
+    protected final int k;
+    protected final boolean distanceWeights;
+
+    protected FeatureView train;
+    protected int[] labels;
+    protected int numberOfClasses;
+    protected int dimensions;
+    protected transient PairwiseDistances distances;
+
+    // kd-tree: node i covers index[start[i], end[i]) and is split in children 2i+1 and 2i+2 when it is not a leaf
+    protected int[] index;
+    protected int[] start;
+    protected int[] end;
+    protected double[] lower;
+    protected double[] upper;
+    protected int nodes;
+
+    // Query buffers
+    protected double[] query;
+    protected double[] bestDistances;
+    protected int[] bestRows;
+    protected int found;
+    protected double[] votes;
+
+    public KNeighborsClassifier(int k, boolean distanceWeights) {
+        this.k = k;
+        this.distanceWeights = distanceWeights;
+    }
+
+    @Override
+    public void fit(FeatureView x, int[] y, int numberOfClasses) {
+        this.train = x;
+        this.labels = y;
+        this.numberOfClasses = numberOfClasses;
+        this.dimensions = x.dimensions();
+        this.distances = dimensions > SCAN_DIMENSIONS ? x.distances() : null;
+
+        int rows = x.rows();
+        int levels = 1;
+        while ((rows >> (levels - 1)) > LEAF_SIZE) levels++;
+        nodes = (1 << levels) - 1;
+
+        index = new int[rows];
+        for (int i = 0; i < rows; i++) index[i] = i;
+        start = new int[nodes];
+        end = new int[nodes];
+        lower = new double[nodes * dimensions];
+        upper = new double[nodes * dimensions];
+        build(0, 0, rows);
+
+        query = new double[dimensions];
+        bestDistances = new double[k];
+        bestRows = new int[k];
+        votes = new double[numberOfClasses];
+    }
+
+    protected void build(int node, int from, int to) {
+        start[node] = from;
+        end[node] = to;
+
+        for (int d = 0; d < dimensions; d++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                double value = train.get(index[i], d);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            lower[node * dimensions + d] = min;
+            upper[node * dimensions + d] = max;
+        }
+
+        int left = 2 * node + 1;
+        if (left >= nodes || to - from <= LEAF_SIZE) return;
+
+        int split = 0;
+        double spread = -1.0;
+        for (int d = 0; d < dimensions; d++) {
+            double s = upper[node * dimensions + d] - lower[node * dimensions + d];
+            if (s > spread) {
+                spread = s;
+                split = d;
+            }
+        }
+
+        int middle = (from + to) / 2;
+        select(from, to - 1, middle, split);
+        build(left, from, middle);
+        build(left + 1, middle, to);
+    }
+
+    /**
+     * Quickselect: places in index[k] the row whose value in the given dimension has rank k within [from, to]
+     */
+    protected void select(int from, int to, int k, int dimension) {
+        while (from < to) {
+            double pivot = train.get(index[(from + to) >>> 1], dimension);
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (train.get(index[i], dimension) < pivot) i++;
+                while (train.get(index[j], dimension) > pivot) j--;
+                if (i <= j) {
+                    int tmp = index[i];
+                    index[i] = index[j];
+                    index[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) to = j;
+            else if (k >= i) from = i;
+            else return;
+        }
+    }
+
+    /**
+     * Finds the k nearest training rows of the given row (squared distances in bestDistances, sorted ascending)
+     */
+    protected void search(FeatureView x, int row) {
+        found = 0;
+        if (distances != null && x.distances() == distances) {
+            int source = x.sourceRow(row);
+            for (int i = 0; i < train.rows(); i++) offer(i, distances.get(source, train.sourceRow(i)));
+        } else {
+            x.row(row, query);
+            search(0);
+        }
+
+        for (int i = 1; i < found; i++) {
+            double distance = bestDistances[i];
+            int candidate = bestRows[i];
+            int j = i - 1;
+            while (j >= 0 && worse(bestDistances[j], bestRows[j], distance, candidate)) {
+                bestDistances[j + 1] = bestDistances[j];
+                bestRows[j + 1] = bestRows[j];
+                j--;
+            }
+            bestDistances[j + 1] = distance;
+            bestRows[j + 1] = candidate;
+        }
+    }
+
+    protected void search(int node) {
+        if (found == k && boxDistance(node) > bestDistances[0]) return;
+
+        int left = 2 * node + 1;
+        if (left >= nodes || end[node] - start[node] <= LEAF_SIZE) {
+            for (int i = start[node]; i < end[node]; i++) offer(index[i]);
+            return;
+        }
+
+        if (boxDistance(left) <= boxDistance(left + 1)) {
+            search(left);
+            search(left + 1);
+        } else {
+            search(left + 1);
+            search(left);
+        }
+    }
+
+    protected double boxDistance(int node) {
+        double distance = 0.0;
+        for (int d = 0; d < dimensions; d++) {
+            double value = query[d];
+            double low = lower[node * dimensions + d];
+            double high = upper[node * dimensions + d];
+            if (value < low) distance += (low - value) * (low - value);
+            else if (value > high) distance += (value - high) * (value - high);
+        }
+        return distance;
+    }
+
+    /**
+     * Keeps the candidate if it is among the k nearest rows seen. While searching, position 0 holds the farthest of
+     * the candidates kept (max-heap)
+     */
+    protected void offer(int candidate) {
+        double distance = 0.0;
+        for (int d = 0; d < dimensions; d++) {
+            double diff = query[d] - train.get(candidate, d);
+            distance += diff * diff;
+        }
+        offer(candidate, distance);
+    }
+
+    protected void offer(int candidate, double distance) {
+        if (found < k) {
+            int i = found++;
+            while (i > 0 && worse(distance, candidate, bestDistances[(i - 1) / 2], bestRows[(i - 1) / 2])) {
+                bestDistances[i] = bestDistances[(i - 1) / 2];
+                bestRows[i] = bestRows[(i - 1) / 2];
+                i = (i - 1) / 2;
+            }
+            bestDistances[i] = distance;
+            bestRows[i] = candidate;
+        } else if (worse(bestDistances[0], bestRows[0], distance, candidate)) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= k) break;
+                if (child + 1 < k && worse(bestDistances[child + 1], bestRows[child + 1], bestDistances[child], bestRows[child])) child++;
+                if (!worse(bestDistances[child], bestRows[child], distance, candidate)) break;
+                bestDistances[i] = bestDistances[child];
+                bestRows[i] = bestRows[child];
+                i = child;
+            }
+            bestDistances[i] = distance;
+            bestRows[i] = candidate;
+        }
+    }
+
+    /**
+     * @return Whether the first candidate is farther than the second one, ties going to the lower training row so that
+     * the tree and the scan keep the same neighbors
+     */
+    protected static boolean worse(double distance, int row, double otherDistance, int otherRow) {
+        return distance > otherDistance || distance == otherDistance && row > otherRow;
+    }
+
+    /**
+     * Accumulates in votes the (weighted) votes of the neighbors of the row
+     */
+    protected void vote(FeatureView x, int row) {
+        search(x, row);
+        Arrays.fill(votes, 0.0);
+
+        boolean exact = false;
+        if (distanceWeights)
+            for (int i = 0; i < found; i++)
+                exact |= bestDistances[i] == 0.0;
+
+        for (int i = 0; i < found; i++) {
+            double weight = 1.0;
+            if (distanceWeights)
+                weight = exact ? (bestDistances[i] == 0.0 ? 1.0 : 0.0) : 1.0 / Math.sqrt(bestDistances[i]);
+            votes[labels[bestRows[i]]] += weight;
+        }
+    }
+
+    @Override
+    public int predict(FeatureView x, int row) {
+        vote(x, row);
+        int best = 0;
+        for (int c = 1; c < numberOfClasses; c++)
+            if (votes[c] > votes[best]) best = c;
+        return best;
+    }
+
+    @Override
+    public int numberOfOutputs() {
+        return numberOfClasses == 2 ? 1 : numberOfClasses;
+    }
+
+    @Override
+    public void outputs(FeatureView x, int row, double[] output, int offset) {
+        vote(x, row);
+        double total = 0.0;
+        for (double v : votes) total += v;
+
+        if (numberOfClasses == 2) {
+            output[offset] = total > 0.0 ? votes[1] / total : 0.0;
+        } else {
+            for (int c = 0; c < numberOfClasses; c++)
+                output[offset + c] = total > 0.0 ? votes[c] / total : 0.0;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package evaluation.classifier;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * L2-regularized logistic regression (C=1, unpenalized intercepts) on a dense row-major matrix, binary for two classes
+ * and multinomial otherwise, fitted with L-BFGS as LogisticRegression does by default. It is the final estimator of
+ * {@link StackingClassifier}, whose meta-features are few and already in memory.
+ */
+public class LogisticRegression implements Serializable {
+    protected static final int MAX_ITERATIONS = 100;
+    protected static final int MEMORY = 10;
+    protected static final double TOLERANCE = 1e-4;
+
+    protected int dimensions;
+    protected int outputs;
+    protected double[] parameters;
+    protected double[] scores;
+
+    public void fit(double[][] x, int[] y, int numberOfClasses) {
+        dimensions = x.length > 0 ? x[0].length : 0;
+        outputs = numberOfClasses == 2 ? 1 : numberOfClasses;
+        scores = new double[outputs];
+
+        int size = outputs * (dimensions + 1);
+        double[] w = new double[size];
+        double[] gradient = new double[size];
+        double loss = lossAndGradient(x, y, w, gradient);
+
+        double[][] s = new double[MEMORY][];
+        double[][] g = new double[MEMORY][];
+        double[] rho = new double[MEMORY];
+        double[] a = new double[MEMORY];
+        int stored = 0;
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double maxGradient = 0.0;
+            for (double value : gradient) maxGradient = Math.max(maxGradient, Math.abs(value));
+            if (maxGradient <= TOLERANCE) break;
+
+            // Two-loop recursion: direction = -H * gradient
+            double[] direction = gradient.clone();
+            for (int k = stored - 1; k >= 0; k--) {
+                a[k] = rho[k] * dot(s[k], direction);
+                axpy(-a[k], g[k], direction);
+            }
+            if (stored > 0) {
+                double scale = dot(s[stored - 1], g[stored - 1]) / dot(g[stored - 1], g[stored - 1]);
+                for (int i = 0; i < size; i++) direction[i] *= scale;
+            }
+            for (int k = 0; k < stored; k++) {
+                double b = rho[k] * dot(g[k], direction);
+                axpy(a[k] - b, s[k], direction);
+            }
+            for (int i = 0; i < size; i++) direction[i] = -direction[i];
+
+            double slope = dot(gradient, direction);
+            if (slope >= 0.0) {
+                for (int i = 0; i < size; i++) direction[i] = -gradient[i];
+                slope = dot(gradient, direction);
+                stored = 0;
+            }
+
+            // Backtracking line search (Armijo)
+            double step = 1.0;
+            double[] candidate = new double[size];
+            double[] candidateGradient = new double[size];
+            double candidateLoss;
+            while (true) {
+                for (int i = 0; i < size; i++) candidate[i] = w[i] + step * direction[i];
+                candidateLoss = lossAndGradient(x, y, candidate, candidateGradient);
+                if (candidateLoss <= loss + 1e-4 * step * slope || step < 1e-10) break;
+                step *= 0.5;
+            }
+
+            double[] sk = new double[size];
+            double[] gk = new double[size];
+            for (int i = 0; i < size; i++) {
+                sk[i] = candidate[i] - w[i];
+                gk[i] = candidateGradient[i] - gradient[i];
+            }
+            double curvature = dot(sk, gk);
+            if (curvature > 1e-10) {
+                if (stored == MEMORY) {
+                    System.arraycopy(s, 1, s, 0, MEMORY - 1);
+                    System.arraycopy(g, 1, g, 0, MEMORY - 1);
+                    System.arraycopy(rho, 1, rho, 0, MEMORY - 1);
+                    stored--;
+                }
+                s[stored] = sk;
+                g[stored] = gk;
+                rho[stored] = 1.0 / curvature;
+                stored++;
+            }
+
+            boolean converged = Math.abs(loss - candidateLoss) <= 1e-12 * Math.max(1.0, Math.abs(loss));
+            w = candidate;
+            gradient = candidateGradient;
+            loss = candidateLoss;
+            if (converged) break;
+        }
+
+        parameters = w;
+    }
+
+    protected double lossAndGradient(double[][] x, int[] y, double[] w, double[] gradient) {
+        Arrays.fill(gradient, 0.0);
+        double loss = 0.0;
+        double[] z = new double[outputs];
+
+        for (int r = 0; r < x.length; r++) {
+            linear(w, x[r], z);
+            if (outputs == 1) {
+                double target = y[r] == 1 ? 1.0 : 0.0;
+                double p = 1.0 / (1.0 + Math.exp(-z[0]));
+                loss += z[0] > 0 ? Math.log1p(Math.exp(-z[0])) + (1 - target) * z[0] : Math.log1p(Math.exp(z[0])) - target * z[0];
+                accumulate(gradient, 0, x[r], p - target);
+            } else {
+                double max = Double.NEGATIVE_INFINITY;
+                for (double value : z) max = Math.max(max, value);
+                double sum = 0.0;
+                for (int k = 0; k < outputs; k++) sum += Math.exp(z[k] - max);
+                loss += Math.log(sum) + max - z[y[r]];
+                for (int k = 0; k < outputs; k++)
+                    accumulate(gradient, k, x[r], Math.exp(z[k] - max) / sum - (y[r] == k ? 1.0 : 0.0));
+            }
+        }
+
+        for (int k = 0; k < outputs; k++) {
+            for (int d = 0; d < dimensions; d++) {
+                double weight = w[k * (dimensions + 1) + d];
+                loss += 0.5 * weight * weight;
+                gradient[k * (dimensions + 1) + d] += weight;
+            }
+        }
+
+        return loss;
+    }
+
+    protected void linear(double[] w, double[] row, double[] z) {
+        for (int k = 0; k < outputs; k++) {
+            int base = k * (dimensions + 1);
+            double sum = w[base + dimensions];
+            for (int d = 0; d < dimensions; d++) sum += w[base + d] * row[d];
+            z[k] = sum;
+        }
+    }
+
+    protected void accumulate(double[] gradient, int output, double[] row, double error) {
+        int base = output * (dimensions + 1);
+        for (int d = 0; d < dimensions; d++) gradient[base + d] += error * row[d];
+        gradient[base + dimensions] += error;
+    }
+
+    public int predict(double[] row) {
+        linear(parameters, row, scores);
+        if (outputs == 1) return scores[0] > 0.0 ? 1 : 0;
+
+        int best = 0;
+        for (int k = 1; k < outputs; k++)
+            if (scores[k] > scores[best]) best = k;
+        return best;
+    }
+
+    protected static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    protected static void axpy(double alpha, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) y[i] += alpha * x[i];
+    }
+}
@@ -0,0 +1,172 @@
+package evaluation.classifier;
+
+import evaluation.FeatureView;
+
+import java.util.Random;
+
+/**
+ * Linear classifier trained by stochastic gradient descent as SGDClassifier with its default parameters (alpha=1e-4,
+ * 'optimal' learning rate, max_iter=1000, tol=1e-3, n_iter_no_change=5), hinge or squared hinge loss, L1 (truncated
+ * gradient) or L2 penalty, and one-versus-rest for more than two classes.
+ */
+public class SGDClassifier implements Classifier {
+    protected static final double ALPHA = 1e-4;
+    protected static final int MAX_ITERATIONS = 1000;
+    protected static final double TOLERANCE = 1e-3;
+    protected static final int NO_CHANGE_ITERATIONS = 5;
+
+    protected final boolean l2Penalty;
+    protected final boolean squaredHinge;
+    protected final long seed;
+
+    protected double[][] weights;
+    protected double[] intercepts;
+    protected int numberOfClasses;
+    protected double[] buffer;
+
+    public SGDClassifier(boolean l2Penalty, boolean squaredHinge, long seed) {
+        this.l2Penalty = l2Penalty;
+        this.squaredHinge = squaredHinge;
+        this.seed = seed;
+    }
+
+    @Override
+    public void fit(FeatureView x, int[] y, int numberOfClasses) {
+        this.numberOfClasses = numberOfClasses;
+        int models = numberOfClasses == 2 ? 1 : numberOfClasses;
+        weights = new double[models][];
+        intercepts = new double[models];
+        buffer = new double[x.dimensions()];
+
+        for (int m = 0; m < models; m++) {
+            int positive = models == 1 ? 1 : m;
+            fitBinary(x, y, positive, m);
+        }
+    }
+
+    protected void fitBinary(FeatureView x, int[] y, int positive, int model) {
+        int dimensions = x.dimensions();
+        int samples = x.rows();
+        double[] w = new double[dimensions];
+        double[] q = new double[dimensions];
+        double[] row = new double[dimensions];
+        double wScale = 1.0;
+        double intercept = 0.0;
+        double u = 0.0;
+
+        double typw = Math.sqrt(1.0 / Math.sqrt(ALPHA));
+        double t0 = 1.0 / (typw * ALPHA);
+        double t = 1.0;
+
+        int[] order = new int[samples];
+        for (int i = 0; i < samples; i++) order[i] = i;
+        Random random = new Random(seed);
+
+        double bestLoss = Double.POSITIVE_INFINITY;
+        int noImprovement = 0;
+
+        for (int epoch = 0; epoch < MAX_ITERATIONS; epoch++) {
+            for (int i = samples - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
+
+            double sumLoss = 0.0;
+            for (int s = 0; s < samples; s++) {
+                int sample = order[s];
+                x.row(sample, row);
+                double target = y[sample] == positive ? 1.0 : -1.0;
+
+                double eta = 1.0 / (ALPHA * (t0 + t - 1.0));
+                double p = intercept;
+                for (int d = 0; d < dimensions; d++) p += wScale * w[d] * row[d];
+
+                sumLoss += loss(p, target);
+                double dLoss = Math.max(-1e12, Math.min(1e12, dLoss(p, target)));
+                double update = -eta * dLoss;
+
+                if (l2Penalty) wScale *= Math.max(0.0, 1.0 - eta * ALPHA);
+
+                if (update != 0.0) {
+                    for (int d = 0; d < dimensions; d++) w[d] += update * row[d] / wScale;
+                    intercept += update;
+                }
+
+                if (!l2Penalty) {
+                    u += eta * ALPHA;
+                    for (int d = 0; d < dimensions; d++) {
+                        double z = w[d];
+                        if (wScale * w[d] > 0.0) w[d] = Math.max(0.0, w[d] - (u + q[d]) / wScale);
+                        else if (wScale * w[d] < 0.0) w[d] = Math.min(0.0, w[d] + (u - q[d]) / wScale);
+                        q[d] += wScale * (w[d] - z);
+                    }
+                }
+
+                if (wScale < 1e-9) {
+                    for (int d = 0; d < dimensions; d++) w[d] *= wScale;
+                    wScale = 1.0;
+                }
+                t++;
+            }
+
+            if (sumLoss > bestLoss - TOLERANCE * samples) noImprovement++;
+            else noImprovement = 0;
+            if (sumLoss < bestLoss) bestLoss = sumLoss;
+            if (noImprovement >= NO_CHANGE_ITERATIONS) break;
+        }
+
+        for (int d = 0; d < dimensions; d++) w[d] *= wScale;
+        weights[model] = w;
+        intercepts[model] = intercept;
+    }
+
+    protected double loss(double p, double y) {
+        double z = 1.0 - p * y;
+        if (z <= 0.0) return 0.0;
+        return squaredHinge ? z * z : z;
+    }
+
+    protected double dLoss(double p, double y) {
+        double z = 1.0 - p * y;
+        if (z <= 0.0) return 0.0;
+        return squaredHinge ? -2.0 * y * z : -y;
+    }
+
+    protected double decision(int model, double[] row) {
+        double p = intercepts[model];
+        double[] w = weights[model];
+        for (int d = 0; d < w.length; d++) p += w[d] * row[d];
+        return p;
+    }
+
+    @Override
+    public int predict(FeatureView x, int row) {
+        x.row(row, buffer);
+        if (weights.length == 1) return decision(0, buffer) > 0.0 ? 1 : 0;
+
+        int best = 0;
+        double bestDecision = Double.NEGATIVE_INFINITY;
+        for (int m = 0; m < weights.length; m++) {
+            double decision = decision(m, buffer);
+            if (decision > bestDecision) {
+                bestDecision = decision;
+                best = m;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public int numberOfOutputs() {
+        return weights.length;
+    }
+
+    @Override
+    public void outputs(FeatureView x, int row, double[] output, int offset) {
+        x.row(row, buffer);
+        for (int m = 0; m < weights.length; m++)
+            output[offset + m] = decision(m, buffer);
+    }
+}
@@ -0,0 +1,415 @@
+package evaluation.classifier;
+
+import evaluation.FeatureView;
+import evaluation.PairwiseDistances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * C-support vector classifier (C=1, tol=1e-3) with RBF or polynomial kernel (coef0=0), trained one-versus-one as SVC
+ * does. Each binary problem is solved with the SMO algorithm of LIBSVM (second order working set selection) and the
+ * kernel rows are kept in a least recently used cache. gamma is 1 / (dimensions * variance of the training data) for
+ * 'scale' and 1 / dimensions for 'auto'. When the training view carries the pairwise distances of its rows, the RBF
+ * kernel reads them instead of computing dot products (the polynomial kernel always computes them).
+ */
+public class SVC implements Classifier {
+    public enum Kernel {RBF, POLY}
+
+    protected static final double C = 1.0;
+    protected static final double TOLERANCE = 1e-3;
+    protected static final double TAU = 1e-12;
+    protected static final int MAX_ITERATIONS = 10_000_000;
+    protected static final long CACHE_BYTES = 200L << 20;
+
+    protected final Kernel kernel;
+    protected final int degree;
+    protected final boolean gammaAuto;
+
+    protected FeatureView train;
+    protected double gamma;
+    protected double[] squaredNorms;
+    protected transient PairwiseDistances distances;
+    protected int numberOfClasses;
+
+    // Support vectors of all the binary problems (rows of the training view)
+    protected int[] supportVectors;
+    // For each pair of classes (first[p] < second[p]): indexes in supportVectors, coefficients (alpha * y) and rho
+    protected int[] first;
+    protected int[] second;
+    protected int[][] pairVectors;
+    protected double[][] pairCoefficients;
+    protected double[] rho;
+
+    // Prediction buffers
+    protected double[] query;
+    protected double[] kernelValues;
+    protected double[] decisions;
+    protected double[] votes;
+
+    public SVC(Kernel kernel, int degree, boolean gammaAuto) {
+        this.kernel = kernel;
+        this.degree = degree;
+        this.gammaAuto = gammaAuto;
+    }
+
+    @Override
+    public void fit(FeatureView x, int[] y, int numberOfClasses) {
+        this.train = x;
+        this.numberOfClasses = numberOfClasses;
+        this.distances = kernel == Kernel.RBF ? x.distances() : null;
+
+        int dimensions = x.dimensions();
+        if (gammaAuto) {
+            gamma = 1.0 / dimensions;
+        } else {
+            double variance = x.variance();
+            gamma = variance > 0.0 ? 1.0 / (dimensions * variance) : 1.0;
+        }
+
+        double[] row = new double[dimensions];
+        squaredNorms = new double[x.rows()];
+        for (int r = 0; r < x.rows(); r++) {
+            x.row(r, row);
+            for (double value : row) squaredNorms[r] += value * value;
+        }
+
+        List<Integer> firsts = new ArrayList<>();
+        List<Integer> seconds = new ArrayList<>();
+        for (int a = 0; a < numberOfClasses; a++)
+            for (int b = a + 1; b < numberOfClasses; b++) {
+                firsts.add(a);
+                seconds.add(b);
+            }
+
+        int pairs = firsts.size();
+        first = new int[pairs];
+        second = new int[pairs];
+        pairVectors = new int[pairs][];
+        pairCoefficients = new double[pairs][];
+        rho = new double[pairs];
+
+        Map<Integer, Integer> vectorIndexes = new LinkedHashMap<>();
+        for (int p = 0; p < pairs; p++) {
+            first[p] = firsts.get(p);
+            second[p] = seconds.get(p);
+
+            int count = 0;
+            for (int label : y) if (label == first[p] || label == second[p]) count++;
+            int[] rows = new int[count];
+            byte[] signs = new byte[count];
+            count = 0;
+            for (int r = 0; r < y.length; r++) {
+                if (y[r] == first[p] || y[r] == second[p]) {
+                    rows[count] = r;
+                    signs[count++] = (byte) (y[r] == first[p] ? 1 : -1);
+                }
+            }
+
+            double[] alpha = new double[count];
+            rho[p] = count > 0 ? solve(rows, signs, alpha) : 0.0;
+
+            int supports = 0;
+            for (double a : alpha) if (a > 0.0) supports++;
+            pairVectors[p] = new int[supports];
+            pairCoefficients[p] = new double[supports];
+            supports = 0;
+            for (int i = 0; i < count; i++) {
+                if (alpha[i] > 0.0) {
+                    int index = vectorIndexes.computeIfAbsent(rows[i], r -> vectorIndexes.size());
+                    pairVectors[p][supports] = index;
+                    pairCoefficients[p][supports++] = alpha[i] * signs[i];
+                }
+            }
+        }
+
+        supportVectors = vectorIndexes.keySet().stream().mapToInt(Integer::intValue).toArray();
+
+        query = new double[dimensions];
+        kernelValues = new double[supportVectors.length];
+        decisions = new double[pairs];
+        votes = new double[numberOfClasses];
+    }
+
+    /**
+     * Solves the dual problem of the binary classifier over the given training rows
+     *
+     * @return rho (the decision function is sum(alpha_i * y_i * K(x_i, x)) - rho)
+     */
+    protected double solve(int[] rows, byte[] y, double[] alpha) {
+        int l = rows.length;
+        double[] gradient = new double[l];
+        Arrays.fill(gradient, -1.0);
+        double[] diagonal = new double[l];
+        for (int t = 0; t < l; t++) diagonal[t] = kernel(rows[t], rows[t]);
+
+        KernelRows cache = new KernelRows(rows, y);
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double gMax = Double.NEGATIVE_INFINITY;
+            int i = -1;
+            for (int t = 0; t < l; t++) {
+                if (y[t] == 1) {
+                    if (alpha[t] < C && -gradient[t] >= gMax) {
+                        gMax = -gradient[t];
+                        i = t;
+                    }
+                } else if (alpha[t] > 0.0 && gradient[t] >= gMax) {
+                    gMax = gradient[t];
+                    i = t;
+                }
+            }
+            if (i == -1) break;
+
+            float[] qi = cache.row(i);
+            double gMax2 = Double.NEGATIVE_INFINITY;
+            double minObjective = Double.POSITIVE_INFINITY;
+            int j = -1;
+            for (int t = 0; t < l; t++) {
+                double gradientDiff;
+                double quadratic;
+                if (y[t] == 1) {
+                    if (!(alpha[t] > 0.0)) continue;
+                    gradientDiff = gMax + gradient[t];
+                    gMax2 = Math.max(gMax2, gradient[t]);
+                    quadratic = diagonal[i] + diagonal[t] - 2.0 * y[i] * qi[t];
+                } else {
+                    if (!(alpha[t] < C)) continue;
+                    gradientDiff = gMax - gradient[t];
+                    gMax2 = Math.max(gMax2, -gradient[t]);
+                    quadratic = diagonal[i] + diagonal[t] + 2.0 * y[i] * qi[t];
+                }
+                if (gradientDiff > 0.0) {
+                    double objective = -(gradientDiff * gradientDiff) / (quadratic > 0.0 ? quadratic : TAU);
+                    if (objective <= minObjective) {
+                        minObjective = objective;
+                        j = t;
+                    }
+                }
+            }
+            if (gMax + gMax2 < TOLERANCE || j == -1) break;
+
+            float[] qj = cache.row(j);
+            double oldAi = alpha[i];
+            double oldAj = alpha[j];
+            double ai = oldAi;
+            double aj = oldAj;
+
+            if (y[i] != y[j]) {
+                double quadratic = diagonal[i] + diagonal[j] + 2.0 * qi[j];
+                double delta = (-gradient[i] - gradient[j]) / (quadratic > 0.0 ? quadratic : TAU);
+                double diff = ai - aj;
+                ai += delta;
+                aj += delta;
+                if (diff > 0.0) {
+                    if (aj < 0.0) {
+                        aj = 0.0;
+                        ai = diff;
+                    }
+                } else if (ai < 0.0) {
+                    ai = 0.0;
+                    aj = -diff;
+                }
+                if (diff > 0.0) {
+                    if (ai > C) {
+                        ai = C;
+                        aj = C - diff;
+                    }
+                } else if (aj > C) {
+                    aj = C;
+                    ai = C + diff;
+                }
+            } else {
+                double quadratic = diagonal[i] + diagonal[j] - 2.0 * qi[j];
+                double delta = (gradient[i] - gradient[j]) / (quadratic > 0.0 ? quadratic : TAU);
+                double sum = ai + aj;
+                ai -= delta;
+                aj += delta;
+                if (sum > C) {
+                    if (ai > C) {
+                        ai = C;
+                        aj = sum - C;
+                    }
+                } else if (aj < 0.0) {
+                    aj = 0.0;
+                    ai = sum;
+                }
+                if (sum > C) {
+                    if (aj > C) {
+                        aj = C;
+                        ai = sum - C;
+                    }
+                } else if (ai < 0.0) {
+                    ai = 0.0;
+                    aj = sum;
+                }
+            }
+
+            alpha[i] = ai;
+            alpha[j] = aj;
+            double deltaI = ai - oldAi;
+            double deltaJ = aj - oldAj;
+            for (int t = 0; t < l; t++)
+                gradient[t] += qi[t] * deltaI + qj[t] * deltaJ;
+        }
+
+        double upper = Double.POSITIVE_INFINITY;
+        double lower = Double.NEGATIVE_INFINITY;
+        double sumFree = 0.0;
+        int free = 0;
+        for (int t = 0; t < l; t++) {
+            double yg = y[t] * gradient[t];
+            if (alpha[t] >= C) {
+                if (y[t] == -1) upper = Math.min(upper, yg);
+                else lower = Math.max(lower, yg);
+            } else if (alpha[t] <= 0.0) {
+                if (y[t] == 1) upper = Math.min(upper, yg);
+                else lower = Math.max(lower, yg);
+            } else {
+                free++;
+                sumFree += yg;
+            }
+        }
+
+        return free > 0 ? sumFree / free : (upper + lower) / 2.0;
+    }
+
+    protected double kernel(int a, int b) {
+        if (distances != null)
+            return Math.exp(-gamma * distances.get(train.sourceRow(a), train.sourceRow(b)));
+        double dot = 0.0;
+        for (int d = 0; d < train.dimensions(); d++)
+            dot += train.get(a, d) * train.get(b, d);
+        return kernelFromDot(dot, squaredNorms[a], squaredNorms[b]);
+    }
+
+    protected double kernelFromDot(double dot, double squaredNormA, double squaredNormB) {
+        if (kernel == Kernel.RBF)
+            return Math.exp(-gamma * (squaredNormA + squaredNormB - 2.0 * dot));
+        return Math.pow(gamma * dot, degree);
+    }
+
+    /**
+     * Computes the decision value of every pair of classes for the row
+     */
+    protected void decide(FeatureView x, int row) {
+        if (distances != null && x.distances() == distances) {
+            int source = x.sourceRow(row);
+            for (int s = 0; s < supportVectors.length; s++)
+                kernelValues[s] = Math.exp(-gamma * distances.get(source, train.sourceRow(supportVectors[s])));
+        } else {
+            x.row(row, query);
+            double squaredNorm = 0.0;
+            for (double value : query) squaredNorm += value * value;
+
+            for (int s = 0; s < supportVectors.length; s++) {
+                double dot = 0.0;
+                for (int d = 0; d < query.length; d++)
+                    dot += query[d] * train.get(supportVectors[s], d);
+                kernelValues[s] = kernelFromDot(dot, squaredNorm, squaredNorms[supportVectors[s]]);
+            }
+        }
+
+        for (int p = 0; p < first.length; p++) {
+            double sum = -rho[p];
+            for (int s = 0; s < pairVectors[p].length; s++)
+                sum += pairCoefficients[p][s] * kernelValues[pairVectors[p][s]];
+            decisions[p] = sum;
+        }
+    }
+
+    @Override
+    public int predict(FeatureView x, int row) {
+        decide(x, row);
+        Arrays.fill(votes, 0.0);
+        for (int p = 0; p < first.length; p++)
+            votes[decisions[p] > 0.0 ? first[p] : second[p]]++;
+
+        int best = 0;
+        for (int c = 1; c < numberOfClasses; c++)
+            if (votes[c] > votes[best]) best = c;
+        return best;
+    }
+
+    @Override
+    public int numberOfOutputs() {
+        return numberOfClasses == 2 ? 1 : numberOfClasses;
+    }
+
+    /**
+     * decision_function of SVC: the opposite of the binary decision value for two classes, and the one-versus-rest
+     * transformation of the votes and confidences of the pairs otherwise
+     */
+    @Override
+    public void outputs(FeatureView x, int row, double[] output, int offset) {
+        decide(x, row);
+
+        if (numberOfClasses == 2) {
+            output[offset] = -decisions[0];
+            return;
+        }
+
+        Arrays.fill(votes, 0.0);
+        for (int c = 0; c < numberOfClasses; c++) output[offset + c] = 0.0;
+        for (int p = 0; p < first.length; p++) {
+            output[offset + first[p]] += decisions[p];
+            output[offset + second[p]] -= decisions[p];
+            votes[decisions[p] >= 0.0 ? first[p] : second[p]]++;
+        }
+        for (int c = 0; c < numberOfClasses; c++) {
+            double confidence = output[offset + c];
+            output[offset + c] = votes[c] + confidence / (3.0 * (Math.abs(confidence) + 1.0));
+        }
+    }
+
+    /**
+     * Rows of the matrix Q (Q_ij = y_i * y_j * K(x_i, x_j)) of a binary problem, computed on demand and kept while they
+     * fit in the cache
+     */
+    protected class KernelRows {
+        protected final int[] rows;
+        protected final byte[] y;
+        protected final LinkedHashMap<Integer, float[]> cache;
+        protected final double[] buffer;
+
+        protected KernelRows(int[] rows, byte[] y) {
+            this.rows = rows;
+            this.y = y;
+            this.buffer = new double[train.dimensions()];
+            long capacity = Math.max(2, CACHE_BYTES / (4L * Math.max(rows.length, 1)));
+            this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        protected float[] row(int i) {
+            float[] row = cache.get(i);
+            if (row != null) return row;
+
+            row = new float[rows.length];
+            if (distances != null) {
+                int source = train.sourceRow(rows[i]);
+                for (int t = 0; t < rows.length; t++)
+                    row[t] = (float) (y[i] * y[t] * Math.exp(-gamma * distances.get(source, train.sourceRow(rows[t]))));
+                cache.put(i, row);
+                return row;
+            }
+
+            train.row(rows[i], buffer);
+            for (int t = 0; t < rows.length; t++) {
+                double dot = 0.0;
+                for (int d = 0; d < buffer.length; d++)
+                    dot += buffer[d] * train.get(rows[t], d);
+                row[t] = (float) (y[i] * y[t] * kernelFromDot(dot, squaredNorms[rows[i]], squaredNorms[rows[t]]));
+            }
+            cache.put(i, row);
+            return row;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package evaluation.classifier;
+
+import evaluation.FeatureView;
+import evaluation.StratifiedSplits;
+
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Stacking ensemble as StackingClassifier with its defaults: the meta-features of each training row are the outputs
+ * (see {@link Classifier#outputs}) of the estimators fitted on the other folds of a 5-fold stratified split, a
+ * {@link LogisticRegression} is fitted on them, and the estimators are fitted again on the whole training set to
+ * compute the meta-features of new rows. All the fits run in parallel.
+ */
+public class StackingClassifier implements Classifier {
+    protected static final int FOLDS = 5;
+
+    protected final transient List<Supplier<Classifier>> estimators;
+    protected Classifier[] fitted;
+    protected int[] offsets;
+    protected LogisticRegression finalEstimator;
+    protected int numberOfClasses;
+    protected double[] meta;
+
+    public StackingClassifier(List<Supplier<Classifier>> estimators) {
+        this.estimators = estimators;
+    }
+
+    @Override
+    public void fit(FeatureView x, int[] y, int numberOfClasses) {
+        this.numberOfClasses = numberOfClasses;
+        int numberOfEstimators = estimators.size();
+        int width = numberOfEstimators * width(numberOfClasses);
+
+        offsets = new int[numberOfEstimators];
+        for (int e = 0; e < numberOfEstimators; e++)
+            offsets[e] = e * width(numberOfClasses);
+
+        int[] folds = StratifiedSplits.kFold(y, numberOfClasses, FOLDS);
+        double[][] metaFeatures = new double[x.rows()][width];
+
+        fitted = new Classifier[numberOfEstimators];
+        IntStream.range(0, (FOLDS + 1) * numberOfEstimators).parallel().forEach(task -> {
+            int fold = task / numberOfEstimators;
+            int e = task % numberOfEstimators;
+            Classifier classifier = estimators.get(e).get();
+
+            if (fold == FOLDS) {
+                classifier.fit(x, y, numberOfClasses);
+                fitted[e] = classifier;
+                return;
+            }
+
+            int[] train = IntStream.range(0, x.rows()).filter(r -> folds[r] != fold).toArray();
+            int[] test = IntStream.range(0, x.rows()).filter(r -> folds[r] == fold).toArray();
+            int[] trainLabels = new int[train.length];
+            for (int i = 0; i < train.length; i++) trainLabels[i] = y[train[i]];
+
+            FeatureView trainView = x.subset(train);
+            classifier.fit(trainView, trainLabels, numberOfClasses);
+            for (int row : test)
+                classifier.outputs(x, row, metaFeatures[row], offsets[e]);
+        });
+
+        finalEstimator = new LogisticRegression();
+        finalEstimator.fit(metaFeatures, y, numberOfClasses);
+        meta = new double[width];
+    }
+
+    /**
+     * Meta-features that a single estimator gives to the training rows in {@link #fit}: its outputs on each fold when
+     * fitted on the others, {@link #width} values per row
+     */
+    public static double[] crossValidatedOutputs(Supplier<Classifier> estimator, FeatureView x, int[] y, int numberOfClasses) {
+        int width = width(numberOfClasses);
+        int[] folds = StratifiedSplits.kFold(y, numberOfClasses, FOLDS);
+        double[] outputs = new double[x.rows() * width];
+
+        IntStream.range(0, FOLDS).parallel().forEach(fold -> {
+            int[] train = IntStream.range(0, x.rows()).filter(r -> folds[r] != fold).toArray();
+            int[] trainLabels = new int[train.length];
+            for (int i = 0; i < train.length; i++) trainLabels[i] = y[train[i]];
+
+            Classifier classifier = estimator.get();
+            classifier.fit(x.subset(train), trainLabels, numberOfClasses);
+            for (int row = 0; row < x.rows(); row++)
+                if (folds[row] == fold) classifier.outputs(x, row, outputs, row * width);
+        });
+
+        return outputs;
+    }
+
+    /**
+     * @return Number of meta-features of each estimator
+     */
+    public static int width(int numberOfClasses) {
+        return numberOfClasses == 2 ? 1 : numberOfClasses;
+    }
+
+    @Override
+    public int predict(FeatureView x, int row) {
+        for (int e = 0; e < fitted.length; e++)
+            fitted[e].outputs(x, row, meta, offsets[e]);
+        return finalEstimator.predict(meta);
+    }
+
+    @Override
+    public int numberOfOutputs() {
+        return numberOfClasses;
+    }
+
+    /**
+     * One-hot encoding of the prediction of the final estimator
+     */
+    @Override
+    public void outputs(FeatureView x, int row, double[] output, int offset) {
+        int prediction = predict(x, row);
+        for (int c = 0; c < numberOfClasses; c++)
+            output[offset + c] = c == prediction ? 1.0 : 0.0;
+    }
+}
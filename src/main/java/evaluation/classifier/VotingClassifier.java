@@ -0,0 +1,65 @@
+package evaluation.classifier;
+
+import evaluation.FeatureView;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Hard voting ensemble as VotingClassifier(voting='hard'): the estimators are fitted in parallel and each prediction
+ * is the most voted class (the lowest one on ties).
+ */
+public class VotingClassifier implements Classifier {
+    protected final transient List<Supplier<Classifier>> estimators;
+    protected Classifier[] fitted;
+    protected int numberOfClasses;
+    protected int[] votes;
+
+    public VotingClassifier(List<Supplier<Classifier>> estimators) {
+        this.estimators = estimators;
+    }
+
+    @Override
+    public void fit(FeatureView x, int[] y, int numberOfClasses) {
+        this.numberOfClasses = numberOfClasses;
+        this.votes = new int[numberOfClasses];
+        this.fitted = new Classifier[estimators.size()];
+
+        IntStream.range(0, estimators.size()).parallel().forEach(e -> {
+            Classifier classifier = estimators.get(e).get();
+            classifier.fit(x, y, numberOfClasses);
+            fitted[e] = classifier;
+        });
+    }
+
+    @Override
+    public int predict(FeatureView x, int row) {
+        Arrays.fill(votes, 0);
+        for (Classifier classifier : fitted)
+            votes[classifier.predict(x, row)]++;
+
+        int best = 0;
+        for (int c = 1; c < numberOfClasses; c++)
+            if (votes[c] > votes[best]) best = c;
+        return best;
+    }
+
+    @Override
+    public int numberOfOutputs() {
+        return numberOfClasses;
+    }
+
+    /**
+     * Fraction of the estimators voting for each class
+     */
+    @Override
+    public void outputs(FeatureView x, int row, double[] output, int offset) {
+        Arrays.fill(votes, 0);
+        for (Classifier classifier : fitted)
+            votes[classifier.predict(x, row)]++;
+        for (int c = 0; c < numberOfClasses; c++)
+            output[offset + c] = (double) votes[c] / fitted.length;
+    }
+}
@@ -1,5 +1,18 @@
 package problem;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import distributed.ArtifactAwareProblem;
+import distributed.CacheAwareProblem;
+import distributed.CostAwareProblem;
+import distributed.DecomposableProblem;
+import distributed.DuplicateAwareProblem;
+import distributed.RepairableProblem;
+import evaluation.EnsembleConfiguration;
+import evaluation.EvaluationPart;
+import evaluation.JavaEnsembleEvaluator;
+import evaluation.LmomentDataset;
+import org.apache.commons.io.FilenameUtils;
 import org.uma.jmetal.problem.Problem;
 import org.uma.jmetal.solution.binarysolution.BinarySolution;
 import org.uma.jmetal.solution.binarysolution.impl.DefaultBinarySolution;
@@ -8,33 +21,69 @@ import org.uma.jmetal.solution.integersolution.IntegerSolution;
 import org.uma.jmetal.solution.integersolution.impl.DefaultIntegerSolution;
 import org.uma.jmetal.util.binarySet.BinarySet;
 import org.uma.jmetal.util.bounds.Bounds;
+import util.EvaluationProfile;
+import util.JMetalLogger;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static java.lang.Math.floor;
 import static java.lang.Math.sqrt;
 
-public class LmomEnsembleProblem implements Problem<CompositeSolution> {
+public class LmomEnsembleProblem implements Problem<CompositeSolution>, CacheAwareProblem<CompositeSolution>, CostAwareProblem<CompositeSolution>, ArtifactAwareProblem<CompositeSolution>, DecomposableProblem<CompositeSolution>, DuplicateAwareProblem<CompositeSolution>, RepairableProblem<CompositeSolution> {
+    /**
+     * Attribute holding the {split, estimator} pair of the parts of an evaluation, and attribute of their result
+     */
+    public static final String PART = "PART";
+    public static final String PART_RESULT = "PART_RESULT";
+    /**
+     * Attribute with the {@link ZeroColumns} found by an evaluation
+     */
+    public static final String ZERO_COLUMNS = "ZERO_COLUMNS";
+
+    protected static final Pattern QUOTED = Pattern.compile("'([^']*)'|\"([^\"]*)\"");
+
+    /**
+     * Columns of the L-moment matrix of sample size n whose values are all zero: all of them with the Java evaluator,
+     * and those among the selected ones with the Python evaluator
+     */
+    public record ZeroColumns(int n, BitSet columns) implements Serializable {
+    }
 
     protected int numberOfBitsFeatures;
     protected int numberOfBitsEnsemble;
     protected int numberOfIntegers;
     protected int numberOfDoubles;
     protected String jsonFile;
+    protected String evaluator = "python";
 
     protected List<Bounds<Integer>> integerBounds;
     protected List<Bounds<Double>> doubleBounds;
+    protected transient Map<Integer, BitSet> zeroColumns;
+    // Dataset and "Data" folder of the scenario JSON, read once by readScenario()
+    protected transient String dataset;
+    protected transient String dataDirectory;
 
     public LmomEnsembleProblem(int numberOfBitsFeatures, int numberOfBitsEnsemble, int numberOfIntegers, int numberOfDoubles, String jsonFile) {
         this.numberOfBitsFeatures = numberOfBitsFeatures;
         this.numberOfBitsEnsemble = numberOfBitsEnsemble;
+        this.numberOfIntegers = numberOfIntegers;
+        this.numberOfDoubles = numberOfDoubles;
         this.jsonFile = jsonFile;
 
         integerBounds = new ArrayList<>(numberOfIntegers);
@@ -54,6 +103,40 @@ public class LmomEnsembleProblem implements Problem<CompositeSolution> {
         return 2 + integerBounds.size() + doubleBounds.size();
     }
 
+    public int numberOfBitsFeatures() {
+        return numberOfBitsFeatures;
+    }
+
+    public int numberOfBitsEnsemble() {
+        return numberOfBitsEnsemble;
+    }
+
+    public int numberOfIntegers() {
+        return numberOfIntegers;
+    }
+
+    public String jsonFile() {
+        return jsonFile;
+    }
+
+    /**
+     * @param evaluator "python" (default) to run lmoments/src in a Python process, or "java" to evaluate the ensemble
+     *                  in this JVM with {@link JavaEnsembleEvaluator}
+     */
+    public void setEvaluator(String evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * @return Lower (position 0) and upper (position 1) bounds of the objectives: n, number of selected features and
+     * negative balanced accuracy. The upper bounds are the objectives given to failed evaluations.
+     */
+    public double[][] objectiveBounds() {
+        return new double[][]{
+                {integerBounds.get(0).getLowerBound(), 0.0, -1.0},
+                {integerBounds.get(0).getUpperBound(), numberOfBitsFeatures, 0.0}};
+    }
+
     @Override
     public int numberOfObjectives() {
         return 3;
@@ -71,14 +154,34 @@ public class LmomEnsembleProblem implements Problem<CompositeSolution> {
 
     @Override
     public CompositeSolution evaluate(CompositeSolution compositeSolution) {
+        if (compositeSolution.attributes().get(PART) instanceof int[] part) return evaluatePart(compositeSolution, part);
 
         BinarySet binarySetFeatures = (BinarySet) compositeSolution.variables().get(0).variables().get(0);
         BinarySet binarySetEnsemble = (BinarySet) compositeSolution.variables().get(1).variables().get(0);
         List<Integer> integers = (List<Integer>) compositeSolution.variables().get(2).variables();
 
-        System.out.println(formatVariables(binarySetFeatures, binarySetEnsemble, integers));
+        if (JMetalLogger.sample("evaluate"))
+            JMetalLogger.event("evaluate", "genotype", formatVariables(binarySetFeatures, binarySetEnsemble, integers));
+
+        long start = System.nanoTime();
+        EvaluationProfile profile = new EvaluationProfile(integers.get(0));
+        compositeSolution.attributes().put(EvaluationProfile.ATTRIBUTE, profile);
+        compositeSolution.attributes().remove(ZERO_COLUMNS);
 
-        if (binarySetFeatures.cardinality() > 0) {
+        if (binarySetFeatures.cardinality() > 0 && "java".equals(evaluator)) {
+            try {
+                double accuracy = JavaEnsembleEvaluator.evaluate(jsonFile, new EnsembleConfiguration(binarySetFeatures, binarySetEnsemble, integers), profile);
+
+                compositeSolution.objectives()[0] = integers.get(0);
+                compositeSolution.objectives()[1] = binarySetFeatures.cardinality();
+                compositeSolution.objectives()[2] = -accuracy;
+                compositeSolution.attributes().put(ZERO_COLUMNS, new ZeroColumns(integers.get(0), JavaEnsembleEvaluator.zeroColumns(jsonFile, integers.get(0))));
+            } catch (Exception e) {
+                System.err.println("Java evaluation failed: " + e.getMessage());
+                e.printStackTrace();
+                nullObjectives(compositeSolution);
+            }
+        } else if (binarySetFeatures.cardinality() > 0) {
             ProcessBuilder processBuilder = new ProcessBuilder(
                     "python", "lmoments/src", formatVariables(binarySetFeatures, binarySetEnsemble, integers)
             );
@@ -101,6 +204,18 @@ public class LmomEnsembleProblem implements Problem<CompositeSolution> {
                     int exitCode = p.waitFor();
                     executor.shutdown();
 
+                    for (String line : result) {
+                        if (line.startsWith("[") && line.endsWith("]"))
+                            compositeSolution.attributes().put(ZERO_COLUMNS, new ZeroColumns(integers.get(0), parseZeroColumns(line)));
+                        if (!line.startsWith("PROFILE ")) continue;
+                        try {
+                            profile = EvaluationProfile.parse(integers.get(0), line.substring("PROFILE ".length()));
+                            compositeSolution.attributes().put(EvaluationProfile.ATTRIBUTE, profile);
+                        } catch (IOException e) {
+                            System.err.println("Error parsing profile: " + line);
+                        }
+                    }
+
                     if (exitCode == 0) {
                         double accuracy;
 
@@ -145,9 +260,293 @@ public class LmomEnsembleProblem implements Problem<CompositeSolution> {
 
         } else nullObjectives(compositeSolution);
 
+        profile.addNanos("total", System.nanoTime() - start);
         return compositeSolution;
     }
 
+    /**
+     * Evaluates one base estimator on one split with {@link JavaEnsembleEvaluator}, storing the {@link EvaluationPart}
+     * in the PART_RESULT attribute (none if it fails)
+     */
+    protected CompositeSolution evaluatePart(CompositeSolution part, int[] splitAndEstimator) {
+        long start = System.nanoTime();
+        EnsembleConfiguration configuration = EnsembleConfiguration.of(part);
+        EvaluationProfile profile = new EvaluationProfile(configuration.n);
+        part.attributes().put(EvaluationProfile.ATTRIBUTE, profile);
+
+        try {
+            part.attributes().put(PART_RESULT, JavaEnsembleEvaluator.evaluatePart(jsonFile, configuration, splitAndEstimator[0], splitAndEstimator[1], profile));
+            part.attributes().put(ZERO_COLUMNS, new ZeroColumns(configuration.n, JavaEnsembleEvaluator.zeroColumns(jsonFile, configuration.n)));
+        } catch (Exception e) {
+            System.err.println("Java evaluation of part " + Arrays.toString(splitAndEstimator) + " failed: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        profile.addNanos("total", System.nanoTime() - start);
+        return part;
+    }
+
+    /**
+     * Parts of the evaluation with the Java evaluator: one per base estimator and shuffle split. Solutions without
+     * features and the Python evaluator are not decomposed.
+     */
+    @Override
+    public List<CompositeSolution> decompose(CompositeSolution solution) {
+        BinarySet binarySetFeatures = (BinarySet) solution.variables().get(0).variables().get(0);
+        if (!"java".equals(evaluator) || binarySetFeatures.cardinality() == 0) return List.of();
+
+        List<CompositeSolution> parts = new ArrayList<>();
+        for (int[] splitAndEstimator : JavaEnsembleEvaluator.parts()) {
+            CompositeSolution part = (CompositeSolution) solution.copy();
+            part.attributes().remove(PART_RESULT);
+            part.attributes().remove(ZERO_COLUMNS);
+            part.attributes().put(PART, splitAndEstimator);
+            parts.add(part);
+        }
+        return parts;
+    }
+
+    @Override
+    public void aggregate(CompositeSolution solution, List<CompositeSolution> parts) {
+        BinarySet binarySetFeatures = (BinarySet) solution.variables().get(0).variables().get(0);
+        BinarySet binarySetEnsemble = (BinarySet) solution.variables().get(1).variables().get(0);
+        List<Integer> integers = (List<Integer>) solution.variables().get(2).variables();
+
+        EvaluationProfile profile = new EvaluationProfile(integers.get(0));
+        solution.attributes().put(EvaluationProfile.ATTRIBUTE, profile);
+        solution.attributes().remove(ZERO_COLUMNS);
+        for (CompositeSolution part : parts) {
+            if (part.attributes().get(EvaluationProfile.ATTRIBUTE) instanceof EvaluationProfile partProfile)
+                profile.merge(partProfile);
+            if (part.attributes().get(ZERO_COLUMNS) instanceof ZeroColumns report)
+                solution.attributes().put(ZERO_COLUMNS, report);
+        }
+
+        List<EvaluationPart> results = new ArrayList<>();
+        for (CompositeSolution part : parts) {
+            if (!(part.attributes().get(PART_RESULT) instanceof EvaluationPart result)) {
+                nullObjectives(solution);
+                return;
+            }
+            results.add(result);
+        }
+
+        solution.objectives()[0] = integers.get(0);
+        solution.objectives()[1] = binarySetFeatures.cardinality();
+        solution.objectives()[2] = -JavaEnsembleEvaluator.aggregate(results, binarySetEnsemble.get(0));
+    }
+
+    /**
+     * Maps the names in the columns_all_zero line printed by compute.py to columns of the L-moment matrix
+     */
+    protected BitSet parseZeroColumns(String line) throws IOException {
+        List<String> names = Arrays.asList(JavaEnsembleEvaluator.scenario(jsonFile).tauColumns());
+        BitSet columns = new BitSet(names.size());
+        Matcher matcher = QUOTED.matcher(line);
+        while (matcher.find()) {
+            int column = names.indexOf(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+            if (column >= 0) columns.set(column);
+        }
+        return columns;
+    }
+
+    /**
+     * Columns known to be all zero for each sample size, from the evaluations reported to {@link #learn(CompositeSolution)}
+     */
+    protected synchronized Map<Integer, BitSet> zeroColumns() {
+        if (zeroColumns == null) zeroColumns = new ConcurrentHashMap<>();
+        return zeroColumns;
+    }
+
+    /**
+     * Clears the features whose ratio column is known to be all zero for the sample size of the solution: those
+     * columns change neither the scaled matrix nor the windows kept, so the accuracy stays the same with fewer features
+     */
+    @Override
+    public boolean repair(CompositeSolution compositeSolution) {
+        BitSet zero = zeroColumns().get(sampleSize(compositeSolution));
+        if (zero == null || zero.isEmpty()) return false;
+
+        BinarySet binarySetFeatures = (BinarySet) compositeSolution.variables().get(0).variables().get(0);
+        int numberOfFeatures = binarySetFeatures.getBinarySetLength() / 3;
+        boolean repaired = false;
+        for (int i = binarySetFeatures.nextSetBit(0); i >= 0 && i < binarySetFeatures.getBinarySetLength() - 1; i = binarySetFeatures.nextSetBit(i + 1)) {
+            if (zero.get((i % 3) * numberOfFeatures + i / 3)) {
+                binarySetFeatures.clear(i);
+                repaired = true;
+            }
+        }
+        return repaired;
+    }
+
+    /**
+     * Solutions that select no ratio column get the null objectives, which their evaluation would give them (the last
+     * bit of the features is counted by the objective but selects no column)
+     */
+    @Override
+    public boolean resolve(CompositeSolution compositeSolution) {
+        BinarySet binarySetFeatures = (BinarySet) compositeSolution.variables().get(0).variables().get(0);
+        int first = binarySetFeatures.nextSetBit(0);
+        if (first >= 0 && first < binarySetFeatures.getBinarySetLength() - 1) return false;
+
+        nullObjectives(compositeSolution);
+        return true;
+    }
+
+    @Override
+    public boolean reusable(double[] objectives) {
+        return objectives[2] < 0.0;
+    }
+
+    @Override
+    public void learn(CompositeSolution compositeSolution) {
+        if (!(compositeSolution.attributes().get(ZERO_COLUMNS) instanceof ZeroColumns report)) return;
+        zeroColumns().merge(report.n(), (BitSet) report.columns().clone(), (known, found) -> {
+            BitSet merged = (BitSet) known.clone();
+            merged.or(found);
+            return merged;
+        });
+    }
+
+    /**
+     * Lists the L-moment matrices (<scenario>.<n>.csv) already computed in the "Data" folder of the scenario JSON
+     */
+    @Override
+    public Set<String> cachedKeys() {
+        Set<String> keys = new HashSet<>();
+
+        try {
+            readScenario();
+            File[] files = new File(dataDirectory).listFiles((dir, name) -> name.startsWith(scenario() + ".") && name.endsWith(".csv"));
+
+            if (files != null)
+                for (File file : files)
+                    keys.add(FilenameUtils.removeExtension(file.getName()));
+        } catch (IOException | NullPointerException e) {
+            System.err.println("Unable to list the L-moment cache of " + jsonFile + ": " + e.getMessage());
+        }
+
+        return keys;
+    }
+
+    @Override
+    public String cacheKey(CompositeSolution compositeSolution) {
+        return scenario() + "." + sampleSize(compositeSolution);
+    }
+
+    /**
+     * Cost features: -log(n) (the number of windows, and thus of training rows, is inversely proportional to n),
+     * log(1 + selected features), stacking (trains every estimator once per fold) and log(k) of the KNN
+     */
+    @Override
+    public double[] costFeatures(CompositeSolution compositeSolution) {
+        BinarySet binarySetFeatures = (BinarySet) compositeSolution.variables().get(0).variables().get(0);
+        BinarySet binarySetEnsemble = (BinarySet) compositeSolution.variables().get(1).variables().get(0);
+        List<Integer> integers = (List<Integer>) compositeSolution.variables().get(2).variables();
+
+        return new double[]{
+                -Math.log(integers.get(0)),
+                Math.log1p(binarySetFeatures.cardinality()),
+                binarySetEnsemble.get(0) ? 1.0 : 0.0,
+                Math.log(integers.get(2))};
+    }
+
+    /**
+     * Artifacts: the dataset ("datasets/<dataset>", under lmoments/data) and the L-moment matrix
+     * ("lmoments/<scenario>.<n>.csv", in the "Data" folder of the scenario JSON), which both evaluators create
+     */
+    @Override
+    public List<String> inputArtifacts(CompositeSolution compositeSolution) {
+        List<String> names = new ArrayList<>();
+        try {
+            readScenario();
+            names.add("datasets/" + dataset);
+        } catch (IOException | NullPointerException e) {
+            System.err.println("Unable to read the dataset of " + jsonFile + ": " + e.getMessage());
+        }
+        names.addAll(outputArtifacts(compositeSolution));
+        return names;
+    }
+
+    @Override
+    public List<String> outputArtifacts(CompositeSolution compositeSolution) {
+        return List.of("lmoments/" + cacheKey(compositeSolution) + ".csv");
+    }
+
+    @Override
+    public File artifactFile(String name) {
+        try {
+            readScenario();
+            if (name.equals("datasets/" + dataset))
+                return new File("lmoments/data", dataset);
+            if (name.startsWith("lmoments/" + scenario() + ".") && name.endsWith(".csv") && !name.substring("lmoments/".length()).contains("/"))
+                return new File(dataDirectory, name.substring("lmoments/".length()));
+        } catch (IOException | NullPointerException e) {
+            System.err.println("Unable to read the artifacts of " + jsonFile + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * L-moment matrices are written under their .lock file (acquire_lock in compute.py), which is held until the lock is
+     * closed; the dataset is never written by the evaluations
+     */
+    @Override
+    public Closeable lockArtifact(String name) throws IOException {
+        File file = artifactFile(name);
+        if (file == null || !name.startsWith("lmoments/")) return ArtifactAwareProblem.super.lockArtifact(name);
+
+        File lock = new File(file.getPath() + ".lock");
+        LmomentDataset.acquireLock(lock);
+        return () -> LmomentDataset.releaseLock(lock);
+    }
+
+    public String scenario() {
+        return FilenameUtils.getBaseName(jsonFile);
+    }
+
+    /**
+     * Reads the dataset and the "Data" folder of the scenario JSON the first time they are needed (the master asks for
+     * them for every task it dispatches)
+     */
+    protected synchronized void readScenario() throws IOException {
+        if (dataset != null) return;
+        JsonNode rootNode = new ObjectMapper().readTree(new File(jsonFile));
+        dataDirectory = rootNode.get("Data").asText();
+        dataset = rootNode.get("dataset").asText();
+    }
+
+    /**
+     * @return Canonical text of the variables of the solution (feature bits - ensemble bits - integers), as they appear
+     * in the VAR files
+     */
+    public static String genotype(CompositeSolution compositeSolution) {
+        return genotype((BinarySet) compositeSolution.variables().get(0).variables().get(0),
+                (BinarySet) compositeSolution.variables().get(1).variables().get(0),
+                (List<Integer>) compositeSolution.variables().get(2).variables());
+    }
+
+    public static String genotype(BinarySet binarySetFeatures, BinarySet binarySetEnsemble, List<Integer> integers) {
+        return binarySetFeatures.toString() + " - " + binarySetEnsemble.toString() + " - " + integers.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+
+    /**
+     * Genotype where the squared-hinge bit of the ensemble is set whenever the SGD penalty bit is not, since the L1
+     * penalty always uses the squared hinge loss (see {@link EnsembleConfiguration})
+     */
+    @Override
+    public String duplicateKey(CompositeSolution compositeSolution) {
+        BinarySet binarySetEnsemble = (BinarySet) ((BinarySet) compositeSolution.variables().get(1).variables().get(0)).clone();
+        if (!binarySetEnsemble.get(1)) binarySetEnsemble.set(2);
+
+        return genotype((BinarySet) compositeSolution.variables().get(0).variables().get(0), binarySetEnsemble,
+                (List<Integer>) compositeSolution.variables().get(2).variables());
+    }
+
+    public static int sampleSize(CompositeSolution compositeSolution) {
+        return (Integer) compositeSolution.variables().get(2).variables().get(0);
+    }
+
     @Override
     public CompositeSolution createSolution() {
         BinarySolution binarySolutionFeatures = new DefaultBinarySolution(List.of(numberOfBitsFeatures), numberOfObjectives(), numberOfConstraints());
@@ -0,0 +1,141 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+/**
+ * Handler that hands the records to a background thread, which formats and writes them with a {@link ConsoleHandler}
+ * (so the format and level of the console handler still apply). Logging threads only claim a slot of a bounded ring
+ * buffer with a compare-and-set and store the record: they never block on the console or on each other. When the
+ * buffer is full the record is dropped and counted, and the number of dropped records is reported once there is room
+ * again. The buffer is drained when the handler is closed, which the {@link LogManager} does at shutdown.
+ * <p>
+ * The capacity (a power of two) is read from the {@code util.AsyncLogHandler.capacity} property of the logging
+ * configuration (default 8192).
+ */
+public class AsyncLogHandler extends Handler {
+    protected static final int DEFAULT_CAPACITY = 8192;
+    protected static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    protected final Handler target;
+    protected final LogRecord[] records;
+    // Slot i is free for the producer of sequence s when sequences[i] == s, and ready for the drainer when it is s + 1
+    protected final AtomicLongArray sequences;
+    protected final int mask;
+    protected final AtomicLong tail = new AtomicLong();
+    protected final AtomicLong dropped = new AtomicLong();
+    protected final Thread drainer;
+    protected long head;
+    protected volatile boolean closed;
+
+    public AsyncLogHandler() {
+        this(new ConsoleHandler(), capacity());
+    }
+
+    public AsyncLogHandler(Handler target, int capacity) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+
+        this.target = target;
+        this.records = new LogRecord[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+
+        setLevel(Level.ALL);
+        drainer = new Thread(this::drain, "log-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    protected static int capacity() {
+        String value = LogManager.getLogManager().getProperty(AsyncLogHandler.class.getName() + ".capacity");
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : DEFAULT_CAPACITY;
+        } catch (NumberFormatException e) {
+            return DEFAULT_CAPACITY;
+        }
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+
+        // The caller is inferred from the stack, so it must be resolved in the logging thread
+        record.getSourceClassName();
+
+        while (true) {
+            long sequence = tail.get();
+            int slot = (int) sequence & mask;
+            long available = sequences.get(slot);
+
+            if (available == sequence) {
+                if (tail.compareAndSet(sequence, sequence + 1)) {
+                    records[slot] = record;
+                    sequences.lazySet(slot, sequence + 1);
+                    return;
+                }
+            } else if (available < sequence) {  // Full
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    protected void drain() {
+        while (!closed) {
+            if (!poll()) {
+                target.flush();
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Writes the next record, if any (called by the drainer only).
+     */
+    protected boolean poll() {
+        int slot = (int) head & mask;
+        if (sequences.get(slot) != head + 1) return false;
+
+        LogRecord record = records[slot];
+        records[slot] = null;
+        sequences.lazySet(slot, head + records.length);
+        head++;
+
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            LogRecord warning = new LogRecord(Level.WARNING, lost + " log records dropped (buffer full)");
+            warning.setSourceClassName(getClass().getName());
+            target.publish(warning);
+        }
+        target.publish(record);
+        return true;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!drainer.isAlive()) while (poll()) ;
+        target.flush();
+        target.close();
+    }
+}
@@ -0,0 +1,373 @@
+package util;
+
+import org.uma.jmetal.solution.binarysolution.BinarySolution;
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
+import org.uma.jmetal.solution.integersolution.IntegerSolution;
+import org.uma.jmetal.util.binarySet.BinarySet;
+import problem.LmomEnsembleProblem;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Compact record of every evaluation of a run, kept outside the heap: each evaluation is a fixed-size record with the
+ * feature bits and ensemble bits (packed), the integer variables, the objectives, the time it was recorded and its
+ * evaluation time in ms (-1 if unknown). Records are stored in segments of about 64 MiB, memory-mapped from a file (so
+ * the history survives the run and can be reopened with {@link #open(File)}) or allocated as direct buffers.
+ * <p>
+ * The heap only holds the lookup structures, a few bytes per record: the records of each n and of each number of
+ * selected features, and an open-addressing table of genotype hashes for {@link #find(CompositeSolution)}.
+ * <p>
+ * File layout (little-endian): a 64-byte header (magic, version, feature bits, ensemble bits, integers, objectives,
+ * record size, number of records) followed by the records.
+ */
+public class EvaluationHistory implements AutoCloseable {
+    protected static final long MAGIC = 0x54534948_4D4F4D4CL;  // "LMOMHIST"
+    protected static final int VERSION = 1;
+    protected static final int HEADER = 64;
+    protected static final int SEGMENT = 1 << 26;
+
+    protected final int featureBits;
+    protected final int ensembleBits;
+    protected final int numberOfIntegers;
+    protected final int numberOfObjectives;
+
+    // Record layout: feature words, ensemble bits, integers, objectives, timestamp, evaluation time
+    protected final int featureWords;
+    protected final int genotypeSize;
+    protected final int objectivesOffset;
+    protected final int timestampOffset;
+    protected final int recordSize;
+    protected final int recordsPerSegment;
+
+    protected final FileChannel channel;
+    protected final ByteBuffer header;
+    protected final List<ByteBuffer> segments = new CopyOnWriteArrayList<>();
+    protected volatile int size;
+
+    protected final Map<Integer, IntList> bySampleSize = new HashMap<>();
+    protected final IntList[] byFeatureCount;
+    protected int[] table = new int[1024];
+
+    /**
+     * History kept in direct buffers, lost at the end of the run
+     */
+    public EvaluationHistory(LmomEnsembleProblem problem) {
+        this(null, problem.numberOfBitsFeatures(), problem.numberOfBitsEnsemble(), problem.numberOfIntegers(), problem.numberOfObjectives());
+    }
+
+    /**
+     * History memory-mapped from the given file, which is overwritten
+     */
+    public EvaluationHistory(File file, LmomEnsembleProblem problem) throws IOException {
+        this(FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE),
+                problem.numberOfBitsFeatures(), problem.numberOfBitsEnsemble(), problem.numberOfIntegers(), problem.numberOfObjectives());
+    }
+
+    protected EvaluationHistory(FileChannel channel, int featureBits, int ensembleBits, int numberOfIntegers, int numberOfObjectives) {
+        if (ensembleBits > 32) throw new IllegalArgumentException("Ensembles of more than 32 bits are not supported");
+
+        this.channel = channel;
+        this.featureBits = featureBits;
+        this.ensembleBits = ensembleBits;
+        this.numberOfIntegers = numberOfIntegers;
+        this.numberOfObjectives = numberOfObjectives;
+
+        featureWords = (featureBits + 63) / 64;
+        genotypeSize = 8 * featureWords + 4 + 4 * numberOfIntegers;
+        objectivesOffset = (genotypeSize + 7) / 8 * 8;
+        timestampOffset = objectivesOffset + 8 * numberOfObjectives;
+        recordSize = timestampOffset + 16;
+        recordsPerSegment = SEGMENT / recordSize;
+
+        byFeatureCount = new IntList[featureBits + 1];
+        for (int i = 0; i <= featureBits; i++) byFeatureCount[i] = new IntList();
+
+        try {
+            header = channel != null ? channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER) : ByteBuffer.allocateDirect(HEADER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(0, MAGIC).putInt(8, VERSION).putInt(12, featureBits).putInt(16, ensembleBits)
+                .putInt(20, numberOfIntegers).putInt(24, numberOfObjectives).putInt(28, recordSize).putLong(32, 0);
+    }
+
+    /**
+     * Reopens the history saved in a file, e.g. for analysis after the run. New records are appended to it.
+     */
+    public static EvaluationHistory open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(buffer, 0);
+        if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION)
+            throw new IOException(file + " is not an evaluation history");
+
+        long records = buffer.getLong(32);
+        EvaluationHistory history = new EvaluationHistory(channel, buffer.getInt(12), buffer.getInt(16), buffer.getInt(20), buffer.getInt(24));
+        for (int i = 0; i < records; i++) {
+            if (i % history.recordsPerSegment == 0) history.segments.add(history.map(history.segments.size()));
+            history.index(i);
+            history.size = i + 1;
+        }
+        history.header.putLong(32, records);
+        return history;
+    }
+
+    /**
+     * Appends an evaluated solution
+     *
+     * @param evaluationTime Evaluation time in ms, or -1 if unknown
+     * @return Position of the record
+     */
+    public synchronized int add(CompositeSolution solution, long evaluationTime) {
+        int i = size;
+        if (i % recordsPerSegment == 0) segments.add(map(segments.size()));
+
+        ByteBuffer segment = segment(i);
+        int offset = offset(i);
+
+        long[] words = features(solution).toLongArray();
+        for (int w = 0; w < featureWords; w++)
+            segment.putLong(offset + 8 * w, w < words.length ? words[w] : 0L);
+
+        long[] ensemble = ((BinarySet) solution.variables().get(1).variables().get(0)).toLongArray();
+        segment.putInt(offset + 8 * featureWords, ensemble.length > 0 ? (int) ensemble[0] : 0);
+
+        List<Integer> integers = ((IntegerSolution) solution.variables().get(2)).variables();
+        for (int k = 0; k < numberOfIntegers; k++)
+            segment.putInt(offset + 8 * featureWords + 4 + 4 * k, integers.get(k));
+
+        for (int k = 0; k < numberOfObjectives; k++)
+            segment.putDouble(offset + objectivesOffset + 8 * k, solution.objectives()[k]);
+
+        segment.putLong(offset + timestampOffset, System.currentTimeMillis());
+        segment.putInt(offset + timestampOffset + 8, (int) Math.min(evaluationTime, Integer.MAX_VALUE));
+
+        index(i);
+        size = i + 1;
+        header.putLong(32, size);
+        return i;
+    }
+
+    protected ByteBuffer map(int segment) {
+        try {
+            ByteBuffer buffer = channel != null
+                    ? channel.map(FileChannel.MapMode.READ_WRITE, HEADER + (long) segment * recordsPerSegment * recordSize, (long) recordsPerSegment * recordSize)
+                    : ByteBuffer.allocateDirect(recordsPerSegment * recordSize);
+            return buffer.order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected void index(int i) {
+        bySampleSize.computeIfAbsent(sampleSize(i), n -> new IntList()).add(i);
+        byFeatureCount[featureCount(i)].add(i);
+
+        if (2 * (size + 1) > table.length) {
+            int[] old = table;
+            table = new int[2 * old.length];
+            for (int entry : old)
+                if (entry != 0) insert(entry - 1);
+        }
+        insert(i);
+    }
+
+    protected void insert(int i) {
+        int mask = table.length - 1;
+        int slot = (int) hash(segment(i), offset(i)) & mask;
+        while (table[slot] != 0) slot = (slot + 1) & mask;
+        table[slot] = i + 1;
+    }
+
+    /**
+     * @return Position of the last evaluation of the genotype of the solution, or -1 if it was never evaluated
+     */
+    public synchronized int find(CompositeSolution solution) {
+        ByteBuffer genotype = ByteBuffer.allocate(genotypeSize).order(ByteOrder.LITTLE_ENDIAN);
+        long[] words = features(solution).toLongArray();
+        for (int w = 0; w < featureWords; w++) genotype.putLong(8 * w, w < words.length ? words[w] : 0L);
+        long[] ensemble = ((BinarySet) solution.variables().get(1).variables().get(0)).toLongArray();
+        genotype.putInt(8 * featureWords, ensemble.length > 0 ? (int) ensemble[0] : 0);
+        List<Integer> integers = ((IntegerSolution) solution.variables().get(2)).variables();
+        for (int k = 0; k < numberOfIntegers; k++) genotype.putInt(8 * featureWords + 4 + 4 * k, integers.get(k));
+
+        int mask = table.length - 1;
+        int found = -1;
+        for (int slot = (int) hash(genotype, 0) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int i = table[slot] - 1;
+            if (i > found && segment(i).slice(offset(i), genotypeSize).equals(genotype)) found = i;
+        }
+        return found;
+    }
+
+    /**
+     * FNV-1a over the genotype part of a record
+     */
+    protected long hash(ByteBuffer buffer, int offset) {
+        long hash = 0xcbf29ce484222325L;
+        for (int b = 0; b < genotypeSize; b++) {
+            hash ^= buffer.get(offset + b) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash ^ (hash >>> 32);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Positions of the records with the given n
+     */
+    public synchronized int[] withSampleSize(int n) {
+        IntList list = bySampleSize.get(n);
+        return list == null ? new int[0] : list.toArray();
+    }
+
+    /**
+     * @return Positions of the records with the given number of selected features
+     */
+    public synchronized int[] withFeatureCount(int count) {
+        return count < 0 || count > featureBits ? new int[0] : byFeatureCount[count].toArray();
+    }
+
+    /**
+     * @return Positions of the records whose objectives are not dominated by any other record (first record of each
+     * repeated point)
+     */
+    public int[] nonDominated() {
+        int records = size;
+        double[][] points = new double[records][];
+        for (int i = 0; i < records; i++) points[i] = objectives(i);
+        int[] front = NonDominatedFilter.indexes(points);
+        Arrays.sort(front);
+        return front;
+    }
+
+    /**
+     * @return Positions of the records that dominate the given objectives
+     */
+    public int[] dominating(double[] objectives) {
+        IntList result = new IntList();
+        int records = size;
+        for (int i = 0; i < records; i++) {
+            ByteBuffer segment = segment(i);
+            int offset = offset(i) + objectivesOffset;
+            boolean better = false;
+            boolean worse = false;
+            for (int k = 0; k < numberOfObjectives && !worse; k++) {
+                double value = segment.getDouble(offset + 8 * k);
+                better |= value < objectives[k];
+                worse |= value > objectives[k];
+            }
+            if (better && !worse) result.add(i);
+        }
+        return result.toArray();
+    }
+
+    public double[] objectives(int i) {
+        double[] objectives = new double[numberOfObjectives];
+        ByteBuffer segment = segment(i);
+        int offset = offset(i) + objectivesOffset;
+        for (int k = 0; k < numberOfObjectives; k++) objectives[k] = segment.getDouble(offset + 8 * k);
+        return objectives;
+    }
+
+    public int sampleSize(int i) {
+        return segment(i).getInt(offset(i) + 8 * featureWords + 4);
+    }
+
+    public int featureCount(int i) {
+        ByteBuffer segment = segment(i);
+        int offset = offset(i);
+        int count = 0;
+        for (int w = 0; w < featureWords; w++) count += Long.bitCount(segment.getLong(offset + 8 * w));
+        return count;
+    }
+
+    /**
+     * @return Time the record was added (ms since the epoch)
+     */
+    public long timestamp(int i) {
+        return segment(i).getLong(offset(i) + timestampOffset);
+    }
+
+    /**
+     * @return Evaluation time in ms, or -1 if unknown
+     */
+    public int evaluationTime(int i) {
+        return segment(i).getInt(offset(i) + timestampOffset + 8);
+    }
+
+    /**
+     * Rebuilds the evaluated solution of a record
+     */
+    public CompositeSolution solution(int i, LmomEnsembleProblem problem) {
+        ByteBuffer segment = segment(i);
+        int offset = offset(i);
+        CompositeSolution solution = problem.createSolution();
+
+        long[] words = new long[featureWords];
+        for (int w = 0; w < featureWords; w++) words[w] = segment.getLong(offset + 8 * w);
+        BinarySet features = new BinarySet(featureBits);
+        features.or(BitSet.valueOf(words));
+        ((BinarySolution) solution.variables().get(0)).variables().set(0, features);
+
+        BinarySet ensemble = new BinarySet(ensembleBits);
+        ensemble.or(BitSet.valueOf(new long[]{segment.getInt(offset + 8 * featureWords) & 0xFFFFFFFFL}));
+        ((BinarySolution) solution.variables().get(1)).variables().set(0, ensemble);
+
+        List<Integer> integers = ((IntegerSolution) solution.variables().get(2)).variables();
+        for (int k = 0; k < numberOfIntegers; k++) integers.set(k, segment.getInt(offset + 8 * featureWords + 4 + 4 * k));
+
+        System.arraycopy(objectives(i), 0, solution.objectives(), 0, numberOfObjectives);
+        return solution;
+    }
+
+    protected ByteBuffer segment(int i) {
+        return segments.get(i / recordsPerSegment);
+    }
+
+    protected int offset(int i) {
+        return (i % recordsPerSegment) * recordSize;
+    }
+
+    protected static BinarySet features(CompositeSolution solution) {
+        return (BinarySet) solution.variables().get(0).variables().get(0);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) channel.close();
+    }
+
+    /**
+     * Growable list of ints
+     */
+    protected static class IntList {
+        protected int[] values = new int[16];
+        protected int size;
+
+        protected void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+
+        protected int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
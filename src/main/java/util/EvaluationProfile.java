@@ -0,0 +1,86 @@
+package util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Time spent by one evaluation in each of its phases (ms), kept in the PROFILE attribute of the solution so that it
+ * travels back to the master with the objectives. The phases of the evaluators are: load (flow dataset), lock (waiting
+ * for the lock of the L-moment cache), lmoments (reading or computing the L-moment matrix), scaling (dropping the
+ * all-zero windows and standardizing), distances (pairwise distances of the Java evaluator, see
+ * evaluation.DistanceCache), fit and predict (summed over the splits, which may run in parallel) and total.
+ * The source tells where the L-moment matrix came from: memory, csv, binary (see evaluation.LmomentMatrixFile) or
+ * computed.
+ */
+public class EvaluationProfile implements Serializable {
+    public static final String ATTRIBUTE = "PROFILE";
+
+    protected final int n;
+    protected final Map<String, Double> phases = new LinkedHashMap<>();
+    protected String source;
+
+    public EvaluationProfile(int n) {
+        this.n = n;
+    }
+
+    /**
+     * Profile printed by lmoments/src/compute.py as "PROFILE {json}": phases in ms, plus the source
+     */
+    public static EvaluationProfile parse(int n, String json) throws IOException {
+        EvaluationProfile profile = new EvaluationProfile(n);
+        JsonNode root = new ObjectMapper().readTree(json);
+
+        for (Iterator<Map.Entry<String, JsonNode>> fields = root.fields(); fields.hasNext(); ) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getValue().isNumber()) profile.add(field.getKey(), field.getValue().asDouble());
+            else if ("source".equals(field.getKey())) profile.setSource(field.getValue().asText());
+        }
+        return profile;
+    }
+
+    public synchronized void add(String phase, double milliseconds) {
+        phases.merge(phase, milliseconds, Double::sum);
+    }
+
+    public void addNanos(String phase, long nanos) {
+        add(phase, nanos / 1e6);
+    }
+
+    /**
+     * Adds the phases of another profile (e.g., of a part of the evaluation) to this one
+     */
+    public synchronized void merge(EvaluationProfile profile) {
+        profile.phases().forEach(this::add);
+        if (source == null) source = profile.source();
+    }
+
+    public synchronized Map<String, Double> phases() {
+        return new LinkedHashMap<>(phases);
+    }
+
+    public int n() {
+        return n;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("n=" + n);
+        if (source != null) builder.append(" source=").append(source);
+        phases.forEach((phase, ms) -> builder.append(' ').append(phase).append('=').append(String.format("%.1f", ms)));
+        return builder.toString();
+    }
+}
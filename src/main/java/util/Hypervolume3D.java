@@ -0,0 +1,102 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exact hypervolume of three-objective (minimization) point sets in O(N log N): the points are swept by the third
+ * objective while the area dominated in the plane of the first two is updated incrementally on a staircase. The
+ * exclusive contribution of a point to a set reduces to one such volume, the one of the set clipped to the box of the
+ * point, so it costs the same.
+ */
+public class Hypervolume3D {
+    /**
+     * @return Volume dominated by the points and bounded by the reference point. Points not strictly better than the
+     * reference point in every objective do not contribute.
+     */
+    public static double volume(List<double[]> points, double[] reference) {
+        List<double[]> inside = new ArrayList<>(points.size());
+        for (double[] point : points)
+            if (point[0] < reference[0] && point[1] < reference[1] && point[2] < reference[2]) inside.add(point);
+        inside.sort(Comparator.comparingDouble(p -> p[2]));
+
+        Staircase staircase = new Staircase(reference[0], reference[1]);
+        double volume = 0.0;
+        double previous = 0.0;
+        for (double[] point : inside) {
+            volume += staircase.area * (point[2] - previous);
+            staircase.add(point[0], point[1]);
+            previous = point[2];
+        }
+        volume += staircase.area * (reference[2] - previous);
+
+        return volume;
+    }
+
+    /**
+     * @return Volume dominated by the point and not by any of the others (the point itself may be among them: the
+     * points equal to it are ignored)
+     */
+    public static double contribution(double[] point, List<double[]> others, double[] reference) {
+        double box = 1.0;
+        for (int i = 0; i < 3; i++) {
+            if (point[i] >= reference[i]) return 0.0;
+            box *= reference[i] - point[i];
+        }
+
+        List<double[]> clipped = new ArrayList<>(others.size());
+        for (double[] other : others) {
+            if (other == point || Arrays.equals(other, point)) continue;
+            clipped.add(new double[]{Math.max(point[0], other[0]), Math.max(point[1], other[1]), Math.max(point[2], other[2])});
+        }
+
+        return box - volume(clipped, reference);
+    }
+
+    /**
+     * Union of the rectangles [x, rx] x [y, ry] of the points added, kept as the points not dominated in the plane
+     * (x increasing, y decreasing) together with its area
+     */
+    protected static class Staircase {
+        protected final TreeMap<Double, Double> steps = new TreeMap<>();
+        protected final double rx;
+        protected final double ry;
+        protected double area;
+
+        protected Staircase(double rx, double ry) {
+            this.rx = rx;
+            this.ry = ry;
+        }
+
+        protected void add(double x, double y) {
+            Map.Entry<Double, Double> lower = steps.floorEntry(x);
+            if (lower != null && lower.getValue() <= y) return;
+
+            // Area between the new step and the current envelope, over [x, first step below y)
+            Map.Entry<Double, Double> before = steps.lowerEntry(x);
+            double height = before == null ? ry : before.getValue();
+            double position = x;
+            double end = rx;
+
+            var iterator = steps.tailMap(x, true).entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Double, Double> step = iterator.next();
+                if (step.getValue() < y) {
+                    end = step.getKey();
+                    break;
+                }
+                area += (step.getKey() - position) * (height - y);
+                position = step.getKey();
+                height = step.getValue();
+                iterator.remove();
+            }
+            area += (end - position) * (height - y);
+
+            steps.put(x, y);
+        }
+    }
+}
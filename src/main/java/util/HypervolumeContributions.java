@@ -0,0 +1,164 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Exclusive hypervolume contributions of a set of three-objective points (minimization), kept up to date as points are
+ * added and removed instead of being recomputed for the whole set.
+ * <p>
+ * Adding a point p lowers the contribution of each point q by the volume dominated by both of them and by no other
+ * point; removing p raises it by the same amount. Inside the box of p, the other points dominate the boxes of their
+ * corners max(p, q), so that volume is the exclusive contribution of the corner of q among the corners, and it is zero
+ * when another corner weakly dominates it. An update therefore clips the points to the box of p (O(k) for a set of k
+ * points), finds the corners not dominated by others with a sweep on the first objective and a staircase on the other
+ * two (O(k log k)), and only computes the contributions of those neighbors of p, O(k log k) each. The contribution of p
+ * is the volume of its box minus the one of the neighbors.
+ */
+public class HypervolumeContributions {
+    protected static final Comparator<double[]> LEXICOGRAPHIC = Comparator.<double[]>comparingDouble(c -> c[0])
+            .thenComparingDouble(c -> c[1]).thenComparingDouble(c -> c[2]);
+
+    protected final double[] reference;
+    protected final List<double[]> points = new ArrayList<>();
+    protected double[] contributions = new double[16];
+
+    // Buffers of the updates: corners {x, y, z, position of the point} inside the reference point, the neighbors
+    // (corners not dominated by others), whether each neighbor shares its corner with another point
+    protected double[][] corners = new double[16][4];
+    protected final List<double[]> neighbors = new ArrayList<>();
+    protected boolean[] shared = new boolean[16];
+    // Neighbor whose volume each dominated corner reduces (-1 if it is a neighbor or several neighbors dominate it)
+    protected int[] owners = new int[16];
+    protected final List<double[]> others = new ArrayList<>();
+    protected final TreeMap<Double, Double> steps = new TreeMap<>();
+
+    public HypervolumeContributions(double[] reference) {
+        this.reference = reference.clone();
+    }
+
+    public void add(double[] point) {
+        double contribution = update(point, -1, -1.0);
+
+        if (points.size() == contributions.length) contributions = Arrays.copyOf(contributions, 2 * contributions.length);
+        contributions[points.size()] = contribution;
+        points.add(point);
+    }
+
+    public void remove(int index) {
+        update(points.get(index), index, 1.0);
+
+        points.remove(index);
+        System.arraycopy(contributions, index + 1, contributions, index, points.size() - index);
+    }
+
+    /**
+     * Adds sign times the volume shared with the point to the contributions of its neighbors
+     *
+     * @param excluded Position of the point in the set, or -1 if it is not in it
+     * @return Contribution of the point to the set (without the excluded position)
+     */
+    protected double update(double[] point, int excluded, double sign) {
+        double box = 1.0;
+        for (int i = 0; i < 3; i++) {
+            if (point[i] >= reference[i]) return 0.0;
+            box *= reference[i] - point[i];
+        }
+
+        if (corners.length < points.size()) {
+            corners = Arrays.copyOf(corners, 2 * points.size());
+            for (int c = 0; c < corners.length; c++)
+                if (corners[c] == null) corners[c] = new double[4];
+        }
+
+        int count = 0;
+        for (int q = 0; q < points.size(); q++) {
+            if (q == excluded) continue;
+            double[] other = points.get(q);
+            double[] corner = corners[count];
+            boolean inside = true;
+            for (int i = 0; i < 3; i++) {
+                corner[i] = Math.max(point[i], other[i]);
+                inside &= corner[i] < reference[i];
+            }
+            corner[3] = q;
+            if (inside) count++;
+        }
+        Arrays.sort(corners, 0, count, LEXICOGRAPHIC);
+
+        // Sorted by the first objective, a corner can only be weakly dominated by the corners before it (or equal ones)
+        neighbors.clear();
+        if (shared.length < count) shared = new boolean[corners.length];
+        if (owners.length < count) owners = new int[corners.length];
+        steps.clear();
+        boolean repeated = false;
+        for (int c = 0; c < count; c++) {
+            double[] corner = corners[c];
+            Map.Entry<Double, Double> lower = steps.floorEntry(corner[1]);
+            owners[c] = -1;
+            if (lower != null && lower.getValue() <= corner[2]) continue;
+
+            boolean equal = c + 1 < count && LEXICOGRAPHIC.compare(corner, corners[c + 1]) == 0;
+            shared[neighbors.size()] = equal;
+            owners[c] = neighbors.size();
+            neighbors.add(corner);
+            repeated |= corner[0] == point[0] && corner[1] == point[1] && corner[2] == point[2];
+
+            var iterator = steps.tailMap(corner[1], true).entrySet().iterator();
+            while (iterator.hasNext() && iterator.next().getValue() >= corner[2]) iterator.remove();
+            steps.put(corner[1], corner[2]);
+        }
+
+        // A dominated corner only takes volume from a neighbor when no other neighbor dominates it too
+        for (int c = 0; c < count; c++) {
+            if (owners[c] >= 0) {
+                owners[c] = -1;
+                continue;
+            }
+            for (int n = 0; n < neighbors.size(); n++) {
+                double[] neighbor = neighbors.get(n);
+                if (neighbor[0] > corners[c][0] || neighbor[1] > corners[c][1] || neighbor[2] > corners[c][2]) continue;
+                if (owners[c] != -1) {
+                    owners[c] = -1;
+                    break;
+                }
+                owners[c] = n;
+            }
+        }
+
+        for (int n = 0; n < neighbors.size(); n++) {
+            if (shared[n]) continue;
+            others.clear();
+            others.addAll(neighbors);
+            for (int c = 0; c < count; c++)
+                if (owners[c] == n) others.add(corners[c]);
+
+            double[] corner = neighbors.get(n);
+            contributions[(int) corner[3]] += sign * Hypervolume3D.contribution(corner, others, reference);
+        }
+
+        return repeated ? 0.0 : box - Hypervolume3D.volume(neighbors, reference);
+    }
+
+    public int size() {
+        return points.size();
+    }
+
+    public double contribution(int index) {
+        return contributions[index];
+    }
+
+    /**
+     * @return Position of the point with the smallest contribution (the first one on ties)
+     */
+    public int smallest() {
+        int best = 0;
+        for (int i = 1; i < points.size(); i++)
+            if (contributions[i] < contributions[best]) best = i;
+        return best;
+    }
+}
@@ -0,0 +1,54 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hypervolume of the non-dominated set of all the points added so far, with the objectives normalized to [0, 1] by
+ * known bounds and the reference point at the upper bounds (points reaching an upper bound are ignored). Each new point updates the value with its exclusive
+ * contribution (see {@link Hypervolume3D}), so the cost of an update depends on the size of the front, not on the
+ * number of points seen.
+ */
+public class IncrementalHypervolume {
+    protected static final double[] REFERENCE = {1.0, 1.0, 1.0};
+
+    protected final double[] lower;
+    protected final double[] upper;
+    protected final List<double[]> front = new ArrayList<>();
+    protected double value;
+
+    public IncrementalHypervolume(double[] lower, double[] upper) {
+        this.lower = lower.clone();
+        this.upper = upper.clone();
+    }
+
+    /**
+     * @return Hypervolume after adding the point (objective values, not normalized)
+     */
+    public synchronized double add(double[] objectives) {
+        double[] point = new double[3];
+        for (int i = 0; i < 3; i++) {
+            point[i] = (objectives[i] - lower[i]) / (upper[i] - lower[i]);
+            if (point[i] >= REFERENCE[i]) return value;
+        }
+
+        for (double[] other : front)
+            if (other[0] <= point[0] && other[1] <= point[1] && other[2] <= point[2]) return value;
+
+        double contribution = Hypervolume3D.contribution(point, front, REFERENCE);
+
+        front.removeIf(other -> point[0] <= other[0] && point[1] <= other[1] && point[2] <= other[2]);
+        front.add(point);
+        value += contribution;
+
+        return value;
+    }
+
+    public synchronized double value() {
+        return value;
+    }
+
+    public synchronized int size() {
+        return front.size();
+    }
+}
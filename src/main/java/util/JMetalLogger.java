@@ -7,6 +7,10 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.io.Serializable;
 import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
@@ -25,6 +29,13 @@ public class JMetalLogger implements Serializable {
 
     public static final Logger logger = Logger.getLogger(JMetalLogger.class.getName());
 
+    /**
+     * Default period of {@link #sample(String)} (ms), set with the {@code log.sampling} system property.
+     */
+    public static final long SAMPLING_PERIOD = Long.getLong("log.sampling", 10_000);
+
+    protected static final ConcurrentHashMap<String, Sampler> samplers = new ConcurrentHashMap<>();
+
     static {
         /*
          * Configure the loggers with the default configuration. If the
@@ -56,7 +67,7 @@ public class JMetalLogger implements Serializable {
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         PrintStream printer = new PrintStream(stream);
         printer.println(".level = INFO");
-        printer.println("handlers = java.util.logging.ConsoleHandler");
+        printer.println("handlers = " + AsyncLogHandler.class.getName());
         printer.println("formatters = java.util.logging.SimpleFormatter");
         printer.println("java.util.logging.SimpleFormatter.format = %1$tY-%1$tm-%1$td %1$tH:%1$tM:%1$tS.%1$tL %4$s: %5$s [%2$s]%6$s%n");
         printer.println("java.util.logging.ConsoleHandler.level = ALL");
@@ -64,4 +75,65 @@ public class JMetalLogger implements Serializable {
         LogManager manager = LogManager.getLogManager();
         manager.readConfiguration(IOUtils.toInputStream(new String(stream.toByteArray(), Charset.forName("UTF-8"))));
     }
+
+    /**
+     * Rate limiter for messages logged on every task: returns true at most once per {@link #SAMPLING_PERIOD} for each
+     * key, and counts the messages skipped in between, which the next {@link #event} with the same name reports.
+     */
+    public static boolean sample(String key) {
+        return sample(key, SAMPLING_PERIOD);
+    }
+
+    public static boolean sample(String key, long periodMillis) {
+        Sampler sampler = samplers.get(key);
+        if (sampler == null) {
+            samplers.putIfAbsent(key, new Sampler());
+            sampler = samplers.get(key);
+        }
+        return sampler.sample(TimeUnit.MILLISECONDS.toNanos(periodMillis));
+    }
+
+    /**
+     * Logs a structured event at INFO level, rendered as "name key=value key=value ..." by the handler thread (the
+     * values should not change after the call). If the event is sampled, the number of skipped events since the last
+     * one is added as "suppressed=n".
+     */
+    public static void event(String name, Object... keyValues) {
+        if (!logger.isLoggable(Level.INFO)) return;
+
+        Sampler sampler = samplers.get(name);
+        long suppressed = sampler != null ? sampler.suppressed.getAndSet(0) : 0;
+        logger.logp(Level.INFO, null, null, "{0}", new Event(name, keyValues, suppressed));
+    }
+
+    protected static class Sampler {
+        protected final AtomicLong next = new AtomicLong(Long.MIN_VALUE);
+        protected final AtomicLong suppressed = new AtomicLong();
+
+        protected boolean sample(long periodNanos) {
+            long now = System.nanoTime();
+            long due = next.get();
+            if ((due == Long.MIN_VALUE || now - due >= 0) && next.compareAndSet(due, now + periodNanos)) return true;
+
+            suppressed.incrementAndGet();
+            return false;
+        }
+    }
+
+    protected record Event(String name, Object[] keyValues, long suppressed) {
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(name);
+            for (int i = 0; i + 1 < keyValues.length; i += 2)
+                builder.append(' ').append(keyValues[i]).append('=').append(quote(keyValues[i + 1]));
+            if (suppressed > 0) builder.append(" suppressed=").append(suppressed);
+            return builder.toString();
+        }
+
+        protected static String quote(Object value) {
+            String text = String.valueOf(value);
+            if (!text.isEmpty() && text.chars().noneMatch(c -> Character.isWhitespace(c) || c == '"' || c == '=')) return text;
+            return '"' + text.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Non-dominated filter for three minimization objectives in O(N log N): the points are sorted lexicographically and
+ * swept keeping the staircase of the (f2, f3) projections of the points kept so far, so each point is dominated (or
+ * repeated) if and only if the staircase has a point below it. Repeated points are kept once.
+ */
+public class NonDominatedFilter {
+    public static double[][] filter(double[][] points) {
+        return Arrays.stream(indexes(points)).mapToObj(i -> points[i]).toArray(double[][]::new);
+    }
+
+    /**
+     * @return Positions of the non-dominated points, in lexicographic order of the points
+     */
+    public static int[] indexes(double[][] points) {
+        Integer[] sorted = new Integer[points.length];
+        for (int i = 0; i < points.length; i++) sorted[i] = i;
+        Arrays.sort(sorted, Comparator.<Integer>comparingDouble(i -> points[i][0]).thenComparingDouble(i -> points[i][1]).thenComparingDouble(i -> points[i][2]));
+
+        // f2 -> f3: f2 increasing, f3 decreasing
+        TreeMap<Double, Double> staircase = new TreeMap<>();
+        int[] front = new int[points.length];
+        int size = 0;
+
+        for (int i : sorted) {
+            double[] point = points[i];
+            Map.Entry<Double, Double> below = staircase.floorEntry(point[1]);
+            if (below != null && below.getValue() <= point[2]) continue;
+
+            front[size++] = i;
+
+            Map.Entry<Double, Double> next = staircase.ceilingEntry(point[1]);
+            while (next != null && next.getValue() >= point[2]) {
+                staircase.remove(next.getKey());
+                next = staircase.higherEntry(next.getKey());
+            }
+            staircase.put(point[1], point[2]);
+        }
+
+        return Arrays.copyOf(front, size);
+    }
+}
@@ -0,0 +1,81 @@
+package util;
+
+import org.uma.jmetal.component.catalogue.common.termination.Termination;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+/**
+ * Stops when the hypervolume published by the algorithm (attribute HYPERVOLUME) has not improved by more than a
+ * tolerance over the last window of evaluations, when the computing time (attribute COMPUTING_TIME, in ms) reaches a
+ * budget, or after a maximum number of evaluations. A window or budget of 0 disables that condition.
+ */
+public class TerminationByHypervolumeStagnation implements Termination {
+    protected final int maximumNumberOfEvaluations;
+    protected final int window;
+    protected final double tolerance;
+    protected final long computingTimeBudget;
+
+    // (evaluations, hypervolume) observed over the last window
+    protected final Deque<double[]> history = new ArrayDeque<>();
+    protected String reason;
+
+    public TerminationByHypervolumeStagnation(int maximumNumberOfEvaluations, int window, double tolerance, long computingTimeBudget) {
+        this.maximumNumberOfEvaluations = maximumNumberOfEvaluations;
+        this.window = window;
+        this.tolerance = tolerance;
+        this.computingTimeBudget = computingTimeBudget;
+    }
+
+    @Override
+    public boolean isMet(Map<String, Object> algorithmStatusData) {
+        int evaluations = (int) algorithmStatusData.get("EVALUATIONS");
+        if (evaluations >= maximumNumberOfEvaluations)
+            return met("maximum number of evaluations (" + maximumNumberOfEvaluations + ") reached");
+
+        Long computingTime = (Long) algorithmStatusData.get("COMPUTING_TIME");
+        if (computingTimeBudget > 0 && computingTime != null && computingTime >= computingTimeBudget)
+            return met("computing time budget (" + computingTimeBudget + " ms) reached after " + evaluations + " evaluations");
+
+        Double hypervolume = (Double) algorithmStatusData.get("HYPERVOLUME");
+        if (window <= 0 || hypervolume == null) return false;
+
+        if (history.isEmpty() || history.peekLast()[0] < evaluations)
+            history.addLast(new double[]{evaluations, hypervolume});
+
+        // Keep the latest observation at least one window old as the baseline
+        while (history.size() > 1) {
+            double[] first = history.removeFirst();
+            if (history.peekFirst()[0] > evaluations - window) {
+                history.addFirst(first);
+                break;
+            }
+        }
+
+        double[] baseline = history.peekFirst();
+        if (baseline[0] <= evaluations - window && hypervolume - baseline[1] <= tolerance)
+            return met("hypervolume " + hypervolume + " improved less than " + tolerance + " in the last " + window + " evaluations");
+
+        return false;
+    }
+
+    protected boolean met(String reason) {
+        if (this.reason == null) {
+            this.reason = reason;
+            JMetalLogger.logger.info("Termination: " + reason);
+        }
+        return true;
+    }
+
+    public int getMaximumNumberOfEvaluations() {
+        return maximumNumberOfEvaluations;
+    }
+
+    /**
+     * @return Why the condition was met, or null if it has not been met
+     */
+    public String reason() {
+        return reason;
+    }
+}
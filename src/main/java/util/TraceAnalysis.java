@@ -0,0 +1,126 @@
+package util;
+
+import org.uma.jmetal.qualityindicator.QualityIndicator;
+import org.uma.jmetal.qualityindicator.impl.GeneralizedSpread;
+import org.uma.jmetal.qualityindicator.impl.InvertedGenerationalDistancePlus;
+import org.uma.jmetal.qualityindicator.impl.hypervolume.impl.PISAHypervolume;
+import org.uma.jmetal.util.NormalizeUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the quality indicators of every trace of one or more runs. Usage:
+ * <p>
+ * TraceAnalysis <traces_dir> ... [--output=<file>]
+ * <p>
+ * For each traces directory (traces/ or traces/<job> of a campaign), all the FUN.<i>.csv files are read in parallel,
+ * the reference front is the non-dominated set of their union (saved at <traces_dir>.pf), and the hypervolume, IGD+ and
+ * generalized spread of each trace are computed on the fronts normalized with the bounds of the reference front. The
+ * results are printed (or saved) as one CSV table: trace directory, trace number, solutions, HV, IGD+ and spread.
+ */
+public class TraceAnalysis {
+    public static void main(String[] args) throws IOException {
+        String output = null;
+        List<File> directories = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--output=")) output = arg.substring("--output=".length());
+            else directories.add(new File(arg));
+        }
+
+        List<String> rows = new ArrayList<>();
+        for (File directory : directories) {
+            long start = System.currentTimeMillis();
+            rows.addAll(analyze(directory));
+            JMetalLogger.logger.info(directory + " analyzed in " + (System.currentTimeMillis() - start) + " ms");
+        }
+
+        try (PrintStream out = output == null ? new PrintStream(System.out, false) : new PrintStream(output)) {
+            out.println("traces,trace,solutions,HV,IGD+,Spread");
+            rows.forEach(out::println);
+            out.flush();
+        }
+    }
+
+    /**
+     * @return One table row for each trace of the directory, in trace order
+     */
+    public static List<String> analyze(File directory) throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith("FUN.") && name.endsWith(".csv"));
+        if (files == null || files.length == 0) {
+            JMetalLogger.logger.warning("No traces found in " + directory);
+            return List.of();
+        }
+        Arrays.sort(files, Comparator.comparingInt(TraceAnalysis::traceNumber));
+
+        List<double[][]> fronts;
+        try {
+            fronts = Arrays.stream(files).parallel().map(TraceAnalysis::read).collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // Filtering each trace first keeps the merge small
+        double[][] referenceFront = NonDominatedFilter.filter(fronts.parallelStream()
+                .map(NonDominatedFilter::filter)
+                .flatMap(Arrays::stream)
+                .toArray(double[][]::new));
+        new PrintStream(directory.getPath().replaceAll("[/\\\\]+$", "") + ".pf").printf("%s", format(referenceFront)).close();
+
+        double[] min = NormalizeUtils.getMinValuesOfTheColumnsOfAMatrix(referenceFront);
+        double[] max = NormalizeUtils.getMaxValuesOfTheColumnsOfAMatrix(referenceFront);
+        for (int i = 0; i < max.length; i++)
+            if (max[i] <= min[i]) max[i] = min[i] + 1.0;
+        double[][] normalizedReferenceFront = NormalizeUtils.normalize(referenceFront, min, max);
+
+        return IntStream.range(0, files.length).parallel().mapToObj(i -> {
+            double[][] front = fronts.get(i);
+            double[][] normalizedFront = NormalizeUtils.normalize(front, min, max);
+
+            return String.format(Locale.US, "%s,%d,%d,%.6f,%.6f,%.6f", directory.getName(), traceNumber(files[i]), front.length,
+                    compute(PISAHypervolume::new, normalizedReferenceFront, normalizedFront),
+                    compute(InvertedGenerationalDistancePlus::new, normalizedReferenceFront, normalizedFront),
+                    compute(GeneralizedSpread::new, normalizedReferenceFront, normalizedFront));
+        }).collect(Collectors.toList());
+    }
+
+    protected static double compute(Supplier<QualityIndicator> indicator, double[][] referenceFront, double[][] front) {
+        QualityIndicator qualityIndicator = indicator.get();
+        qualityIndicator.referenceFront(referenceFront);
+        return qualityIndicator.compute(front);
+    }
+
+    protected static double[][] read(File file) {
+        try {
+            return Files.readAllLines(file.toPath()).stream()
+                    .filter(line -> !line.isBlank())
+                    .map(line -> Arrays.stream(line.split(",")).mapToDouble(value -> Double.parseDouble(value.strip())).toArray())
+                    .toArray(double[][]::new);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected static int traceNumber(File file) {
+        String name = file.getName();
+        return Integer.parseInt(name.substring("FUN.".length(), name.length() - ".csv".length()));
+    }
+
+    protected static String format(double[][] front) {
+        StringBuilder builder = new StringBuilder();
+        for (double[] point : front)
+            builder.append(Arrays.stream(point).mapToObj(String::valueOf).collect(Collectors.joining(","))).append('\n');
+        return builder.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package util;
+
+import org.uma.jmetal.solution.binarysolution.BinarySolution;
+import org.uma.jmetal.solution.compositesolution.CompositeSolution;
+import org.uma.jmetal.util.binarySet.BinarySet;
+import problem.LmomEnsembleProblem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the solutions of {@link LmomEnsembleProblem} saved by SolutionListOutput: each line of a FUN file holds the
+ * objectives of a solution, and each solution takes three "Variables: ..." records in its VAR file (feature bits,
+ * ensemble bits and integers).
+ */
+public class TraceReader {
+    protected static final Pattern VARIABLES = Pattern.compile("Variables: (.*?) Objectives:");
+
+    public static List<TracedSolution> read(File fun, File var) throws IOException {
+        List<double[]> objectives = Files.readAllLines(fun.toPath()).stream()
+                .filter(line -> !line.isBlank())
+                .map(line -> Arrays.stream(line.split(",")).mapToDouble(value -> Double.parseDouble(value.strip())).toArray())
+                .collect(Collectors.toList());
+
+        List<String> variables = new ArrayList<>();
+        Matcher matcher = VARIABLES.matcher(Files.readString(var.toPath()));
+        while (matcher.find()) variables.add(matcher.group(1).strip());
+
+        if (variables.size() != 3 * objectives.size())
+            throw new IOException(var + " has " + variables.size() + " variable records for " + objectives.size() + " solutions in " + fun);
+
+        List<TracedSolution> solutions = new ArrayList<>(objectives.size());
+        for (int i = 0; i < objectives.size(); i++)
+            solutions.add(new TracedSolution(bits(variables.get(3 * i)), bits(variables.get(3 * i + 1)),
+                    Arrays.stream(variables.get(3 * i + 2).split("\\s+")).map(Integer::valueOf).collect(Collectors.toList()),
+                    objectives.get(i)));
+
+        return solutions;
+    }
+
+    /**
+     * @return Solutions of every FUN.<i>.csv / VAR.<i>.csv pair of the traces directory, in trace order
+     */
+    public static List<TracedSolution> readTraces(File directory) throws IOException {
+        File[] funs = directory.listFiles((dir, name) -> name.matches("FUN\\.\\d+\\.csv"));
+        if (funs == null) throw new IOException("Unable to list " + directory);
+        Arrays.sort(funs, (a, b) -> Integer.compare(traceNumber(a), traceNumber(b)));
+
+        List<TracedSolution> solutions = new ArrayList<>();
+        for (File fun : funs) {
+            File var = new File(directory, "VAR." + traceNumber(fun) + ".csv");
+            if (var.exists()) solutions.addAll(read(fun, var));
+        }
+        return solutions;
+    }
+
+    protected static int traceNumber(File file) {
+        String name = file.getName();
+        return Integer.parseInt(name.substring(name.indexOf('.') + 1, name.lastIndexOf('.')));
+    }
+
+    protected static BinarySet bits(String text) {
+        BinarySet bits = new BinarySet(text.length());
+        for (int i = 0; i < text.length(); i++)
+            if (text.charAt(i) == '1') bits.set(i);
+        return bits;
+    }
+
+    public static class TracedSolution {
+        public final BinarySet features;
+        public final BinarySet ensemble;
+        public final List<Integer> integers;
+        public final double[] objectives;
+
+        public TracedSolution(BinarySet features, BinarySet ensemble, List<Integer> integers, double[] objectives) {
+            this.features = features;
+            this.ensemble = ensemble;
+            this.integers = integers;
+            this.objectives = objectives;
+        }
+
+        public String genotype() {
+            return LmomEnsembleProblem.genotype(features, ensemble, integers);
+        }
+
+        /**
+         * @return New solution of the problem with these variables and objectives
+         */
+        public CompositeSolution toSolution(LmomEnsembleProblem problem) {
+            CompositeSolution solution = problem.createSolution();
+            ((BinarySolution) solution.variables().get(0)).variables().set(0, (BinarySet) features.clone());
+            ((BinarySolution) solution.variables().get(1)).variables().set(0, (BinarySet) ensemble.clone());
+            for (int i = 0; i < integers.size(); i++)
+                ((List<Integer>) solution.variables().get(2).variables()).set(i, integers.get(i));
+            System.arraycopy(objectives, 0, solution.objectives(), 0, objectives.length);
+            return solution;
+        }
+    }
+}
@@ -44,7 +44,7 @@ public class WriteSolutionsToCSVObserver implements Observer<Map<String, Object>
                     deleteRecursively(child);
             }
         } else {
-            if (!file.mkdir()) {
+            if (!file.mkdirs()) {
                 throw new RuntimeException("Unable to create the directory");
             }
         }
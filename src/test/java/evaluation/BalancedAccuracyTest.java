@@ -0,0 +1,28 @@
+package evaluation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Expected values are those of balanced_accuracy_score, worked out by hand: the mean recall of the classes present in
+ * the true labels
+ */
+class BalancedAccuracyTest {
+    @Test
+    void perfectPredictionsScoreOne() {
+        assertEquals(1.0, BalancedAccuracy.score(new int[]{0, 1, 2, 1}, new int[]{0, 1, 2, 1}, 3), 0.0);
+    }
+
+    @Test
+    void averagesRecallOverClasses() {
+        // Recall 3/4 for class 0 and 1/2 for class 1, whatever their support
+        assertEquals(0.625, BalancedAccuracy.score(new int[]{0, 0, 0, 0, 1, 1}, new int[]{0, 0, 0, 1, 1, 0}, 2), 1e-15);
+    }
+
+    @Test
+    void ignoresClassesAbsentFromTruth() {
+        // Class 2 is only predicted: recalls 1/2 and 1
+        assertEquals(0.75, BalancedAccuracy.score(new int[]{0, 0, 1, 1}, new int[]{0, 2, 1, 1}, 3), 1e-15);
+    }
+}
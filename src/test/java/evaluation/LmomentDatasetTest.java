@@ -0,0 +1,22 @@
+package evaluation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Window labels as get_labels in lmoments/src/compute.py followed by get_labels_int
+ */
+class LmomentDatasetTest {
+    @Test
+    void labelsWindowsWithTheirMostFrequentLabel() {
+        // Windows {0, 1, 1, 0}, {1, 0, 0, 1} and {2, 2, 2, 1}: ties go to the label appearing first in the window
+        assertArrayEquals(new int[]{0, 1, 2}, LmomentDataset.windowLabels(new int[]{0, 1, 1, 0, 1, 0, 0, 1, 2, 2, 2, 1}, 4));
+    }
+
+    @Test
+    void internsLabelsInOrderOfFirstWindow() {
+        // Windows {3, 3}, {1, 1} and the incomplete {1}
+        assertArrayEquals(new int[]{0, 1, 1}, LmomentDataset.windowLabels(new int[]{3, 3, 1, 1, 1}, 2));
+    }
+}
@@ -0,0 +1,55 @@
+package evaluation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Expected ratios are exact fractions of the unbiased probability-weighted moments b0..b4 (Hosking, 1990), with
+ * l2 = 2b1 - b0, l3 = 6b2 - 6b1 + b0, l4 = 20b3 - 30b2 + 12b1 - b0 and l5 = 70b4 - 140b3 + 90b2 - 20b1 + b0
+ */
+class LmomentsTest {
+    @Test
+    void ratiosOfSkewedSample() {
+        // l2 = 18/5, l3 = 8/5, l4 = 3/5, l5 = 1/5
+        assertArrayEquals(new double[]{4.0 / 9, 1.0 / 6, 1.0 / 18}, ratios(1, 2, 4, 8, 16), 1e-12);
+    }
+
+    @Test
+    void ratiosOfSymmetricSampleAreZero() {
+        assertArrayEquals(new double[]{0.0, 0.0, 0.0}, ratios(1, 2, 3, 4, 5), 1e-12);
+    }
+
+    @Test
+    void ratiosOfSingleOutlierAreOne() {
+        // b0 = ... = b4 = 2, so every L-moment from the second on is 2
+        assertArrayEquals(new double[]{1.0, 1.0, 1.0}, ratios(0, 0, 0, 0, 10), 1e-12);
+    }
+
+    @Test
+    void ratiosOfEvenSample() {
+        // l2 = 13/8, l3 = 3/8, l4 = 1/8, l5 = 3/8
+        assertArrayEquals(new double[]{3.0 / 13, 1.0 / 13, 3.0 / 13}, ratios(1, 1, 2, 3, 4, 5, 6, 9), 1e-12);
+    }
+
+    @Test
+    void ratiosOfConstantSampleAreZero() {
+        assertArrayEquals(new double[]{0.0, 0.0, 0.0}, ratios(7, 7, 7, 7), 0.0);
+    }
+
+    @Test
+    void readsAndWritesAtOffsets() {
+        double[] ratios = new double[5];
+        new Lmoments(5).ratios(new double[]{-1, 1, 2, 4, 8, 16, -1}, 1, ratios, 2);
+        assertArrayEquals(new double[]{0.0, 0.0, 4.0 / 9, 1.0 / 6, 1.0 / 18}, ratios, 1e-12);
+    }
+
+    /**
+     * @param sample Sorted sample
+     */
+    protected static double[] ratios(double... sample) {
+        double[] ratios = new double[Lmoments.NUMBER_OF_RATIOS];
+        new Lmoments(sample.length).ratios(sample, 0, ratios, 0);
+        return ratios;
+    }
+}
@@ -0,0 +1,57 @@
+package evaluation.classifier;
+
+import evaluation.FeatureView;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Well separated clusters of two features: nine training points around each center, on a grid of step 0.3, and the
+ * centers themselves as test points. Any of the scikit-learn estimators classifies the centers correctly, so the
+ * expected predictions are the classes of the centers.
+ */
+class Clusters {
+    protected static final double[][] CENTERS = {{-4.0, 0.0}, {0.0, 4.0}, {4.0, 0.0}};
+
+    protected final int numberOfClasses;
+    protected final FeatureView train;
+    protected final FeatureView test;
+    protected final int[] trainLabels;
+    protected final int[] testLabels;
+
+    Clusters(int numberOfClasses) {
+        this.numberOfClasses = numberOfClasses;
+        int trainRows = numberOfClasses * 9;
+        double[][] columns = new double[2][trainRows + numberOfClasses];
+        trainLabels = new int[trainRows];
+        testLabels = new int[numberOfClasses];
+
+        for (int c = 0; c < numberOfClasses; c++) {
+            for (int i = 0; i < 9; i++) {
+                int row = c * 9 + i;
+                columns[0][row] = CENTERS[c][0] + 0.3 * (i % 3 - 1);
+                columns[1][row] = CENTERS[c][1] + 0.3 * (i / 3 - 1);
+                trainLabels[row] = c;
+            }
+            columns[0][trainRows + c] = CENTERS[c][0];
+            columns[1][trainRows + c] = CENTERS[c][1];
+            testLabels[c] = c;
+        }
+
+        int[] rows = new int[trainRows + numberOfClasses];
+        for (int r = 0; r < rows.length; r++) rows[r] = r;
+        FeatureView x = FeatureView.standardized(columns, new int[]{0, 1}, rows);
+        int[] trainIndexes = new int[trainRows];
+        for (int r = 0; r < trainRows; r++) trainIndexes[r] = r;
+        int[] testIndexes = new int[numberOfClasses];
+        for (int c = 0; c < numberOfClasses; c++) testIndexes[c] = trainRows + c;
+        train = x.subset(trainIndexes);
+        test = x.subset(testIndexes);
+    }
+
+    void assertClassifies(Classifier classifier) {
+        classifier.fit(train, trainLabels, numberOfClasses);
+        int[] predictions = new int[testLabels.length];
+        for (int i = 0; i < predictions.length; i++) predictions[i] = classifier.predict(test, i);
+        assertArrayEquals(testLabels, predictions);
+    }
+}
@@ -0,0 +1,19 @@
+package evaluation.classifier;
+
+import org.junit.jupiter.api.Test;
+
+class SGDClassifierTest {
+    @Test
+    void separatesTwoClasses() {
+        for (boolean l2Penalty : new boolean[]{false, true})
+            for (boolean squaredHinge : new boolean[]{false, true})
+                new Clusters(2).assertClassifies(new SGDClassifier(l2Penalty, squaredHinge, 42));
+    }
+
+    @Test
+    void separatesThreeClasses() {
+        for (boolean l2Penalty : new boolean[]{false, true})
+            for (boolean squaredHinge : new boolean[]{false, true})
+                new Clusters(3).assertClassifies(new SGDClassifier(l2Penalty, squaredHinge, 42));
+    }
+}
@@ -0,0 +1,27 @@
+package evaluation.classifier;
+
+import org.junit.jupiter.api.Test;
+
+class SVCTest {
+    @Test
+    void rbfSeparatesTwoClasses() {
+        new Clusters(2).assertClassifies(new SVC(SVC.Kernel.RBF, 3, false));
+    }
+
+    @Test
+    void rbfSeparatesThreeClasses() {
+        new Clusters(3).assertClassifies(new SVC(SVC.Kernel.RBF, 3, false));
+        new Clusters(3).assertClassifies(new SVC(SVC.Kernel.RBF, 3, true));
+    }
+
+    /**
+     * Odd degrees only: with coef0 = 0, even degrees map the centers (-4, 0) and (4, 0) to the same features
+     */
+    @Test
+    void polySeparatesThreeClasses() {
+        for (int degree = 3; degree <= 5; degree += 2) {
+            new Clusters(3).assertClassifies(new SVC(SVC.Kernel.POLY, degree, false));
+            new Clusters(3).assertClassifies(new SVC(SVC.Kernel.POLY, degree, true));
+        }
+    }
+}